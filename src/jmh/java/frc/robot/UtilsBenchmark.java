@@ -0,0 +1,100 @@
+package frc.robot;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the math utilities used every cycle by the drivetrain.
+ * Run with ./gradlew jmh, the gc profiler reports the allocation rate of each benchmark.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+    private double x = 0.3;
+    private double y = -0.7;
+
+    private double[][] matrix = { {0, 1, 0.375}, {1, 0, -0.375}, {0, 1, 0.375}, {1, 0, 0.375},
+            {0, 1, -0.375}, {1, 0, 0.375}, {0, 1, -0.375}, {1, 0, -0.375} };
+    private double[] vector = {0.7, 0.35, 1.5};
+    private double[] matrixOut = new double[8];
+    private double[] polarOut = new double[2];
+
+    // the four wheel vectors of a drive cycle in struct of arrays form
+    private double[] wheelX = {0.3, -0.675, 1.05, -0.075};
+    private double[] wheelY = {1.075, 0.325, -0.425, -0.7};
+    private double[] magnitudes = new double[4];
+    private double[] angles = new double[4];
+    private double[] sin = new double[4];
+    private double[] cos = new double[4];
+
+    @Benchmark
+    public double[] matrixVectorMult() {
+        return Utils.matrixVectorMult(matrix, vector);
+    }
+
+    @Benchmark
+    public double[] matrixVectorMultInPlace() {
+        Utils.matrixVectorMult(matrix, vector, matrixOut);
+        return matrixOut;
+    }
+
+    @Benchmark
+    public double[] cartesianToPolar() {
+        return Utils.cartesianToPolar(x, y);
+    }
+
+    @Benchmark
+    public void cartesianToPolarInPlace(Blackhole blackhole) {
+        Utils.cartesianToPolar(x, y, polarOut);
+        blackhole.consume(polarOut[0]);
+        blackhole.consume(polarOut[1]);
+    }
+
+    @Benchmark
+    public double floorMod() {
+        return Utils.floorMod(x - 10, Math.PI);
+    }
+
+    @Benchmark
+    public double[] cartesianToPolarPerWheel() {
+        for (int i = 0; i < 4; i++) {
+            Utils.cartesianToPolar(wheelX[i], wheelY[i], polarOut);
+            magnitudes[i] = polarOut[0];
+            angles[i] = polarOut[1];
+        }
+        return angles;
+    }
+
+    @Benchmark
+    public double[] cartesianToPolarBatched() {
+        Utils.cartesianToPolar(wheelX, wheelY, magnitudes, angles);
+        return angles;
+    }
+
+    @Benchmark
+    public double[] fastCartesianToPolarBatched() {
+        Utils.fastCartesianToPolar(wheelX, wheelY, magnitudes, angles);
+        return angles;
+    }
+
+    @Benchmark
+    public double[] sinCos() {
+        for (int i = 0; i < 4; i++) {
+            sin[i] = Math.sin(wheelX[i]);
+            cos[i] = Math.cos(wheelX[i]);
+        }
+        return sin;
+    }
+
+    @Benchmark
+    public double[] fastSinCosBatched() {
+        Utils.fastSinCos(wheelX, sin, cos);
+        return sin;
+    }
+}
@@ -0,0 +1,78 @@
+package frc.robot.subsystems.drivetrain;
+
+import frc.robot.Constants;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the drivetrain control math.
+ * Only the pure math entry points are used, so no TalonFX, TalonSRX or AHRS objects are constructed.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrivetrainBenchmark {
+    private SwerveKinematics kinematics;
+    private UnitModel unitDrive;
+    private UnitModel unitAngle;
+
+    private double forward = 0.6;
+    private double strafe = -0.4;
+    private double rotation = 0.25;
+    private double robotAngle = 1.2;
+
+    private double[] robotHeading = new double[3];
+    private double[] wheelVelocities = new double[8];
+    private double[] speeds = new double[4];
+    private double[] angles = new double[4];
+
+    @Setup
+    public void setup() {
+        kinematics = new SwerveKinematics(Constants.SwerveDrive.ROBOT_WIDTH, Constants.SwerveDrive.ROBOT_LENGTH);
+        unitDrive = new UnitModel(Constants.Drivetrain.TICKS_PER_METER);
+        unitAngle = new UnitModel(Constants.Drivetrain.TICKS_PER_RAD);
+        kinematics.getRobotHeading(forward, strafe, rotation, robotAngle, true, robotHeading);
+    }
+
+    @Benchmark
+    public double[] getRobotHeading() {
+        kinematics.getRobotHeading(forward, strafe, rotation, robotAngle, true, robotHeading);
+        return robotHeading;
+    }
+
+    @Benchmark
+    public double[] calculateWheelVelocities() {
+        kinematics.calculateWheelVelocities(robotHeading, wheelVelocities);
+        return wheelVelocities;
+    }
+
+    /**
+     * the whole kinematics stage of SwerveDrive.holonomicDrive, from the joystick to the module setpoints
+     */
+    @Benchmark
+    public void driveCycle(Blackhole blackhole) {
+        kinematics.getRobotHeading(forward, strafe, rotation, robotAngle, true, robotHeading);
+        kinematics.calculateWheelVelocities(robotHeading, wheelVelocities);
+        kinematics.toModuleStates(wheelVelocities, speeds, angles);
+        blackhole.consume(speeds);
+        blackhole.consume(angles);
+    }
+
+    @Benchmark
+    public double getTargetAngle() {
+        return SwerveModule.getTargetAngle(-1.5 * Math.PI, robotAngle);
+    }
+
+    @Benchmark
+    public void unitModel(Blackhole blackhole) {
+        blackhole.consume(unitDrive.toTicks100ms(forward));
+        blackhole.consume(unitDrive.toVelocity(1024));
+        blackhole.consume(unitAngle.toTicks(robotAngle));
+        blackhole.consume(unitAngle.toUnits(512));
+    }
+}
@@ -0,0 +1,46 @@
+package frc.robot.utilities;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the hot path of the telemetry recorder with a drivetrain sized record.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TelemetryRecorderBenchmark {
+    private Path path;
+    private TelemetryRecorder recorder;
+    private double[] values = new double[19];
+
+    @Setup
+    public void setup() throws IOException {
+        path = Files.createTempFile("telemetry", ".bin");
+        String[] names = new String[values.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "field " + i;
+            values[i] = i * 0.1;
+        }
+        recorder = new TelemetryRecorder(path, names, 15000, 1);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        recorder.close();
+        Files.delete(path);
+    }
+
+    @Benchmark
+    public void record() {
+        values[0] += 0.02;
+        recorder.record(values);
+    }
+}
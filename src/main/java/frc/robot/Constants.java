@@ -10,6 +10,61 @@ public class Constants {
     //public static final double TIME_STEP = 0.02;
 
     public static final int TALON_TIMEOUT = 10; // in ms
+    public static final int TALON_CONFIG_RETRIES = 3; // the number of times a parameter which failed to configure is applied again
+
+    public static class LoopTiming {
+        public static final double HISTOGRAM_BIN_WIDTH = 0.0001; // in seconds
+        public static final int HISTOGRAM_BINS = 400; // covers 0 - 40 ms
+        public static final int HISTORY_SIZE = 250; // the number of recent cycles which are kept
+        public static final int PUBLISH_PERIOD = 50; // in cycles
+    }
+
+    public static class LoopBudget {
+        public static final double LOAD_THRESHOLD = 0.016; // in seconds, 80% of the period of the main loop
+        public static final int LOAD_WINDOW = 25; // in cycles, the loop is under load for half a second after a long cycle
+        public static final int REDUCED_RATE = 5; // the factor of the period of normal priority tasks under load
+        // the time each task is expected to take, in seconds
+        public static final double TELEMETRY_BUDGET = 0.0005;
+        public static final double DASHBOARD_BUDGET = 0.002;
+        public static final double ORCHESTRA_BUDGET = 0.0005;
+    }
+
+    public static class Telemetry {
+        public static final String DRIVETRAIN_PATH = "/home/lvuser/telemetry/drivetrain.bin";
+        public static final int CAPACITY = 50 * 60 * 5; // in records, 5 minutes of 50 Hz cycles
+        public static final double FLUSH_PERIOD = 1; // in seconds
+        public static final int KEPT_RECORDINGS = 10; // the previous recordings which are rotated instead of overwritten on boot
+    }
+
+    public static class CanBus {
+        public static final double BIT_RATE = 1e6; // in bits per second
+        public static final int FRAME_BITS = 128; // an extended frame with 8 data bytes, with the average bit stuffing
+        public static final int CONTROL_PERIOD = 10; // in ms, the control frame Phoenix sends to every Talon
+        // the status frame periods in ms, in the modes [disabled, teleop, autonomous].
+        // the odometry holds the position of a frame over the steps until the next one, and detects slip by the velocities
+        public static final int[] FEEDBACK_PERIODS = {100, 10, 10}; // the sensor position and velocity, read by the control and the odometry
+        public static final int[] GENERAL_PERIODS = {100, 20, 20}; // the applied output and the faults, read by the telemetry
+        public static final int[] CURRENT_PERIODS = {255, 50, 50}; // the currents of the TalonFX, read by the telemetry
+        public static final int[] UNUSED_PERIODS = {255, 255, 255}; // the longest period, of the frames which aren't read
+    }
+
+    public static class DriverInput {
+        public static final int PORT = 1; // the port of the joystick on the driver station
+        public static final int X_AXIS = 0;
+        public static final int Y_AXIS = 1;
+        public static final int Z_AXIS = 2;
+        public static final int MAX_AXES = 12; // the maximal number of axes of a joystick in the HAL
+        // the response curves, as the exponent of the magnitude past the deadband. 1 keeps the linear response of the sticks
+        public static final double TRANSLATION_EXPONENT = 1;
+        public static final double ROTATION_EXPONENT = 1;
+        public static final int CURVE_SIZE = 257; // the number of entries in the lookup table of each curve
+    }
+
+    public static class DriveLoop {
+        public static final boolean ENABLED = false; // whether the control path of the drivetrain runs on its own thread
+        public static final double PERIOD = 0.005; // in seconds
+        public static final double REQUEST_TIMEOUT = 0.1; // in seconds, a request which isn't renewed stops the modules
+    }
 
     public static class Drivetrain {
         public static final double TICKS_PER_METER = 256 / (4 * 0.0254 * Math.PI);
@@ -17,7 +72,10 @@ public class Constants {
 
         public static final double MAX_VEL = 3;// in m/s
         public static final double TIME_STEP = 0.02; // in seconds
-        public static final double MAX_ACCELERATION = 0.4;// in m/s^2 (currently not the correct number)
+        // the drive model leaves (12 - KS - KV * MAX_VEL) / KA = 5 m/s^2 at full speed, this keeps some of it as headroom.
+        // check it against the characterized gains, since the model isn't measured yet
+        public static final double MAX_ACCELERATION = 4;// in m/s^2, of each wheel
+        public static final double MAX_STEERING_RATE = 8; // in rad/s, of each wheel
         public static final int MAX_CURRENT = 35; // in ampere
     }
 
@@ -25,6 +83,14 @@ public class Constants {
         public static final double ROBOT_LENGTH = 0.75; // in meters
         public static final double ROBOT_WIDTH = 0.75; // in meters
 
+        public static final double ODOMETRY_PERIOD = 0.005; // in seconds
+
+        public static final int NAVX_UPDATE_RATE = 200; // in Hz
+        public static final int GYRO_HISTORY_SIZE = 200; // in samples, one second at the update rate of the navX
+
+        // whether the kinematics use the bounded-error approximations of atan2, sin and cos in Utils
+        public static final boolean FAST_MATH = true;
+
         // the speed of the robot, this constant multiplies the speed outputs from the joysticks
         public static final double SPEED_MULTIPLIER = 0.7;
 
@@ -37,15 +103,101 @@ public class Constants {
         public static final int[] MECHANICAL_OFFSET = new int[]{-1720, -1690, -1141, 1}; //TODO: incorrect
     }
 
+    public static class PoseEstimation {
+        public static final int HISTORY_SIZE = 300; // in odometry steps, 1.5 seconds at the odometry period
+        public static final double ODOMETRY_STD = 0.05; // in meters after one meter traveled
+        public static final double HEADING_STD = 0.005; // in radians after one second, the drift of the gyro
+        public static final double VISION_STD_XY = 0.1; // in meters
+        public static final double VISION_STD_HEADING = 0.05; // in radians
+        public static final int VISION_PORT = 5800; // the UDP port of the vision measurements
+    }
+
+    public static class Traction {
+        public static final boolean ENABLED = true; // whether the drive output of a slipping wheel is limited
+        public static final double SLIP_MIN = 0.1; // in m/s, the slip below which a wheel grips at any speed
+        public static final double SLIP_RATIO = 0.1; // the slip threshold per m/s of the speed of the ground under the wheel
+        public static final double MIN_WEIGHT = 0.05; // the weight of a slipping wheel in the odometry
+        public static final double GRIP_RATIO = 0.25; // the slip a limited wheel is held to, relative to the threshold
+    }
+
     public static class SwerveModule {
         // TODO: set PIDF
         public static final double KP = 0;
         public static final double KI = 0;
         public static final double KD = 0;
         public static final double KF = 0;
+
+        public static final double NOMINAL_VOLTAGE = 12; // the voltage compensation of the motors, in volts
+
+        // the motion magic profile of the steering, per module, used instead of plain position control when enabled
+        public static final boolean ANGLE_MOTION_MAGIC = false;
+        public static final int[] ANGLE_CRUISE_VELOCITY = {120, 120, 120, 120}; // in ticks per 100ms
+        public static final int[] ANGLE_ACCELERATION = {1200, 1200, 1200, 1200}; // in ticks per 100ms per second
+        public static final double ANGLE_SETTLE_TOLERANCE = 0.03; // in radians, the wheel is settled within this error
+
+        // the velocity loop of the drive motors, in Talon units of 1023 per tick per 100ms of error
+        public static final boolean DRIVE_CLOSED_LOOP = true; // when false, the drive motors are driven by the feedforward alone
+        public static final double DRIVE_KP = 10;
+        public static final double DRIVE_KI = 0;
+        public static final double DRIVE_KD = 0;
+        public static final double DRIVE_KF = 0; // the feedforward is calculated on the roboRIO
+        // placeholders taken from the drive model of the simulation, the robot hasn't been characterized yet.
+        // the characterization command measures the real values
+        public static final double DRIVE_KS = Simulation.DRIVE_KS; // in volts
+        public static final double DRIVE_KV = Simulation.DRIVE_KV; // in volts per m/s
+        public static final double DRIVE_KA = Simulation.DRIVE_KA; // in volts per m/s^2
+
+        // setpoints which changed by less than the epsilon since the last one that was sent are not sent again
+        public static final double DRIVE_SETPOINT_EPSILON = 0.5; // in ticks per 100ms
+        public static final double DRIVE_FEEDFORWARD_EPSILON = 0.001; // in percent output
+        public static final double ANGLE_SETPOINT_EPSILON = 0.5; // in ticks
+        public static final double SETPOINT_REFRESH_PERIOD = 0.1; // in seconds
+    }
+
+
+
+    public static class Characterization {
+        public static final double PERIOD = 0.005; // in seconds, the rate of the samples
+        public static final int LOG_SIZE = 12000; // in samples, a minute at the period
+        public static final double REST_TIME = 1; // in seconds, between two runs so the mechanism comes to rest
+        public static final double QUASISTATIC_RAMP = 0.5; // in volts per second
+        public static final double DYNAMIC_VOLTAGE = 4; // in volts, the step of the dynamic runs
+        public static final double DYNAMIC_DURATION = 2; // in seconds
+        public static final double MAX_VOLTAGE = 7; // in volts, a quasistatic run ends at this voltage
+        public static final double DRIVE_DISTANCE = 3; // in meters, a run of the drive ends before the robot hits a wall
+        public static final double MIN_VELOCITY = 0.02; // in m/s or rad/s, slower samples are left out of the fit
+        public static final String DRIVE_LOG = "/home/lvuser/characterization/drive.csv";
+        public static final String STEER_LOG = "/home/lvuser/characterization/steer.csv";
+    }
+
+    public static class Autonomous {
+        public static final String TRAJECTORY_DIRECTORY = "trajectories"; // in the deploy directory
+        public static final double SAMPLE_PERIOD = 0.02; // in seconds
+        public static final double KP_TRANSLATION = 2; // in m/s per meter of error
+        public static final double KP_ROTATION = 2; // in rad/s per radian of error
     }
 
+    public static class Simulation {
+        public static final double STEP = 0.001; // in seconds
+
+        // the model of the drive mechanism, including its share of the mass of the robot
+        public static final double DRIVE_KS = 0.2; // in volts
+        public static final double DRIVE_KV = 2.6; // in volts per m/s
+        public static final double DRIVE_KA = 0.8; // in volts per m/s^2
+        public static final double DRIVE_RESISTANCE = 0.047; // in ohms, of a Falcon 500
+        public static final double WHEEL_INERTIA = 0.05; // the share of the inertia of the drive mechanism which isn't the robot
 
+        // the model of the steering mechanism
+        public static final double ANGLE_KS = 0.3; // in volts
+        public static final double ANGLE_KV = 1.1; // in volts per rad/s
+        public static final double ANGLE_KA = 0.03; // in volts per rad/s^2
+        public static final double ANGLE_RESISTANCE = 0.089; // in ohms, of a 775pro
+
+        // the gains of the simulated angle Talons, since the real gains aren't tuned yet
+        public static final double ANGLE_KP = 20;
+        public static final double ANGLE_KI = 0;
+        public static final double ANGLE_KD = 400;
+    }
 
     public static class ExampleSubsystem1 {
         //All of the Subsystem specific constants go here,and need to be static.
@@ -11,6 +11,11 @@ import com.ctre.phoenix.music.Orchestra;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.subsystems.drivetrain.CanBusManager;
+import frc.robot.subsystems.drivetrain.DrivetrainTelemetry;
+import frc.robot.subsystems.drivetrain.SwerveModule;
+import frc.robot.utilities.LoopBudget;
+import frc.robot.utilities.LoopTimeRecorder;
 
 /**
  * The VM is configured to automatically run this class, and to call the functions corresponding to
@@ -21,8 +26,20 @@ import edu.wpi.first.wpilibj2.command.CommandScheduler;
 public class Robot extends TimedRobot {
   private Command m_autonomousCommand;
   private RobotContainer m_robotContainer;
+  private DrivetrainTelemetry drivetrainTelemetry;
   Orchestra orchestra = new Orchestra();
 
+  // the cycle is timed from the start of the mode periodic method to the end of the scheduler in robotPeriodic,
+  // which is the load the loop budget sheds its tasks by
+  private final LoopTimeRecorder loopTime = new LoopTimeRecorder("Loop Time", kDefaultPeriod,
+          Constants.LoopTiming.HISTOGRAM_BIN_WIDTH, Constants.LoopTiming.HISTOGRAM_BINS, Constants.LoopTiming.HISTORY_SIZE);
+  // the tasks of the loop budget after the scheduler are timed on their own
+  private final LoopTimeRecorder budgetTime = new LoopTimeRecorder("Budget Time", kDefaultPeriod,
+          Constants.LoopTiming.HISTOGRAM_BIN_WIDTH, Constants.LoopTiming.HISTOGRAM_BINS, Constants.LoopTiming.HISTORY_SIZE);
+  // the work of the cycle after the scheduler, which is shed when the recent cycles ran over
+  private final LoopBudget loopBudget = new LoopBudget(Constants.LoopBudget.LOAD_THRESHOLD,
+          Constants.LoopBudget.LOAD_WINDOW, Constants.LoopBudget.REDUCED_RATE);
+
   /**
    * This function is run when the robot is first started up and should be used for any
    * initialization code.
@@ -32,10 +49,23 @@ public class Robot extends TimedRobot {
     // Instantiate our RobotContainer.  This will perform all our button bindings, and put our
     // autonomous chooser on the dashboard.
     m_robotContainer = new RobotContainer();
-    orchestra.loadMusic("outyput.chrp");
-    System.out.println();
-    orchestra.addInstrument(m_robotContainer.swerveDrive.swerveModules[0].driveMotor);
-    orchestra.play();
+    m_robotContainer.swerveDrive.startOdometry();
+    // the simulation is stepped on the main thread, so its motors are only driven from the main thread
+    if (Constants.DriveLoop.ENABLED && isReal()) {
+      m_robotContainer.swerveDrive.startDriveLoop(Constants.DriveLoop.PERIOD);
+    }
+    drivetrainTelemetry = new DrivetrainTelemetry(m_robotContainer.swerveDrive);
+    if (isReal()) {
+      orchestra.loadMusic("outyput.chrp");
+      System.out.println();
+      orchestra.addInstrument(m_robotContainer.swerveDrive.swerveModules[0].driveMotor);
+      orchestra.play();
+      loopBudget.register("Orchestra", LoopBudget.LOW, 1, Constants.LoopBudget.ORCHESTRA_BUDGET, this::playMusic);
+    }
+    loopBudget.register("Telemetry", LoopBudget.NORMAL, 1, Constants.LoopBudget.TELEMETRY_BUDGET,
+            () -> drivetrainTelemetry.record(loopTime.getLastDuration()));
+    loopBudget.register("Dashboard", LoopBudget.NORMAL, Constants.LoopTiming.PUBLISH_PERIOD,
+            Constants.LoopBudget.DASHBOARD_BUDGET, this::publish);
 
 //    m_robotContainer.swerveDrive.swerveModules[0].driveMotor;
   }
@@ -53,21 +83,52 @@ public class Robot extends TimedRobot {
     // commands, running already-scheduled commands, removing finished or interrupted commands,
     // and running subsystem periodic() methods.  This must be called from the robot's periodic
     // block in order for anything in the Command-based framework to work.
+    if (m_robotContainer.simulation != null) {
+      m_robotContainer.simulation.step(getPeriod());
+    }
     CommandScheduler.getInstance().run();
-    if (!orchestra.isPlaying()){
+
+    loopTime.stop();
+    budgetTime.start();
+    loopBudget.run(loopTime.getLastDuration());
+    budgetTime.stop();
+  }
+
+  private void playMusic() {
+    if (!orchestra.isPlaying()) {
       orchestra.play();
     }
   }
 
+  private void publish() {
+    loopTime.publish();
+    budgetTime.publish();
+    loopBudget.publish();
+    m_robotContainer.swerveDrive.getOdometry().getUpdateTime().publish();
+    m_robotContainer.driverInput.getInputAge().publish();
+    if (m_robotContainer.swerveDrive.getDriveLoop() != null) {
+      m_robotContainer.swerveDrive.getDriveLoop().publish();
+    }
+    m_robotContainer.swerveDrive.getCanBus().publish();
+    for (SwerveModule swerveModule : m_robotContainer.swerveDrive.swerveModules) {
+      swerveModule.publishSettleTime();
+    }
+  }
+
   /**
    * This function is called once each time the robot enters Disabled mode.
    */
   @Override
   public void disabledInit() {
+    m_robotContainer.swerveDrive.getCanBus().setMode(CanBusManager.DISABLED);
+    loopTime.dump(System.out);
+    budgetTime.dump(System.out);
+    loopBudget.dump(System.out);
   }
 
   @Override
   public void disabledPeriodic() {
+    loopTime.start();
   }
 
   /**
@@ -75,6 +136,7 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void autonomousInit() {
+    m_robotContainer.swerveDrive.getCanBus().setMode(CanBusManager.AUTONOMOUS);
     m_autonomousCommand = m_robotContainer.getAutonomousCommand();
 
     // schedule the autonomous command (example)
@@ -88,10 +150,12 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void autonomousPeriodic() {
+    loopTime.start();
   }
 
   @Override
   public void teleopInit() {
+    m_robotContainer.swerveDrive.getCanBus().setMode(CanBusManager.TELEOP);
     // This makes sure that the autonomous stops running when
     // teleop starts running. If you want the autonomous to
     // continue until interrupted by another command, remove
@@ -106,10 +170,13 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void teleopPeriodic() {
+    loopTime.start();
   }
 
   @Override
   public void testInit() {
+    // test mode runs the same commands as teleop, such as the characterization, which read the same signals
+    m_robotContainer.swerveDrive.getCanBus().setMode(CanBusManager.TELEOP);
     // Cancels all running commands at the start of test mode.
     CommandScheduler.getInstance().cancelAll();
   }
@@ -119,5 +186,6 @@ public class Robot extends TimedRobot {
    */
   @Override
   public void testPeriodic() {
+    loopTime.start();
   }
 }
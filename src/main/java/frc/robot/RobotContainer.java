@@ -7,14 +7,28 @@
 
 package frc.robot;
 
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.button.Button;
 import edu.wpi.first.wpilibj2.command.button.JoystickButton;
+import frc.robot.input.DriverInput;
 import frc.robot.subsystems.drivetrain.SwerveDrive;
+import frc.robot.subsystems.drivetrain.commands.Characterize;
+import frc.robot.subsystems.drivetrain.commands.FollowTrajectory;
 import frc.robot.subsystems.drivetrain.commands.HolonomicDrive;
+import frc.robot.subsystems.drivetrain.simulation.DrivetrainSimulation;
+import frc.robot.subsystems.drivetrain.trajectory.Trajectory;
+import frc.robot.subsystems.drivetrain.trajectory.TrajectoryCache;
+import frc.robot.utilities.CharacterizationLog;
+import frc.robot.vision.UdpVisionInput;
+
+import java.io.IOException;
+import java.nio.file.Paths;
 
 /**
  * This class is the glue that binds the controls on the physical operator
@@ -29,16 +43,44 @@ public class RobotContainer {
     Button y = new JoystickButton(xbox, 4);
     private JoystickButton a = new JoystickButton(xbox, XboxController.Button.kA.value);
 
-    public SwerveDrive swerveDrive = new SwerveDrive(true);
+    public SwerveDrive swerveDrive;
+    // the drive axes of the joystick of the OI, read once per cycle
+    public DriverInput driverInput = new DriverInput();
+    // the simulated drivetrain, null on the real robot
+    public DrivetrainSimulation simulation;
+    public TrajectoryCache trajectories;
 //    public HolonomicDrive holonomicDrive = new HolonomicDrive(swerveDrive);
 
     public RobotContainer(){
+        if (RobotBase.isReal()) {
+            swerveDrive = new SwerveDrive(true);
+        } else {
+            simulation = new DrivetrainSimulation();
+            swerveDrive = simulation.createSwerveDrive(true);
+        }
+        // the vision coprocessor, or the stand-in process of the simulation, sends its measurements over UDP
+        try {
+            swerveDrive.getOdometry().setVisionInput(new UdpVisionInput(Constants.PoseEstimation.VISION_PORT));
+        } catch (IOException e) {
+            DriverStation.reportError("Failed to open the vision input: " + e.getMessage(), false);
+        }
+
         configureButtonBindings();
 
-        //m_chooser.addOption("Example Auto 1", new DriveStraight());
-        //m_chooser.addOption("Example Auto 2", new ExampleCommand());
-        //m_chooser.setDefaultOption();
+        // every autonomous is built while the robot is disabled, so starting autonomous only selects a command
+        trajectories = new TrajectoryCache(Filesystem.getDeployDirectory().toPath().resolve(Constants.Autonomous.TRAJECTORY_DIRECTORY));
+        m_chooser.setDefaultOption("Holonomic drive", new HolonomicDrive(swerveDrive, driverInput));
+        for (Trajectory trajectory : trajectories.getTrajectories().values()) {
+            m_chooser.addOption(trajectory.getName(), new FollowTrajectory(swerveDrive, trajectory));
+        }
         Shuffleboard.getTab("Autonomous").add(m_chooser);
+
+        // the characterization routines share a single log, since only one of them runs at a time
+        CharacterizationLog characterizationLog = new CharacterizationLog(Constants.Characterization.LOG_SIZE, swerveDrive.swerveModules.length);
+        Shuffleboard.getTab("Characterization").add("Drive", new Characterize(swerveDrive, Characterize.DRIVE,
+                characterizationLog, Paths.get(Constants.Characterization.DRIVE_LOG)));
+        Shuffleboard.getTab("Characterization").add("Steer", new Characterize(swerveDrive, Characterize.STEER,
+                characterizationLog, Paths.get(Constants.Characterization.STEER_LOG)));
     }
 
 
@@ -46,7 +88,7 @@ public class RobotContainer {
     private void configureButtonBindings() {
         // Grab the hatch when the 'A' button is pressed.
 //        a.whenPressed(new HolonomicDrive(swerveDrive));
-        swerveDrive.setDefaultCommand(new HolonomicDrive(swerveDrive));
+        swerveDrive.setDefaultCommand(new HolonomicDrive(swerveDrive, driverInput));
         //new JoystickButton(m_driverController, Button.kB.value).whenPressed(new ExampleCommand());
     }
 
@@ -61,6 +103,6 @@ public class RobotContainer {
     }
 
     public Command getAutonomousCommand() {
-        return new HolonomicDrive(swerveDrive);
+        return m_chooser.getSelected();
     }
 }
\ No newline at end of file
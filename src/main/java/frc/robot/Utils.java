@@ -1,6 +1,16 @@
 package frc.robot;
 
 public class Utils {
+    // the largest error of fastAtan2 in radians
+    public static final double FAST_ATAN2_MAX_ERROR = 2e-6;
+    // the largest error of fastSin and fastCos for angles of up to FAST_SIN_COS_MAX_ANGLE radians
+    public static final double FAST_SIN_COS_MAX_ERROR = 1e-6;
+    public static final double FAST_SIN_COS_MAX_ANGLE = 1e4;
+
+    // pi / 2 split in two, so that the range reduction keeps the precision of the angle
+    private static final double HALF_PI_HIGH = 1.5707963109016418;
+    private static final double HALF_PI_LOW = 1.5893254773528196e-08;
+    private static final double TWO_OVER_PI = 2 / Math.PI;
 
     /**
      * recreates the results of Math.floorMod() for Double type variables.
@@ -25,12 +35,22 @@ public class Utils {
      */
     public static double[] cartesianToPolar(double x, double y) {
         double[] polar = new double[2];
-        polar[0] = Math.sqrt(Math.pow(x, 2) + Math.pow(y, 2));
-        polar[1] = Math.atan2(x, y);
+        cartesianToPolar(x, y, polar);
 
         return polar;
     }
 
+    /**
+     * converts cartesian coordinates to polar coordinates without allocating
+     * @param x the X cartesian coordinate
+     * @param y the Y cartesian coordinate
+     * @param polar a vector of length 2 which is filled with the polar coordinates [length, angle]
+     */
+    public static void cartesianToPolar(double x, double y, double[] polar) {
+        polar[0] = Math.sqrt(x * x + y * y);
+        polar[1] = Math.atan2(x, y);
+    }
+
     /**
      * calculates the matrix - vector multiplication
      * assuming that the number of columns in the matrix correspond to the number of rows in the vector
@@ -39,8 +59,21 @@ public class Utils {
      * @return a vector of length R with the corresponding matrix multiplication
      */
     public static double[] matrixVectorMult(double[][] m, double[] v) {
-        double sum;
         double[] out = new double[m.length];
+        matrixVectorMult(m, v, out);
+
+        return out;
+    }
+
+    /**
+     * calculates the matrix - vector multiplication into a preallocated output vector
+     * assuming that the number of columns in the matrix correspond to the number of rows in the vector
+     * @param m a matrix of size R * C
+     * @param v a vector of size C
+     * @param out a vector of length R which is filled with the corresponding matrix multiplication
+     */
+    public static void matrixVectorMult(double[][] m, double[] v, double[] out) {
+        double sum;
 
         for (int i = 0; i < m.length; i++) {
             sum = 0;
@@ -49,8 +82,131 @@ public class Utils {
             }
             out[i] = sum;
         }
+    }
 
-        return out;
+    /**
+     * converts a batch of cartesian vectors to polar coordinates, in struct of arrays form.
+     * the angle is measured from the Y axis like in {@link #cartesianToPolar(double, double, double[])}
+     * @param x the X cartesian coordinate of each vector
+     * @param y the Y cartesian coordinate of each vector
+     * @param magnitudes an array of the same length which is filled with the length of each vector
+     * @param angles an array of the same length which is filled with the angle of each vector
+     */
+    public static void cartesianToPolar(double[] x, double[] y, double[] magnitudes, double[] angles) {
+        for (int i = 0; i < x.length; i++) {
+            magnitudes[i] = Math.sqrt(x[i] * x[i] + y[i] * y[i]);
+        }
+        for (int i = 0; i < x.length; i++) {
+            angles[i] = Math.atan2(x[i], y[i]);
+        }
+    }
+
+    /**
+     * converts a batch of cartesian vectors to polar coordinates like {@link #cartesianToPolar(double[], double[], double[], double[])},
+     * with the angles calculated by {@link #fastAtan2(double, double)}
+     * @param x the X cartesian coordinate of each vector
+     * @param y the Y cartesian coordinate of each vector
+     * @param magnitudes an array of the same length which is filled with the length of each vector
+     * @param angles an array of the same length which is filled with the angle of each vector
+     */
+    public static void fastCartesianToPolar(double[] x, double[] y, double[] magnitudes, double[] angles) {
+        for (int i = 0; i < x.length; i++) {
+            magnitudes[i] = Math.sqrt(x[i] * x[i] + y[i] * y[i]);
+        }
+        for (int i = 0; i < x.length; i++) {
+            angles[i] = fastAtan2(x[i], y[i]);
+        }
+    }
+
+    /**
+     * approximates Math.atan2 with an error of at most {@value #FAST_ATAN2_MAX_ERROR} radians.
+     * unlike Math.atan2, the result for y = -0 and x &lt; 0 is pi rather than -pi.
+     * the arctangent of the smaller over the larger coordinate is an odd polynomial of degree 11 between 0 and 1
+     * @param y the Y coordinate
+     * @param x the X coordinate
+     * @return the angle of the vector from the X axis, between -pi and pi
+     */
+    public static double fastAtan2(double y, double x) {
+        double ax = Math.abs(x);
+        double ay = Math.abs(y);
+        double max = Math.max(ax, ay);
+        if (max == 0)
+            return 0;
+        double z = Math.min(ax, ay) / max;
+        double z2 = z * z;
+        double angle = z * (0.99997726 + z2 * (-0.33262347 + z2 * (0.19354346 + z2 * (-0.11643287
+                + z2 * (0.05265332 + z2 * -0.01172120)))));
+        if (ay > ax)
+            angle = Math.PI / 2 - angle;
+        if (x < 0)
+            angle = Math.PI - angle;
+        return y < 0 ? -angle : angle;
+    }
+
+    /**
+     * approximates the sine and cosine of a batch of angles, in struct of arrays form,
+     * with an error of at most {@value #FAST_SIN_COS_MAX_ERROR} for angles of up to {@value #FAST_SIN_COS_MAX_ANGLE} radians
+     * @param angles the angles in radians
+     * @param sin an array of the same length which is filled with the sine of each angle
+     * @param cos an array of the same length which is filled with the cosine of each angle
+     */
+    public static void fastSinCos(double[] angles, double[] sin, double[] cos) {
+        for (int i = 0; i < angles.length; i++) {
+            sin[i] = fastSin(angles[i]);
+            cos[i] = fastCos(angles[i]);
+        }
     }
 
+    /**
+     * approximates Math.sin with an error of at most {@value #FAST_SIN_COS_MAX_ERROR}
+     * for angles of up to {@value #FAST_SIN_COS_MAX_ANGLE} radians
+     * @param angle the angle in radians
+     * @return the sine of the angle
+     */
+    public static double fastSin(double angle) {
+        double quadrant = Math.rint(angle * TWO_OVER_PI);
+        double r = angle - quadrant * HALF_PI_HIGH - quadrant * HALF_PI_LOW;
+        switch ((int) ((long) quadrant & 3)) {
+            case 0:
+                return sinPolynomial(r);
+            case 1:
+                return cosPolynomial(r);
+            case 2:
+                return -sinPolynomial(r);
+            default:
+                return -cosPolynomial(r);
+        }
+    }
+
+    /**
+     * approximates Math.cos with an error of at most {@value #FAST_SIN_COS_MAX_ERROR}
+     * for angles of up to {@value #FAST_SIN_COS_MAX_ANGLE} radians
+     * @param angle the angle in radians
+     * @return the cosine of the angle
+     */
+    public static double fastCos(double angle) {
+        double quadrant = Math.rint(angle * TWO_OVER_PI);
+        double r = angle - quadrant * HALF_PI_HIGH - quadrant * HALF_PI_LOW;
+        switch ((int) ((long) quadrant & 3)) {
+            case 0:
+                return cosPolynomial(r);
+            case 1:
+                return -sinPolynomial(r);
+            case 2:
+                return -cosPolynomial(r);
+            default:
+                return sinPolynomial(r);
+        }
+    }
+
+    // the taylor series of sin and cos, which are accurate to 3.2e-7 between -pi/4 and pi/4
+    private static double sinPolynomial(double r) {
+        double r2 = r * r;
+        return r * (1 + r2 * (-1.0 / 6 + r2 * (1.0 / 120 + r2 * (-1.0 / 5040))));
+    }
+
+    private static double cosPolynomial(double r) {
+        double r2 = r * r;
+        return 1 + r2 * (-0.5 + r2 * (1.0 / 24 + r2 * (-1.0 / 720 + r2 * (1.0 / 40320))));
+    }
 }
@@ -0,0 +1,18 @@
+package frc.robot.input;
+
+/**
+ * A source of the axes of a controller, which reads all of them at once.
+ */
+public interface AxisSource {
+    /**
+     * reads every axis of the controller, without allocating
+     * @param axes an array which is filled with the values of the axes, between -1 and 1
+     * @return the number of axes the controller has
+     */
+    int read(float[] axes);
+
+    /**
+     * @return the time in seconds the newest axes were received at, in the time base of the FPGA
+     */
+    double getTimestamp();
+}
@@ -0,0 +1,140 @@
+package frc.robot.input;
+
+import frc.robot.Constants;
+import frc.robot.utilities.LoopTimeRecorder;
+
+/**
+ * The drive inputs of the driver, read once per cycle into a timestamped snapshot.
+ * <p>
+ * All of the axes are read at once from the axis source. The translation gets a radial deadband, so the direction of
+ * the stick is kept and a diagonal isn't cut to an axis, and the rotation gets a deadband of its own. Past the deadband,
+ * the magnitudes are rescaled to start from 0 and shaped by the response curves.
+ * <p>
+ * The snapshot is written by the thread which calls {@link #update()} and published through a sequence lock,
+ * so the fast drive loop can read it without blocking or allocating.
+ * The age of the input is the time from the arrival of the packet of the driver station until the first
+ * actuation with its axes.
+ */
+public class DriverInput {
+    public static final int FORWARD = 0;
+    public static final int STRAFE = 1;
+    public static final int ROTATION = 2;
+    public static final int SNAPSHOT_SIZE = 3;
+
+    private final AxisSource source;
+    private final int xAxis;
+    private final int yAxis;
+    private final int zAxis;
+    private final double deadband;
+    private final ResponseCurve translationCurve;
+    private final ResponseCurve rotationCurve;
+    private final float[] axes = new float[Constants.DriverInput.MAX_AXES];
+    private final LoopTimeRecorder inputAge;
+
+    // the published snapshot, guarded by the sequence, which is odd while the snapshot is being written
+    private volatile int sequence = 0;
+    private volatile double forward = 0;
+    private volatile double strafe = 0;
+    private volatile double rotation = 0;
+    private volatile double timestamp = 0;
+
+    // only touched by the thread which actuates
+    private double lastActuatedTimestamp = Double.NaN;
+
+    /**
+     * @param source the source of the axes
+     * @param xAxis the index of the strafe axis
+     * @param yAxis the index of the forward axis, which is negative forward like the joystick
+     * @param zAxis the index of the rotation axis
+     * @param deadband the magnitude below which an input is 0
+     * @param translationCurve the response curve of the magnitude of the translation
+     * @param rotationCurve the response curve of the rotation
+     */
+    public DriverInput(AxisSource source, int xAxis, int yAxis, int zAxis, double deadband,
+                       ResponseCurve translationCurve, ResponseCurve rotationCurve) {
+        this.source = source;
+        this.xAxis = xAxis;
+        this.yAxis = yAxis;
+        this.zAxis = zAxis;
+        this.deadband = deadband;
+        this.translationCurve = translationCurve;
+        this.rotationCurve = rotationCurve;
+        inputAge = new LoopTimeRecorder("Input Age", Constants.Drivetrain.TIME_STEP, Constants.LoopTiming.HISTOGRAM_BIN_WIDTH,
+                Constants.LoopTiming.HISTOGRAM_BINS, Constants.LoopTiming.HISTORY_SIZE);
+    }
+
+    /**
+     * creates the input of the joystick of the driver, with the constants of the robot
+     */
+    public DriverInput() {
+        this(new DriverStationAxisSource(Constants.DriverInput.PORT), Constants.DriverInput.X_AXIS,
+                Constants.DriverInput.Y_AXIS, Constants.DriverInput.Z_AXIS, Constants.SwerveDrive.JOYSTICK_THRESHOLD,
+                ResponseCurve.power(Constants.DriverInput.TRANSLATION_EXPONENT, Constants.DriverInput.CURVE_SIZE),
+                ResponseCurve.power(Constants.DriverInput.ROTATION_EXPONENT, Constants.DriverInput.CURVE_SIZE));
+    }
+
+    /**
+     * reads the axes and publishes a new snapshot, this should be called by a single thread
+     */
+    public void update() {
+        int count = source.read(axes);
+        double x = xAxis < count ? axes[xAxis] : 0;
+        double y = yAxis < count ? -axes[yAxis] : 0;
+        double z = zAxis < count ? axes[zAxis] : 0;
+
+        // the radial deadband rescales the magnitude past the deadband to start from 0, in the direction of the stick
+        double magnitude = Math.hypot(x, y);
+        double scale = 0;
+        if (magnitude > deadband)
+            scale = translationCurve.apply((magnitude - deadband) / (1 - deadband)) / magnitude;
+        double turn = Math.abs(z) > deadband ? rotationCurve.apply((z - Math.signum(z) * deadband) / (1 - deadband)) : 0;
+
+        sequence++;
+        forward = y * scale;
+        strafe = x * scale;
+        rotation = turn;
+        timestamp = source.getTimestamp();
+        sequence++;
+    }
+
+    /**
+     * reads the latest snapshot without blocking the thread which updates it
+     * @param snapshot an array of length {@value #SNAPSHOT_SIZE} which is filled with [forward, strafe, rotation],
+     *                 each between -1 and 1
+     * @return the time in seconds the axes were received at
+     */
+    public double getSnapshot(double[] snapshot) {
+        while (true) {
+            int start = sequence;
+            if ((start & 1) == 0) {
+                double time = timestamp;
+                snapshot[FORWARD] = forward;
+                snapshot[STRAFE] = strafe;
+                snapshot[ROTATION] = rotation;
+                if (sequence == start)
+                    return time;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * records the age of the input when a snapshot was sent to the actuators, once per packet
+     * @param snapshotTimestamp the time the axes of the snapshot were received at, in seconds
+     * @param actuationTimestamp the time of the actuation in seconds
+     */
+    public void recordActuation(double snapshotTimestamp, double actuationTimestamp) {
+        // no packet was received yet, or the timestamps aren't in the same time base
+        if (snapshotTimestamp == lastActuatedTimestamp || snapshotTimestamp <= 0 || actuationTimestamp < snapshotTimestamp)
+            return;
+        lastActuatedTimestamp = snapshotTimestamp;
+        inputAge.record((long) (snapshotTimestamp * 1e9), (long) (actuationTimestamp * 1e9));
+    }
+
+    /**
+     * @return the age of the inputs when they were actuated, whose jitter is the jitter of the packets
+     */
+    public LoopTimeRecorder getInputAge() {
+        return inputAge;
+    }
+}
@@ -0,0 +1,39 @@
+package frc.robot.input;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Reads the axes of a joystick from the HAL in a single call, instead of one call per axis like {@link edu.wpi.first.wpilibj.Joystick}.
+ * A daemon thread waits for the packets of the driver station and stamps the time each one arrived at.
+ */
+public class DriverStationAxisSource implements AxisSource {
+    private final byte port;
+    private volatile double timestamp = 0;
+
+    /**
+     * @param port the port of the joystick on the driver station
+     */
+    public DriverStationAxisSource(int port) {
+        this.port = (byte) port;
+        Thread packetTimer = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                DriverStation.getInstance().waitForData();
+                timestamp = Timer.getFPGATimestamp();
+            }
+        }, "Driver Station Packets");
+        packetTimer.setDaemon(true);
+        packetTimer.start();
+    }
+
+    @Override
+    public int read(float[] axes) {
+        return HAL.getJoystickAxes(port, axes);
+    }
+
+    @Override
+    public double getTimestamp() {
+        return timestamp;
+    }
+}
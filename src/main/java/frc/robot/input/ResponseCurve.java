@@ -0,0 +1,45 @@
+package frc.robot.input;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A response curve of a driver input, precomputed into a lookup table and read with linear interpolation.
+ * The curve maps the magnitude of an input between 0 and 1 to the magnitude of the output, and is odd,
+ * so negative inputs get the negated output of their magnitude.
+ */
+public class ResponseCurve {
+    private final double[] table;
+    private final int segments;
+
+    /**
+     * @param curve the curve, from the magnitude of the input to the magnitude of the output, both between 0 and 1
+     * @param size the number of entries in the lookup table
+     */
+    public ResponseCurve(DoubleUnaryOperator curve, int size) {
+        table = new double[size];
+        segments = size - 1;
+        for (int i = 0; i < size; i++) {
+            table[i] = curve.applyAsDouble((double) i / segments);
+        }
+    }
+
+    /**
+     * @param exponent the exponent of the curve, 1 is linear and higher exponents give finer control at low speeds
+     * @param size the number of entries in the lookup table
+     * @return a power curve
+     */
+    public static ResponseCurve power(double exponent, int size) {
+        return new ResponseCurve(value -> Math.pow(value, exponent), size);
+    }
+
+    /**
+     * @param value the input, between -1 and 1, clamped beyond them
+     * @return the output of the curve
+     */
+    public double apply(double value) {
+        double position = Math.min(Math.abs(value), 1) * segments;
+        int index = Math.min((int) position, segments - 1);
+        double output = table[index] + (table[index + 1] - table[index]) * (position - index);
+        return value < 0 ? -output : output;
+    }
+}
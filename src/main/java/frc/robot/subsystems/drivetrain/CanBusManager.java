@@ -0,0 +1,182 @@
+package frc.robot.subsystems.drivetrain;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+import edu.wpi.first.wpilibj.CANStatus;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Constants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Sets the status frame periods of the motor controllers of the drivetrain, by the signals the code actually reads.
+ * <p>
+ * Every device declares its status frames with a period for every robot mode, as data: the frames of the signals
+ * which are read every cycle are sent fast, and the frames which are never read are sent at the longest period.
+ * The profile of a mode is applied when the robot enters it, which also restores the periods of a controller
+ * which was reset by a brownout, since a reset returns the periods to their defaults.
+ * <p>
+ * The bus load is estimated from the frames of the profile and the control frames of every device,
+ * and is reported along with the load the roboRIO measures.
+ */
+public class CanBusManager {
+    public static final int DISABLED = 0;
+    public static final int TELEOP = 1;
+    public static final int AUTONOMOUS = 2;
+    public static final int MODES = 3;
+    private static final String[] MODE_NAMES = {"disabled", "teleop", "autonomous"};
+
+    /**
+     * sets the period of a status frame of a device, e.g. {@code talon::setStatusFramePeriod}
+     */
+    @FunctionalInterface
+    public interface FrameSetter {
+        ErrorCode set(StatusFrameEnhanced frame, int period, int timeout);
+    }
+
+    /**
+     * the status frames of a single device
+     */
+    public static class Device {
+        private final String name;
+        private final FrameSetter setter;
+        private final List<StatusFrameEnhanced> frames = new ArrayList<>();
+        private final List<int[]> periods = new ArrayList<>();
+
+        private Device(String name, FrameSetter setter) {
+            this.name = name;
+            this.setter = setter;
+        }
+
+        /**
+         * adds a status frame of the device
+         * @param frame the status frame
+         * @param periods the period of the frame in ms in every mode, by the constants of {@link CanBusManager}
+         * @return this device
+         */
+        public Device frame(StatusFrameEnhanced frame, int[] periods) {
+            frames.add(frame);
+            this.periods.add(periods);
+            return this;
+        }
+    }
+
+    private final Supplier<CANStatus> status;
+    private final List<Device> devices = new ArrayList<>();
+    private int mode = -1;
+    private long failures = 0;
+
+    public CanBusManager() {
+        this(RobotController::getCANStatus);
+    }
+
+    /**
+     * @param status reads the status of the CAN bus which the roboRIO measures
+     */
+    public CanBusManager(Supplier<CANStatus> status) {
+        this.status = status;
+    }
+
+    /**
+     * adds a device whose status frames are managed
+     * @param name the name of the device, used in the report
+     * @param setter sets the period of a status frame of the device
+     * @return the device, to which its frames are added
+     */
+    public Device addDevice(String name, FrameSetter setter) {
+        Device device = new Device(name, setter);
+        devices.add(device);
+        return device;
+    }
+
+    /**
+     * applies the status frame periods of a mode without waiting for the devices, so the mode change doesn't block
+     * @param mode the mode, by the constants of this class
+     */
+    public void setMode(int mode) {
+        setMode(mode, 0);
+    }
+
+    /**
+     * applies the status frame periods of a mode to every device
+     * @param mode the mode, by the constants of this class
+     * @param timeout the timeout of each call in ms, 0 doesn't wait for the device and doesn't detect failures
+     * @return whether every period was applied
+     */
+    public boolean setMode(int mode, int timeout) {
+        this.mode = mode;
+        boolean success = true;
+        for (Device device : devices) {
+            for (int i = 0; i < device.frames.size(); i++) {
+                ErrorCode error = device.setter.set(device.frames.get(i), device.periods.get(i)[mode], timeout);
+                if (error != null && error != ErrorCode.OK) {
+                    failures++;
+                    success = false;
+                    DriverStation.reportError(device.name + " failed to set the period of " + device.frames.get(i) + ": " + error, false);
+                }
+            }
+        }
+        return success;
+    }
+
+    /**
+     * @return the current mode, or -1 before any mode was applied
+     */
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the number of periods which failed to apply
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * estimates the load of the managed devices on the bus, from their status frames and their control frames
+     * @param mode the mode, by the constants of this class
+     * @return the estimated load, between 0 and 1
+     */
+    public double getEstimatedLoad(int mode) {
+        double framesPerSecond = 0;
+        for (Device device : devices) {
+            framesPerSecond += 1000.0 / Constants.CanBus.CONTROL_PERIOD;
+            for (int[] periods : device.periods) {
+                framesPerSecond += 1000.0 / periods[mode];
+            }
+        }
+        return framesPerSecond * Constants.CanBus.FRAME_BITS / Constants.CanBus.BIT_RATE;
+    }
+
+    /**
+     * @return the load of the whole bus which the roboRIO measures, between 0 and 1, or NaN if it isn't available
+     */
+    public double getMeasuredLoad() {
+        CANStatus canStatus = status.get();
+        return canStatus == null ? Double.NaN : canStatus.percentBusUtilization;
+    }
+
+    /**
+     * publishes the estimated load of the current mode and of every mode, and the measured load to the dashboard.
+     * this is meant to be called at a low rate, not every cycle.
+     */
+    public void publish() {
+        SmartDashboard.putNumber("CAN/estimated load", mode < 0 ? Double.NaN : getEstimatedLoad(mode));
+        for (int i = 0; i < MODES; i++) {
+            SmartDashboard.putNumber("CAN/estimated load " + MODE_NAMES[i], getEstimatedLoad(i));
+        }
+        CANStatus canStatus = status.get();
+        if (canStatus != null) {
+            SmartDashboard.putNumber("CAN/measured load", canStatus.percentBusUtilization);
+            // a full transmit buffer means frames were delayed
+            SmartDashboard.putNumber("CAN/tx full", canStatus.txFullCount);
+            SmartDashboard.putNumber("CAN/bus off", canStatus.busOffCount);
+        }
+        SmartDashboard.putNumber("CAN/frame period failures", failures);
+    }
+}
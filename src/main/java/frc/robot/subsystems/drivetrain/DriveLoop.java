@@ -0,0 +1,214 @@
+package frc.robot.subsystems.drivetrain;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Constants;
+import frc.robot.input.DriverInput;
+import frc.robot.utilities.LoopTimeRecorder;
+
+/**
+ * Runs the control path of the swerve drive, from the requested heading through the kinematics to the module setpoints,
+ * on its own thread at a higher rate than the main loop.
+ * <p>
+ * The commands on the scheduler thread keep calling the drive methods of {@link SwerveDrive}, which post the latest
+ * request here through a sequence lock instead of driving the modules. Every cycle of the loop reads the latest
+ * request, so the modules are only ever touched by the loop thread, and neither thread blocks or allocates.
+ * The loop also reads the sensors of the modules at the start of every cycle, in place of their periodic method.
+ * A driving request which wasn't renewed within the timeout stops the modules, so the robot doesn't keep driving
+ * when the scheduler stalls. Stopping and locking are latched, so they are kept until the next request.
+ * <p>
+ * A cycle misses its deadline when it ends after the next cycle was due, on the fixed schedule the loop started on.
+ */
+public class DriveLoop {
+    public static final int IDLE = 0;
+    public static final int HOLONOMIC = 1;
+    public static final int ROBOT_ORIENTED = 2;
+    public static final int STOP = 3;
+    public static final int LOCK = 4;
+    public static final int DRIVER_INPUT = 5;
+
+    private final SwerveDrive swerveDrive;
+    private final double period;
+    private final long periodNanos;
+    private final double requestTimeout;
+    private final Notifier notifier;
+    private final LoopTimeRecorder loopTime;
+
+    // the request, written by the scheduler thread and guarded by the sequence, which is odd while it is being written
+    private volatile int sequence = 0;
+    private volatile int requestMode = IDLE;
+    private volatile double requestForward = 0;
+    private volatile double requestStrafe = 0;
+    private volatile double requestRotation = 0;
+    private volatile double requestTimestamp = 0;
+    // the input the loop reads itself in the driver input mode, so its newest packet is actuated without waiting for the scheduler
+    private volatile DriverInput driverInput = null;
+
+    // only touched by the loop thread
+    private final double[] request = new double[3];
+    private long expectedStart = -1;
+    // volatile since they are published to the dashboard by the main thread
+    private volatile long missedDeadlines = 0;
+    private volatile long staleRequests = 0;
+    private boolean stale = false;
+
+    /**
+     * @param swerveDrive the drivetrain which is controlled
+     * @param period the period of the loop in seconds
+     * @param requestTimeout the time in seconds after which a request which wasn't renewed stops the modules
+     */
+    public DriveLoop(SwerveDrive swerveDrive, double period, double requestTimeout) {
+        this.swerveDrive = swerveDrive;
+        this.period = period;
+        this.periodNanos = (long) (period * 1e9);
+        this.requestTimeout = requestTimeout;
+        loopTime = new LoopTimeRecorder("Drive Loop", period, Constants.LoopTiming.HISTOGRAM_BIN_WIDTH / 10,
+                Constants.LoopTiming.HISTOGRAM_BINS, Constants.LoopTiming.HISTORY_SIZE);
+        notifier = new Notifier(this::run);
+    }
+
+    /**
+     * starts running the loop periodically on its own thread
+     */
+    public void start() {
+        expectedStart = -1;
+        swerveDrive.setModulesUpdatedByDriveLoop(true);
+        notifier.startPeriodic(period);
+    }
+
+    /**
+     * stops running the loop, the last request is kept and the modules are updated by their periodic method again
+     */
+    public void stop() {
+        notifier.stop();
+        swerveDrive.setModulesUpdatedByDriveLoop(false);
+    }
+
+    /**
+     * posts the latest request of the scheduler thread, which is applied by the next cycle of the loop
+     * @param mode the kind of the request, one of the constants of this class
+     * @param forward the forward input of the request
+     * @param strafe the strafe input of the request
+     * @param rotation the rotation input of the request
+     */
+    public void post(int mode, double forward, double strafe, double rotation) {
+        sequence++;
+        requestMode = mode;
+        requestForward = forward;
+        requestStrafe = strafe;
+        requestRotation = rotation;
+        requestTimestamp = Timer.getFPGATimestamp();
+        sequence++;
+    }
+
+    /**
+     * posts a request to drive with the driver input, which the loop reads and updates on its own thread every cycle
+     * @param driverInput the input of the driver
+     */
+    public void post(DriverInput driverInput) {
+        this.driverInput = driverInput;
+        post(DRIVER_INPUT, 0, 0, 0);
+    }
+
+    /**
+     * a single cycle of the loop, called by the loop thread
+     */
+    private void run() {
+        long start = System.nanoTime();
+        update(Timer.getFPGATimestamp());
+        record(start, System.nanoTime());
+    }
+
+    /**
+     * applies the latest request to the modules.
+     * this is called by the loop thread, and should only be called directly when the thread isn't running.
+     * @param timestamp the current time in seconds
+     */
+    public void update(double timestamp) {
+        int mode;
+        double postedAt;
+        while (true) {
+            int start = sequence;
+            if ((start & 1) == 0) {
+                mode = requestMode;
+                request[0] = requestForward;
+                request[1] = requestStrafe;
+                request[2] = requestRotation;
+                postedAt = requestTimestamp;
+                if (sequence == start)
+                    break;
+            }
+            Thread.onSpinWait();
+        }
+
+        swerveDrive.updateModules(timestamp);
+        if (isDriving(mode) && timestamp - postedAt > requestTimeout) {
+            if (!stale)
+                staleRequests++;
+            stale = true;
+            mode = STOP;
+        } else {
+            stale = false;
+        }
+        if (mode == DRIVER_INPUT) {
+            swerveDrive.driverDrive(driverInput, period);
+        } else {
+            swerveDrive.control(mode, request, period);
+        }
+    }
+
+    /**
+     * @param mode the kind of a request
+     * @return whether the request drives the robot, and so expires when it isn't renewed
+     */
+    private static boolean isDriving(int mode) {
+        return mode == HOLONOMIC || mode == ROBOT_ORIENTED || mode == DRIVER_INPUT;
+    }
+
+    /**
+     * records the timing of a cycle against the schedule of the loop
+     * @param start the start time of the cycle in nanoseconds
+     * @param end the end time of the cycle in nanoseconds
+     */
+    public void record(long start, long end) {
+        loopTime.record(start, end);
+        if (expectedStart < 0)
+            expectedStart = start;
+        // the notifier keeps its schedule, so a late cycle is followed by cycles which catch up on it
+        if (end > expectedStart + periodNanos)
+            missedDeadlines++;
+        expectedStart += periodNanos;
+    }
+
+    /**
+     * @return the number of cycles which ended after the next cycle was due
+     */
+    public long getMissedDeadlines() {
+        return missedDeadlines;
+    }
+
+    /**
+     * @return the number of times the modules were stopped because a driving request wasn't renewed
+     */
+    public long getStaleRequests() {
+        return staleRequests;
+    }
+
+    /**
+     * @return the timing of the cycles of the loop, including the jitter of their start times
+     */
+    public LoopTimeRecorder getLoopTime() {
+        return loopTime;
+    }
+
+    /**
+     * publishes the statistics of the loop to the dashboard.
+     * this is meant to be called at a low rate, not every cycle.
+     */
+    public void publish() {
+        loopTime.publish();
+        SmartDashboard.putNumber("Drive Loop/missed deadlines", missedDeadlines);
+        SmartDashboard.putNumber("Drive Loop/stale requests", staleRequests);
+    }
+}
@@ -0,0 +1,64 @@
+package frc.robot.subsystems.drivetrain;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants;
+import frc.robot.utilities.TelemetryRecorder;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Records the state of the drivetrain every cycle into a binary telemetry file for post-match analysis.
+ * Each record holds the timestamp, the loop time, the gyro angle, and the commanded and measured
+ * speed and angle of each module.
+ */
+public class DrivetrainTelemetry {
+    private static final String[] FIELD_NAMES = {
+            "timestamp", "loop time", "gyro angle",
+            "commanded speed 0", "commanded angle 0", "measured speed 0", "measured angle 0",
+            "commanded speed 1", "commanded angle 1", "measured speed 1", "measured angle 1",
+            "commanded speed 2", "commanded angle 2", "measured speed 2", "measured angle 2",
+            "commanded speed 3", "commanded angle 3", "measured speed 3", "measured angle 3"
+    };
+
+    private final SwerveDrive swerveDrive;
+    private final double[] values = new double[FIELD_NAMES.length];
+    // the sensors are read into snapshots of the main thread, since the snapshots of the modules may belong to the drive loop
+    private final ModuleSnapshot[] snapshots = new ModuleSnapshot[4];
+    private TelemetryRecorder recorder;
+
+    public DrivetrainTelemetry(SwerveDrive swerveDrive) {
+        this.swerveDrive = swerveDrive;
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = new ModuleSnapshot();
+        }
+        try {
+            recorder = new TelemetryRecorder(Paths.get(Constants.Telemetry.DRIVETRAIN_PATH), FIELD_NAMES,
+                    Constants.Telemetry.CAPACITY, Constants.Telemetry.FLUSH_PERIOD, Constants.Telemetry.KEPT_RECORDINGS);
+        } catch (IOException e) {
+            DriverStation.reportError("Drivetrain telemetry is disabled: " + e.getMessage(), false);
+        }
+    }
+
+    /**
+     * records the current state of the drivetrain
+     * @param loopTime the duration of the last cycle in seconds
+     */
+    public void record(double loopTime) {
+        if (recorder == null)
+            return;
+
+        values[0] = Timer.getFPGATimestamp();
+        values[1] = loopTime;
+        values[2] = swerveDrive.getGyroAngle();
+        for (int i = 0; i < 4; i++) {
+            swerveDrive.swerveModules[i].readSensors(snapshots[i], values[0]);
+            values[3 + 4 * i] = swerveDrive.getCommandedSpeed(i);
+            values[4 + 4 * i] = swerveDrive.getCommandedAngle(i);
+            values[5 + 4 * i] = snapshots[i].driveVelocity;
+            values[6 + 4 * i] = snapshots[i].angle;
+        }
+        recorder.record(values);
+    }
+}
@@ -0,0 +1,179 @@
+package frc.robot.subsystems.drivetrain;
+
+import com.kauailabs.navx.AHRSProtocol;
+import com.kauailabs.navx.frc.AHRS;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.interfaces.Gyro;
+import frc.robot.utilities.TimeSeriesBuffer;
+
+/**
+ * Samples the gyro at its native rate into a history of (timestamp, yaw, yaw rate),
+ * so that the drive uses the freshest heading and latency compensated consumers can look up past headings.
+ * <p>
+ * A navX pushes every update through its callback. Any other gyro, such as the simulated gyro, is sampled either by
+ * {@link #start(double)} on its own thread or by calling {@link #sample(double)} directly.
+ * The yaw is continuous like {@link Gyro#getAngle()}, in degrees, clockwise positive, and the timestamps are
+ * in the time base of {@link Timer#getFPGATimestamp()}. Nothing is allocated per sample or per lookup.
+ */
+public class GyroService implements Gyro {
+    public static final int YAW = 0;
+    public static final int RATE = 1;
+
+    private final Gyro source;
+    private final TimeSeriesBuffer history;
+    private Notifier notifier;
+
+    // owned by the thread which samples the gyro
+    private final double[] sample = new double[2];
+    private double lastRawYaw = Double.NaN;
+    private double lastSensorTime;
+    private double continuousYaw = 0;
+
+    // the newest sample, for the readers which only need the freshest heading
+    private volatile double latestYaw = 0;
+    private volatile double latestRate = 0;
+    // the yaw at the last reset, subtracted from every reading
+    private volatile double offset = 0;
+
+    /**
+     * receives every update of the navX through its callback
+     * @param ahrs the navX
+     * @param capacity the number of samples which are kept
+     */
+    public GyroService(AHRS ahrs, int capacity) {
+        this.source = ahrs;
+        this.history = new TimeSeriesBuffer(capacity, 2);
+        ahrs.registerCallback((systemTimestamp, sensorTimestamp, update, context) -> onUpdate(sensorTimestamp, update), null);
+    }
+
+    /**
+     * samples a gyro which doesn't push its updates
+     * @param gyro the gyro
+     * @param capacity the number of samples which are kept
+     */
+    public GyroService(Gyro gyro, int capacity) {
+        this.source = gyro;
+        this.history = new TimeSeriesBuffer(capacity, 2);
+    }
+
+    private void onUpdate(long sensorTimestamp, AHRSProtocol.AHRSUpdateBase update) {
+        double timestamp = Timer.getFPGATimestamp();
+        // the yaw of the navX wraps at +-180 degrees, the history keeps it continuous
+        double rawYaw = update.yaw;
+        double sensorTime = sensorTimestamp / 1000.0;
+        double rate = 0;
+        if (!Double.isNaN(lastRawYaw)) {
+            double change = rawYaw - lastRawYaw;
+            change -= 360 * Math.rint(change / 360);
+            continuousYaw += change;
+            if (sensorTime > lastSensorTime)
+                rate = change / (sensorTime - lastSensorTime);
+            else
+                rate = latestRate;
+        } else {
+            continuousYaw = rawYaw;
+        }
+        lastRawYaw = rawYaw;
+        lastSensorTime = sensorTime;
+        record(timestamp, continuousYaw, rate);
+    }
+
+    /**
+     * samples the gyro periodically on its own thread, for a gyro which doesn't push its updates
+     * @param period the sample period in seconds
+     */
+    public void start(double period) {
+        if (notifier == null)
+            notifier = new Notifier(() -> sample(Timer.getFPGATimestamp()));
+        notifier.startPeriodic(period);
+    }
+
+    /**
+     * stops sampling the gyro on its own thread
+     */
+    public void stop() {
+        if (notifier != null)
+            notifier.stop();
+    }
+
+    /**
+     * reads the gyro and adds the reading to the history.
+     * must only be called from one thread, and not while the gyro is sampled by {@link #start(double)} or the navX callback.
+     * @param timestamp the time of the reading in seconds
+     */
+    public void sample(double timestamp) {
+        record(timestamp, source.getAngle(), source.getRate());
+    }
+
+    private void record(double timestamp, double yaw, double rate) {
+        sample[YAW] = yaw;
+        sample[RATE] = rate;
+        history.add(timestamp, sample);
+        latestRate = rate;
+        latestYaw = yaw;
+    }
+
+    /**
+     * interpolates the gyro at a given time. times outside of the history are clamped to the oldest or newest sample.
+     * @param timestamp the time in seconds
+     * @param sample an array of length 2 which is filled with [yaw in degrees, yaw rate in degrees per second]
+     * @return whether there were any samples
+     */
+    public boolean getSample(double timestamp, double[] sample) {
+        if (!history.get(timestamp, sample))
+            return false;
+        sample[YAW] -= offset;
+        return true;
+    }
+
+    /**
+     * @return the time of the newest sample in seconds, or NaN if there are no samples
+     */
+    public double getLatestTimestamp() {
+        return history.getNewestTimestamp();
+    }
+
+    /**
+     * @return the history of the raw samples, before the offset of {@link #reset()}
+     */
+    public TimeSeriesBuffer getHistory() {
+        return history;
+    }
+
+    /**
+     * @return the yaw of the newest sample in degrees
+     */
+    @Override
+    public double getAngle() {
+        return latestYaw - offset;
+    }
+
+    /**
+     * @return the yaw rate of the newest sample in degrees per second
+     */
+    @Override
+    public double getRate() {
+        return latestRate;
+    }
+
+    /**
+     * zeroes the yaw at the newest sample. the gyro itself isn't reset, so the history stays continuous,
+     * and past samples are reported relative to the new zero as well.
+     */
+    @Override
+    public void reset() {
+        offset = latestYaw;
+    }
+
+    @Override
+    public void calibrate() {
+        source.calibrate();
+    }
+
+    @Override
+    public void close() throws Exception {
+        stop();
+        source.close();
+    }
+}
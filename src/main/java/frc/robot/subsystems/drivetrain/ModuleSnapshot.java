@@ -0,0 +1,39 @@
+package frc.robot.subsystems.drivetrain;
+
+/**
+ * The sensor readings of a single swerve module, taken once per cycle.
+ * The snapshot is preallocated by the module and overwritten in place, so every consumer in the same cycle
+ * (control, odometry and telemetry) sees the same values.
+ */
+public class ModuleSnapshot {
+    public double timestamp; // in seconds
+
+    public double drivePosition; // in meters
+    public double driveVelocity; // in m/s
+    public double driveOutput; // in percent output
+    public double driveCurrent; // in amperes
+
+    public double angle; // in radians
+    public double angleVelocity; // in rad/s
+    public double angleOutput; // in percent output
+    public double angleCurrent; // in amperes
+
+    public double readDuration; // the time it took to read all of the sensors, in seconds
+
+    /**
+     * copies all of the readings of another snapshot into this one
+     * @param other the snapshot to copy
+     */
+    public void copyFrom(ModuleSnapshot other) {
+        timestamp = other.timestamp;
+        drivePosition = other.drivePosition;
+        driveVelocity = other.driveVelocity;
+        driveOutput = other.driveOutput;
+        driveCurrent = other.driveCurrent;
+        angle = other.angle;
+        angleVelocity = other.angleVelocity;
+        angleOutput = other.angleOutput;
+        angleCurrent = other.angleCurrent;
+        readDuration = other.readDuration;
+    }
+}
@@ -0,0 +1,241 @@
+package frc.robot.subsystems.drivetrain;
+
+/**
+ * Fuses the wheel and gyro odometry with delayed absolute measurements of the pose, such as vision.
+ * <p>
+ * Every odometry step is kept in a ring buffer of primitive arrays: the displacement of the robot in its own
+ * coordinate system, the gyro heading, the estimated pose and its variance. A measurement is attached to the step
+ * at its timestamp, where a Kalman update with a diagonal covariance corrects the pose, and the later steps are
+ * replayed forward from the corrected pose, including the measurements which were attached to them.
+ * The replay cost of each measurement is bounded by the capacity, and measurements older than the history are rejected.
+ * <p>
+ * The pose is in the coordinate system of {@link SwerveOdometry}. Nothing is allocated after construction,
+ * and the estimator should only be used by one thread.
+ */
+public class PoseEstimator {
+    private final int capacity;
+    private final double odometryVariance; // per meter traveled
+    private final double headingVariance; // per second
+    private final double measurementVarianceXY;
+    private final double measurementVarianceHeading;
+
+    // the history of the odometry steps
+    private final double[] timestamps;
+    private final double[] forward;
+    private final double[] strafe;
+    private final double[] meanGyroHeading;
+    private final double[] gyroHeading;
+    private final double[] x;
+    private final double[] y;
+    private final double[] headingOffset;
+    private final double[] varianceX;
+    private final double[] varianceY;
+    private final double[] varianceHeading;
+    // the measurement attached to each step, if any
+    private final boolean[] hasMeasurement;
+    private final double[] measuredX;
+    private final double[] measuredY;
+    private final double[] measuredHeading;
+
+    private long count = 0; // the number of steps which were ever added
+    private long appliedMeasurements = 0;
+    private long rejectedMeasurements = 0;
+
+    /**
+     * @param capacity the number of odometry steps which are kept, which bounds the age of a measurement
+     * @param odometryStd the standard deviation of the odometry after one meter traveled, in meters
+     * @param headingStd the standard deviation of the gyro drift after one second, in radians
+     * @param measurementStdXY the standard deviation of a measured position, in meters
+     * @param measurementStdHeading the standard deviation of a measured heading, in radians
+     */
+    public PoseEstimator(int capacity, double odometryStd, double headingStd, double measurementStdXY, double measurementStdHeading) {
+        this.capacity = capacity;
+        this.odometryVariance = odometryStd * odometryStd;
+        this.headingVariance = headingStd * headingStd;
+        this.measurementVarianceXY = measurementStdXY * measurementStdXY;
+        this.measurementVarianceHeading = measurementStdHeading * measurementStdHeading;
+
+        timestamps = new double[capacity];
+        forward = new double[capacity];
+        strafe = new double[capacity];
+        meanGyroHeading = new double[capacity];
+        gyroHeading = new double[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        headingOffset = new double[capacity];
+        varianceX = new double[capacity];
+        varianceY = new double[capacity];
+        varianceHeading = new double[capacity];
+        hasMeasurement = new boolean[capacity];
+        measuredX = new double[capacity];
+        measuredY = new double[capacity];
+        measuredHeading = new double[capacity];
+    }
+
+    private int slot(long index) {
+        return (int) (index % capacity);
+    }
+
+    /**
+     * clears the history and starts from a known pose
+     * @param timestamp the time of the pose in seconds
+     * @param x the x position in meters
+     * @param y the y position in meters
+     * @param heading the heading in radians
+     * @param gyroHeading the heading of the gyro at the same time, in radians
+     */
+    public void reset(double timestamp, double x, double y, double heading, double gyroHeading) {
+        count = 0;
+        int s = slot(count);
+        timestamps[s] = timestamp;
+        forward[s] = strafe[s] = 0;
+        meanGyroHeading[s] = this.gyroHeading[s] = gyroHeading;
+        this.x[s] = x;
+        this.y[s] = y;
+        headingOffset[s] = heading - gyroHeading;
+        varianceX[s] = varianceY[s] = varianceHeading[s] = 0;
+        hasMeasurement[s] = false;
+        count = 1;
+    }
+
+    /**
+     * adds an odometry step and integrates the pose
+     * @param timestamp the time at the end of the step in seconds
+     * @param forward the displacement of the robot in the forward direction over the step, in meters
+     * @param strafe the displacement of the robot in the strafe direction over the step, in meters
+     * @param meanGyroHeading the mean heading of the gyro over the step, in radians
+     * @param gyroHeading the heading of the gyro at the end of the step, in radians
+     */
+    public void addOdometry(double timestamp, double forward, double strafe, double meanGyroHeading, double gyroHeading) {
+        if (count == 0)
+            reset(timestamp, 0, 0, gyroHeading, gyroHeading);
+        int s = slot(count);
+        timestamps[s] = timestamp;
+        this.forward[s] = forward;
+        this.strafe[s] = strafe;
+        this.meanGyroHeading[s] = meanGyroHeading;
+        this.gyroHeading[s] = gyroHeading;
+        hasMeasurement[s] = false;
+        count++;
+        advance(count - 1);
+    }
+
+    /**
+     * integrates a step from the state of the step before it, and applies its measurement
+     */
+    private void advance(long index) {
+        int s = slot(index);
+        int previous = slot(index - 1);
+
+        headingOffset[s] = headingOffset[previous];
+        // rotates the displacement to the field coordinate system, like SwerveOdometry
+        double heading = meanGyroHeading[s] + headingOffset[s];
+        double cos = Math.cos(heading);
+        double sin = Math.sin(heading);
+        x[s] = x[previous] + sin * forward[s] + cos * strafe[s];
+        y[s] = y[previous] + cos * forward[s] - sin * strafe[s];
+
+        double distance = Math.hypot(forward[s], strafe[s]);
+        // the error of the odometry is a random walk over the distance traveled
+        varianceX[s] = varianceX[previous] + odometryVariance * distance;
+        varianceY[s] = varianceY[previous] + odometryVariance * distance;
+        varianceHeading[s] = varianceHeading[previous] + headingVariance * (timestamps[s] - timestamps[previous]);
+
+        if (hasMeasurement[s])
+            correct(s);
+    }
+
+    /**
+     * the Kalman update of a step with its measurement
+     */
+    private void correct(int s) {
+        double gainX = varianceX[s] / (varianceX[s] + measurementVarianceXY);
+        double gainY = varianceY[s] / (varianceY[s] + measurementVarianceXY);
+        double gainHeading = varianceHeading[s] / (varianceHeading[s] + measurementVarianceHeading);
+
+        x[s] += gainX * (measuredX[s] - x[s]);
+        y[s] += gainY * (measuredY[s] - y[s]);
+        double heading = gyroHeading[s] + headingOffset[s];
+        headingOffset[s] += gainHeading * Math.IEEEremainder(measuredHeading[s] - heading, 2 * Math.PI);
+
+        varianceX[s] *= 1 - gainX;
+        varianceY[s] *= 1 - gainY;
+        varianceHeading[s] *= 1 - gainHeading;
+    }
+
+    /**
+     * fuses a measurement of the pose, rewinding to its timestamp and replaying the odometry since then
+     * @param timestamp the time the measurement was taken in seconds, in the time base of the odometry
+     * @param x the measured x position in meters
+     * @param y the measured y position in meters
+     * @param heading the measured heading in radians
+     * @return whether the measurement was applied, false if it is older than the history
+     */
+    public boolean addMeasurement(double timestamp, double x, double y, double heading) {
+        long oldest = Math.max(0, count - capacity);
+        // the step must have a step before it to be replayed from
+        if (count < 2 || timestamp < timestamps[slot(oldest + 1)]) {
+            rejectedMeasurements++;
+            return false;
+        }
+
+        // the last step which isn't after the measurement
+        long low = oldest + 1, high = count - 1;
+        while (low < high) {
+            long middle = (low + high + 1) >>> 1;
+            if (timestamps[slot(middle)] <= timestamp)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+        int s = slot(low);
+        hasMeasurement[s] = true;
+        measuredX[s] = x;
+        measuredY[s] = y;
+        measuredHeading[s] = heading;
+
+        for (long i = low; i < count; i++) {
+            advance(i);
+        }
+        appliedMeasurements++;
+        return true;
+    }
+
+    /**
+     * @param pose an array of length 3 which is filled with the newest estimated pose [x, y, heading]
+     * @return the time of the pose in seconds, or NaN if there were no steps
+     */
+    public double getPose(double[] pose) {
+        if (count == 0)
+            return Double.NaN;
+        int s = slot(count - 1);
+        pose[0] = x[s];
+        pose[1] = y[s];
+        pose[2] = gyroHeading[s] + headingOffset[s];
+        return timestamps[s];
+    }
+
+    /**
+     * @param variance an array of length 3 which is filled with the variance of the newest pose
+     */
+    public void getVariance(double[] variance) {
+        int s = slot(Math.max(0, count - 1));
+        variance[0] = varianceX[s];
+        variance[1] = varianceY[s];
+        variance[2] = varianceHeading[s];
+    }
+
+    /**
+     * @return the number of measurements which were fused
+     */
+    public long getAppliedMeasurements() {
+        return appliedMeasurements;
+    }
+
+    /**
+     * @return the number of measurements which were too old to be fused
+     */
+    public long getRejectedMeasurements() {
+        return rejectedMeasurements;
+    }
+}
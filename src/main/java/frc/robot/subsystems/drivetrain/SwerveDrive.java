@@ -4,28 +4,167 @@ import com.ctre.phoenix.motorcontrol.can.TalonFX;
 import com.ctre.phoenix.motorcontrol.can.TalonSRX;
 import com.kauailabs.navx.frc.AHRS;
 import edu.wpi.first.wpilibj.SPI;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
-import frc.robot.Ports;
-import frc.robot.Utils;
+import frc.robot.input.DriverInput;
+import frc.robot.utilities.TalonConfiguration;
+import frc.robot.utilities.TalonConfigurator;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static frc.robot.Ports.SwerveDrive.*;
 
 public class SwerveDrive extends SubsystemBase {
 
-    private AHRS gyro = new AHRS(SPI.Port.kMXP);
-    public SwerveModule[] swerveModules = new SwerveModule[4];
+    private final GyroService gyro;
+    public final SwerveModule[] swerveModules;
     private boolean isFieldOriented;
 
+    private final SwerveKinematics kinematics = new SwerveKinematics(Constants.SwerveDrive.ROBOT_WIDTH, Constants.SwerveDrive.ROBOT_LENGTH);
+    // limits the requested heading to what the modules can reach within one cycle
+    private final SwerveSetpointGenerator setpointGenerator = new SwerveSetpointGenerator(kinematics,
+            Constants.Drivetrain.MAX_VEL, Constants.Drivetrain.MAX_ACCELERATION, Constants.Drivetrain.MAX_STEERING_RATE);
+
+    // preallocated buffers of the drive cycle
+    private final double[] robotHeading = new double[3];
+    private final double[] speeds = new double[kinematics.getModuleCount()];
+    private final double[] angles = new double[kinematics.getModuleCount()];
+    private final double[] lockAngles = calculateLockAngles();
+    private final double[] driverSnapshot = new double[DriverInput.SNAPSHOT_SIZE];
+    private final double[] measuredSpeeds = new double[kinematics.getModuleCount()];
+    private final double[] measuredAngles = new double[kinematics.getModuleCount()];
+
+    // detects the spinning wheels on the thread which drives the modules
+    private final TractionControl traction = new TractionControl(kinematics);
+    private volatile boolean tractionControl = Constants.Traction.ENABLED;
+
+    private final SwerveOdometry odometry;
+    // the status frames of the Talons, empty when the modules don't run on Talons
+    private final CanBusManager canBus = new CanBusManager();
+    // runs the control path on its own thread when started, otherwise the modules are driven by the scheduler thread
+    private volatile DriveLoop driveLoop = null;
+
     public SwerveDrive(boolean isFieldOriented) {
-        gyro.reset();
+        this(isFieldOriented, new GyroService(new AHRS(SPI.Port.kMXP, (byte) Constants.SwerveDrive.NAVX_UPDATE_RATE),
+                Constants.SwerveDrive.GYRO_HISTORY_SIZE), new SwerveModule[]{
+                new SwerveModule(0, new TalonFX(DRIVE_MOTOR_1), new TalonSRX(ANGLE_MOTOR_1), FRONT_RIGHT_INVERTED),
+                new SwerveModule(1, new TalonFX(DRIVE_MOTOR_2), new TalonSRX(ANGLE_MOTOR_2), FRONT_LEFT_INVERTED),
+                new SwerveModule(2, new TalonFX(DRIVE_MOTOR_3), new TalonSRX(ANGLE_MOTOR_3), BACK_RIGHT_INVERTED),
+                new SwerveModule(3, new TalonFX(DRIVE_MOTOR_4), new TalonSRX(ANGLE_MOTOR_4), BACK_LEFT_INVERTED)
+        });
+
+        // configures all of the motors concurrently
+        List<TalonConfiguration<?>> configurations = new ArrayList<>();
+        for (SwerveModule swerveModule : swerveModules) {
+            configurations.addAll(swerveModule.getConfigurations());
+        }
+        TalonConfigurator.configure(configurations, Constants.TALON_TIMEOUT, Constants.TALON_CONFIG_RETRIES);
 
-        swerveModules[0] = new SwerveModule(0, new TalonFX(DRIVE_MOTOR_1), new TalonSRX(ANGLE_MOTOR_1), FRONT_RIGHT_INVERTED);
-        swerveModules[1] = new SwerveModule(1, new TalonFX(DRIVE_MOTOR_2), new TalonSRX(ANGLE_MOTOR_2), FRONT_LEFT_INVERTED);
-        swerveModules[2] = new SwerveModule(2, new TalonFX(DRIVE_MOTOR_3), new TalonSRX(ANGLE_MOTOR_3), BACK_RIGHT_INVERTED);
-        swerveModules[3] = new SwerveModule(3, new TalonFX(DRIVE_MOTOR_4), new TalonSRX(ANGLE_MOTOR_4), BACK_LEFT_INVERTED);
+        // the robot boots disabled, this is the only time the periods are applied with a timeout, to report failures
+        for (SwerveModule swerveModule : swerveModules) {
+            swerveModule.addStatusFrames(canBus);
+        }
+        canBus.setMode(CanBusManager.DISABLED, Constants.TALON_TIMEOUT);
+    }
 
+    /**
+     * creates the drivetrain on the given gyro and modules, such as those of the drivetrain simulation
+     * @param isFieldOriented whether the drive is field oriented
+     * @param gyro the gyro service of the robot
+     * @param swerveModules the four modules, in the order front right, front left, back right, back left
+     */
+    public SwerveDrive(boolean isFieldOriented, GyroService gyro, SwerveModule[] swerveModules) {
+        this.gyro = gyro;
+        this.swerveModules = swerveModules;
         this.isFieldOriented = isFieldOriented;
+        gyro.reset();
+
+        odometry = new SwerveOdometry(swerveModules, gyro, Constants.SwerveDrive.ODOMETRY_PERIOD);
+        resetSetpoint();
+    }
+
+    /**
+     * starts integrating the odometry on its own thread
+     */
+    public void startOdometry() {
+        odometry.start();
+    }
+
+    /**
+     * moves the control path of the drivetrain to its own thread, which runs faster than the main loop.
+     * the drive methods keep their API, and post their requests to the loop instead of driving the modules
+     * @param period the period of the loop in seconds
+     */
+    public void startDriveLoop(double period) {
+        enableDriveLoop(period).start();
+    }
+
+    /**
+     * posts the requests of the drive methods to the drive loop without starting its thread,
+     * so that its cycles can be run directly, such as in the simulation
+     * @param period the period of the loop in seconds
+     * @return the drive loop
+     */
+    public DriveLoop enableDriveLoop(double period) {
+        if (driveLoop == null) {
+            // the modules are read on the loop thread from now on, along with the rest of the control path
+            setModulesUpdatedByDriveLoop(true);
+            driveLoop = new DriveLoop(this, period, Constants.DriveLoop.REQUEST_TIMEOUT);
+        }
+        return driveLoop;
+    }
+
+    /**
+     * hands the update of the modules between the drive loop and their periodic method, so the state of each module
+     * is only ever touched by a single thread
+     * @param updatedByDriveLoop whether the drive loop updates the modules
+     */
+    void setModulesUpdatedByDriveLoop(boolean updatedByDriveLoop) {
+        for (SwerveModule swerveModule : swerveModules) {
+            swerveModule.setUpdatedByDriveLoop(updatedByDriveLoop);
+        }
+    }
+
+    /**
+     * reads the sensors of every module into its snapshot, on the loop thread
+     * @param timestamp the time of the reading in seconds
+     */
+    void updateModules(double timestamp) {
+        for (SwerveModule swerveModule : swerveModules) {
+            swerveModule.update(timestamp);
+        }
+    }
+
+    /**
+     * @return the loop which runs the control path, or null if it was never started
+     */
+    public DriveLoop getDriveLoop() {
+        return driveLoop;
+    }
+
+    /**
+     * @return the manager of the status frames of the Talons
+     */
+    public CanBusManager getCanBus() {
+        return canBus;
+    }
+
+    /**
+     * @return the odometry of the drivetrain
+     */
+    public SwerveOdometry getOdometry() {
+        return odometry;
+    }
+
+    /**
+     * reads the latest pose of the robot from the odometry
+     * @param pose an array of length 3 which is filled with the pose [x, y, heading]
+     * @return the time of the pose in seconds
+     */
+    public double getPose(double[] pose) {
+        return odometry.getPose(pose);
     }
 
 
@@ -36,27 +175,187 @@ public class SwerveDrive extends SubsystemBase {
      * @param rotation the rotation Z of the joystick
      */
     public void holonomicDrive(double forward, double strafe, double rotation) {
+        if (driveLoop != null) {
+            driveLoop.post(DriveLoop.HOLONOMIC, forward, strafe, rotation);
+            return;
+        }
+        getRobotHeading(forward, strafe, rotation, Math.toRadians(gyro.getAngle()), robotHeading);
+        driveModules(Constants.Drivetrain.TIME_STEP);
+    }
+
+    /**
+     * reads the driver input and drives with it like {@link #holonomicDrive(double, double, double)}.
+     * when the drive loop runs, the loop reads the input itself every cycle
+     * @param driverInput the input of the driver
+     */
+    public void holonomicDrive(DriverInput driverInput) {
+        if (driveLoop != null) {
+            driveLoop.post(driverInput);
+            return;
+        }
+        driverDrive(driverInput, Constants.Drivetrain.TIME_STEP);
+    }
+
+    /**
+     * updates the driver input and actuates its snapshot, on the thread which drives the modules
+     * @param driverInput the input of the driver
+     * @param dt the time step in seconds
+     */
+    void driverDrive(DriverInput driverInput, double dt) {
+        driverInput.update();
+        double snapshotTimestamp = driverInput.getSnapshot(driverSnapshot);
+        getRobotHeading(driverSnapshot[DriverInput.FORWARD], driverSnapshot[DriverInput.STRAFE],
+                driverSnapshot[DriverInput.ROTATION], Math.toRadians(gyro.getAngle()), robotHeading);
+        driveModules(dt);
+        driverInput.recordActuation(snapshotTimestamp, Timer.getFPGATimestamp());
+    }
+
+    /**
+     * drives the robot at the given velocities in its own coordinate system, without the joystick multipliers
+     * @param forward the velocity in the forward direction in m/s
+     * @param strafe the velocity in the strafe direction in m/s
+     * @param rotation the angular velocity in rad/s, clockwise positive
+     */
+    public void robotOrientedDrive(double forward, double strafe, double rotation) {
+        if (driveLoop != null) {
+            driveLoop.post(DriveLoop.ROBOT_ORIENTED, forward, strafe, rotation);
+            return;
+        }
+        robotHeading[0] = forward;
+        robotHeading[1] = strafe;
+        robotHeading[2] = rotation;
+        driveModules(Constants.Drivetrain.TIME_STEP);
+    }
+
+    /**
+     * applies a request of the drive loop to the modules, on the loop thread
+     * @param mode the kind of the request, one of the constants of {@link DriveLoop}
+     * @param request the inputs of the request [forward, strafe, rotation]
+     * @param dt the period of the loop in seconds
+     */
+    void control(int mode, double[] request, double dt) {
+        switch (mode) {
+            case DriveLoop.HOLONOMIC:
+                // the gyro is read on the loop thread, so the field oriented rotation is as fresh as the actuation
+                getRobotHeading(request[0], request[1], request[2], Math.toRadians(gyro.getAngle()), robotHeading);
+                driveModules(dt);
+                break;
+            case DriveLoop.ROBOT_ORIENTED:
+                robotHeading[0] = request[0];
+                robotHeading[1] = request[1];
+                robotHeading[2] = request[2];
+                driveModules(dt);
+                break;
+            case DriveLoop.STOP:
+                stopModules();
+                break;
+            case DriveLoop.LOCK:
+                lockModules();
+                break;
+        }
+    }
 
-        double[] robotHeading = getRobotHeading(forward, strafe, rotation, Math.toRadians(gyro.getAngle()));
+    private void driveModules(double dt) {
+        setpointGenerator.generate(robotHeading, dt, speeds, angles);
 
-        double[] velocities = calculateWheelVelocities(robotHeading);
-        double[] polar;
-        double[][] controls = new double[4][2];
+        // the slip is measured from the sensors of this cycle, and the gyro rate in degrees per second, clockwise positive
+        for (int k = 0; k < swerveModules.length; k++) {
+            measuredSpeeds[k] = swerveModules[k].getSpeed();
+            measuredAngles[k] = swerveModules[k].getAngle();
+        }
+        traction.update(measuredSpeeds, measuredAngles, Math.toRadians(gyro.getRate()));
+        boolean tractionControl = this.tractionControl;
+
+        // feeds the corresponding control to each wheel, limited to the ground under it once it slipped
+        for (int k = 0; k < swerveModules.length; k++) {
+            double speed = tractionControl ? traction.limitSpeed(k, speeds[k], angles[k]) : speeds[k];
+            swerveModules[k].setAccelerationFeedforward(tractionControl ? traction.getAccelerationShare(k) : 1);
+            swerveModules[k].setState(speed, angles[k], dt);
+        }
+    }
 
-        // converts the cartesian velocities to polar and transfers them to a control matrix
-        for (int i = 0; i < 4; i ++) {
-            polar = Utils.cartesianToPolar(velocities[2*i], velocities[2*i + 1]);
-            controls[i][0] = polar[0];
-            controls[i][1] = polar[1];
+    /**
+     * resets the setpoint generator to a robot at rest with the wheels at their current angles.
+     * this is called whenever the modules are commanded without the generator
+     */
+    private void resetSetpoint() {
+        for (int i = 0; i < swerveModules.length; i++) {
+            angles[i] = swerveModules[i].getAngle();
+            speeds[i] = 0;
         }
+        setpointGenerator.reset(angles);
+        traction.reset();
+    }
+
+    /**
+     * selects whether the commanded speed of a slipping wheel is limited until it grips again.
+     * the slip is detected either way
+     * @param enabled whether the traction control limits the output of slipping wheels
+     */
+    public void setTractionControl(boolean enabled) {
+        tractionControl = enabled;
+    }
 
-        // feeds the corresponding control to each wheel
-        for (int k = 0; k < 4; k++) {
-            swerveModules[k].setSpeed(controls[k][0]);
-            swerveModules[k].setAngle(controls[k][1]);
+    /**
+     * @return the slip detection of the control path, which should only be read when the control path isn't running
+     * on another thread
+     */
+    public TractionControl getTraction() {
+        return traction;
+    }
+
+    /**
+     * selects between the closed loop velocity control of the drive motors and the open loop fallback
+     * @param closedLoop whether the Talons close the velocity loop, otherwise the drive motors are driven by the feedforward alone
+     */
+    public void setDriveClosedLoop(boolean closedLoop) {
+        for (SwerveModule swerveModule : swerveModules) {
+            swerveModule.setDriveClosedLoop(closedLoop);
         }
     }
 
+    /**
+     * selects between motion magic and plain position control of the steering of all the modules
+     * @param motionMagic whether the steering follows the motion magic profile of each module
+     */
+    public void setAngleMotionMagic(boolean motionMagic) {
+        for (SwerveModule swerveModule : swerveModules) {
+            swerveModule.setAngleMotionMagic(motionMagic);
+        }
+    }
+
+    /**
+     * @return the gyro service, which keeps the recent history of the heading
+     */
+    public GyroService getGyro() {
+        return gyro;
+    }
+
+    /**
+     * @return the angle of the gyro in degrees, from its newest sample
+     */
+    public double getGyroAngle() {
+        return gyro.getAngle();
+    }
+
+    /**
+     * @param wheel the index of the module
+     * @return the speed which was last commanded to the module by {@link #holonomicDrive(double, double, double)},
+     * after the limits of the setpoint generator
+     */
+    public double getCommandedSpeed(int wheel) {
+        return speeds[wheel];
+    }
+
+    /**
+     * @param wheel the index of the module
+     * @return the angle which was last commanded to the module by {@link #holonomicDrive(double, double, double)},
+     * after the limits of the setpoint generator
+     */
+    public double getCommandedAngle(int wheel) {
+        return angles[wheel];
+    }
+
     /**
      * turns the joystick inputs into the robot heading
      * @param forward the Y value of the joystick
@@ -66,24 +365,28 @@ public class SwerveDrive extends SubsystemBase {
      * @return an array of the robot heading
      */
     public double[] getRobotHeading(double forward, double strafe, double rotation, double robotAngle) {
+        double[] robotHeading = new double[3];
+        getRobotHeading(forward, strafe, rotation, robotAngle, robotHeading);
+
+        return robotHeading;
+    }
+
+    /**
+     * turns the joystick inputs into the robot heading without allocating
+     * @param forward the Y value of the joystick
+     * @param strafe the X value of the joystick
+     * @param rotation the rotation Z of the joystick
+     * @param robotAngle the current angle of the robot in radians
+     * @param robotHeading an array of length 3 which is filled with the robot heading
+     */
+    public void getRobotHeading(double forward, double strafe, double rotation, double robotAngle, double[] robotHeading) {
         // turns the joystick values into the heading of the robot
         forward *= Constants.SwerveDrive.SPEED_MULTIPLIER;
         strafe *= Constants.SwerveDrive.SPEED_MULTIPLIER;
         rotation *= Constants.SwerveDrive.ROTATION_MULTIPLIER;
 
         // if the drive style is field oriented, changes the forward and strafe to be according to the field coordinate system
-        if (isFieldOriented) {
-            // multiplies the 2D rotation matrix by the robot heading, there by rotating the coordinate system
-            // see https://en.wikipedia.org/wiki/Rotation_matrix
-            double[][] rotationMat = { {Math.cos(robotAngle), -Math.sin(robotAngle)},
-                                        {Math.sin(robotAngle), Math.cos(robotAngle)} };
-            double[] speeds = Utils.matrixVectorMult(rotationMat, new double[]{forward, strafe});
-            forward = speeds[0];
-            strafe = speeds[1];
-        }
-        double[] robotHeading = {forward, strafe, rotation};
-
-        return robotHeading;
+        kinematics.getRobotHeading(forward, strafe, rotation, robotAngle, isFieldOriented, robotHeading);
     }
 
     /**
@@ -92,62 +395,60 @@ public class SwerveDrive extends SubsystemBase {
      * forward the heading of the robot in the Y direction
      * strafe the heading of the robot in the X direction
      * rotation the rotation of the robot
-     * @return an array of length 8 in which each pair is the X and Y velocities of each wheel
+     * @return an array of twice the module count in which each pair is the X and Y velocities of each wheel
      */
     public double[] calculateWheelVelocities(double[] robotHeading) {
-
-        // calculates the distance from the center of the robot to the wheels
-        double Rx = Constants.SwerveDrive.ROBOT_WIDTH/2;
-        double Ry = Constants.SwerveDrive.ROBOT_LENGTH/2;
-
-        // the sign vectors of Rx and Ry
-        double[] signX = {1, 1, -1, -1};
-        double[] signY = {-1, 1, 1, -1};
-
-        // creates an inverse matrix of all the mathematical operations needed to calculate the wheel velocities
-        // see https://file.tavsys.net/control/controls-engineering-in-frc.pdf pg.144
-        double[][] M = new double[8][3];
-
-        for (int i = 0; i < 8; i++) {
-            if (i % 2 == 0) {
-                M[i][0] = 0;
-                M[i][1] = 1;
-                M[i][2] = Rx * signX[i/2];
-            } else {
-                M[i][0] = 1;
-                M[i][1] = 0;
-                M[i][2] = Ry * signY[i/2];
-            }
-        }
-
-        // multiplies M by the robotHeading to obtain the wheel velocities
-        double[] wheelVelocities = Utils.matrixVectorMult(M, robotHeading);
+        double[] wheelVelocities = new double[2 * kinematics.getModuleCount()];
+        kinematics.calculateWheelVelocities(robotHeading, wheelVelocities);
 
         return wheelVelocities;
-
     }
 
     /**
      * set the angle of the wheels on the robot to lock the robot in place
      */
     public void lock() {
-        // calculates the lock angles of the wheels
-        double[] lockAngles = calculateLockAngles();
+        if (driveLoop != null) {
+            driveLoop.post(DriveLoop.LOCK, 0, 0, 0);
+            return;
+        }
+        lockModules();
+    }
 
-        for (int i = 0; i < 4; i++) {
-            swerveModules[i].setSpeed(0);
+    private void lockModules() {
+        for (int i = 0; i < swerveModules.length; i++) {
+            swerveModules[i].stopDriveMotor();
             swerveModules[i].setAngle(lockAngles[i]);
         }
+        resetSetpoint();
     }
 
     /**
      * calculates the angles for which the wheels will lock in place
      */
     public double[] calculateLockAngles() {
-        double[] lockAngles = new double[4];
+        return calculateLockAngles(kinematics);
+    }
 
-        for (int i = 0; i < 4; i++) {
-            lockAngles[i] = Math.PI / 2 - Math.atan(Constants.SwerveDrive.ROBOT_WIDTH / Constants.SwerveDrive.ROBOT_LENGTH) + i * Math.PI/2;
+    /**
+     * calculates the angles for which the wheels will lock in place. each wheel points along the line from the center
+     * of rotation to its module, so no rotation of the robot rolls any wheel and no translation rolls all of them.
+     * a wheel steers to either direction of the line, and the angle which is given is the one nearest to the
+     * angle of the module around the center, counterclockwise from the X axis
+     * @param kinematics the kinematics of the drivetrain
+     * @return the lock angle of each module in radians
+     */
+    public static double[] calculateLockAngles(SwerveKinematics kinematics) {
+        double[] lockAngles = new double[kinematics.getModuleCount()];
+        double[] position = new double[2];
+
+        for (int i = 0; i < lockAngles.length; i++) {
+            kinematics.getModulePosition(i, position);
+            double around = Math.atan2(position[1], position[0]);
+            if (around < 0)
+                around += 2 * Math.PI;
+            // the angles of the wheels are measured clockwise from the Y axis
+            lockAngles[i] = SwerveModule.getTargetAngle(Math.atan2(position[0], position[1]), around);
         }
 
         return lockAngles;
@@ -158,11 +459,19 @@ public class SwerveDrive extends SubsystemBase {
      * stops all the wheels
      */
     public void stop() {
+        if (driveLoop != null) {
+            driveLoop.post(DriveLoop.STOP, 0, 0, 0);
+            return;
+        }
+        stopModules();
+    }
+
+    private void stopModules() {
         for (int i = 0; i < swerveModules.length; i++) {
-            swerveModules[i].setSpeed(0);
+            swerveModules[i].stopDriveMotor();
             swerveModules[i].stopAngleMotor();
         }
-
+        resetSetpoint();
     }
 
 }
@@ -0,0 +1,297 @@
+package frc.robot.subsystems.drivetrain;
+
+import frc.robot.Constants;
+import frc.robot.Utils;
+
+/**
+ * The swerve kinematics of the drivetrain, for any number of modules at any positions.
+ * The inverse kinematics matrix and its pseudo-inverse depend only on the geometry of the robot, so they are built once
+ * in the constructor, and every calculation writes into buffers supplied by the caller, so that nothing is allocated
+ * in the control loop.
+ */
+public class SwerveKinematics {
+    private final int moduleCount;
+    private final double[][] modulePositions;
+
+    // the inverse matrix of all the mathematical operations needed to calculate the wheel velocities
+    private final double[][] inverseKinematics;
+    // the least squares pseudo-inverse of the inverse kinematics, from the wheel velocities back to the robot heading
+    private final double[][] forwardKinematics;
+
+    // buffers of the field oriented rotation
+    private final double[][] rotationMat = new double[2][2];
+    private final double[] translation = new double[2];
+    private final double[] rotatedTranslation = new double[2];
+    private final double[] measuredVelocities;
+    // buffers of the weighted least squares
+    private final double[][] weightedNormal = new double[3][3];
+    private final double[] weightedRhs = new double[3];
+
+    // the wheel vectors in struct of arrays form, for the batched math of Utils
+    private final double[] wheelX;
+    private final double[] wheelY;
+    private final double[] wheelSin;
+    private final double[] wheelCos;
+
+    /**
+     * @param robotWidth the distance between the left and right wheels in meters
+     * @param robotLength the distance between the front and back wheels in meters
+     */
+    public SwerveKinematics(double robotWidth, double robotLength) {
+        this(rectangle(robotWidth, robotLength));
+    }
+
+    /**
+     * @param modulePositions the position [x, y] of each module relative to the center of rotation in meters,
+     *                        where x is to the right and y is forward. at least two modules are needed
+     */
+    public SwerveKinematics(double[][] modulePositions) {
+        moduleCount = modulePositions.length;
+        this.modulePositions = new double[moduleCount][];
+        for (int i = 0; i < moduleCount; i++) {
+            this.modulePositions[i] = modulePositions[i].clone();
+        }
+        inverseKinematics = new double[2 * moduleCount][3];
+        measuredVelocities = new double[2 * moduleCount];
+        wheelX = new double[moduleCount];
+        wheelY = new double[moduleCount];
+        wheelSin = new double[moduleCount];
+        wheelCos = new double[moduleCount];
+
+        // the velocity of each wheel is the translation of the robot plus the clockwise rotation around the center
+        // see https://file.tavsys.net/control/controls-engineering-in-frc.pdf pg.144
+        for (int i = 0; i < moduleCount; i++) {
+            inverseKinematics[2 * i][0] = 0;
+            inverseKinematics[2 * i][1] = 1;
+            inverseKinematics[2 * i][2] = modulePositions[i][1];
+            inverseKinematics[2 * i + 1][0] = 1;
+            inverseKinematics[2 * i + 1][1] = 0;
+            inverseKinematics[2 * i + 1][2] = -modulePositions[i][0];
+        }
+
+        forwardKinematics = pseudoInverse(inverseKinematics);
+    }
+
+    /**
+     * @param robotWidth the distance between the left and right wheels in meters
+     * @param robotLength the distance between the front and back wheels in meters
+     * @return the positions of the modules of a rectangular chassis, where x = width / 2 and y = length / 2, by index:
+     * 0 is the front right corner (x, y), 1 is the front left corner (-x, y), 2 is the back left corner (-x, -y)
+     * and 3 is the back right corner (x, -y). note that the ports and the constructor of {@link SwerveDrive} name
+     * index 2 back right and index 3 back left, but the kinematics place them at the corners listed here
+     */
+    public static double[][] rectangle(double robotWidth, double robotLength) {
+        double x = robotWidth / 2;
+        double y = robotLength / 2;
+        return new double[][]{{x, y}, {-x, y}, {-x, -y}, {x, -y}};
+    }
+
+    /**
+     * @return the number of modules
+     */
+    public int getModuleCount() {
+        return moduleCount;
+    }
+
+    /**
+     * @param module the index of the module
+     * @param position an array of length 2 which is filled with the position [x, y] of the module in meters
+     */
+    public void getModulePosition(int module, double[] position) {
+        position[0] = modulePositions[module][0];
+        position[1] = modulePositions[module][1];
+    }
+
+    /**
+     * turns the scaled joystick inputs into the robot heading
+     * @param forward the forward speed of the robot
+     * @param strafe the strafe speed of the robot
+     * @param rotation the rotational speed of the robot
+     * @param robotAngle the current angle of the robot in radians, clockwise positive like the gyro
+     * @param isFieldOriented whether to rotate the forward and strafe into the field coordinate system
+     * @param robotHeading an array of length 3 which is filled with the robot heading [forward, strafe, rotation]
+     */
+    public void getRobotHeading(double forward, double strafe, double rotation, double robotAngle,
+                                boolean isFieldOriented, double[] robotHeading) {
+        if (isFieldOriented) {
+            // multiplies the 2D rotation matrix by the robot heading, there by rotating the coordinate system
+            // see https://en.wikipedia.org/wiki/Rotation_matrix
+            // the angle of the robot is clockwise, so this is the inverse of the rotation of the odometry from the robot
+            // to the field, which takes the field velocity [forward, strafe] back to the robot
+            double cos = Constants.SwerveDrive.FAST_MATH ? Utils.fastCos(robotAngle) : Math.cos(robotAngle);
+            double sin = Constants.SwerveDrive.FAST_MATH ? Utils.fastSin(robotAngle) : Math.sin(robotAngle);
+            rotationMat[0][0] = cos;
+            rotationMat[0][1] = sin;
+            rotationMat[1][0] = -sin;
+            rotationMat[1][1] = cos;
+            translation[0] = forward;
+            translation[1] = strafe;
+            Utils.matrixVectorMult(rotationMat, translation, rotatedTranslation);
+            forward = rotatedTranslation[0];
+            strafe = rotatedTranslation[1];
+        }
+        robotHeading[0] = forward;
+        robotHeading[1] = strafe;
+        robotHeading[2] = rotation;
+    }
+
+    /**
+     * calculates the velocity vector of each wheel
+     * @param robotHeading the robot heading [forward, strafe, rotation]
+     * @param wheelVelocities an array of twice the module count which is filled with the X and Y velocities of each wheel
+     */
+    public void calculateWheelVelocities(double[] robotHeading, double[] wheelVelocities) {
+        Utils.matrixVectorMult(inverseKinematics, robotHeading, wheelVelocities);
+    }
+
+    /**
+     * converts the cartesian wheel velocities to the speed and angle of each wheel
+     * @param wheelVelocities an array of twice the module count in which each pair is the X and Y velocities of each wheel
+     * @param speeds an array of the module count which is filled with the speed of each wheel
+     * @param angles an array of the module count which is filled with the angle of each wheel
+     */
+    public void toModuleStates(double[] wheelVelocities, double[] speeds, double[] angles) {
+        for (int i = 0; i < moduleCount; i++) {
+            wheelX[i] = wheelVelocities[2 * i];
+            wheelY[i] = wheelVelocities[2 * i + 1];
+        }
+        if (Constants.SwerveDrive.FAST_MATH)
+            Utils.fastCartesianToPolar(wheelX, wheelY, speeds, angles);
+        else
+            Utils.cartesianToPolar(wheelX, wheelY, speeds, angles);
+    }
+
+    /**
+     * calculates the robot heading from the speed and angle of each wheel, in the least squares sense.
+     * given the distance each wheel traveled instead of its speed, calculates the displacement of the robot.
+     * @param speeds the speed of each wheel
+     * @param angles the angle of each wheel in radians
+     * @param robotHeading an array of length 3 which is filled with the robot heading [forward, strafe, rotation]
+     */
+    public void toRobotHeading(double[] speeds, double[] angles, double[] robotHeading) {
+        toWheelVelocities(speeds, angles);
+        Utils.matrixVectorMult(forwardKinematics, measuredVelocities, robotHeading);
+    }
+
+    /**
+     * calculates the robot heading from the speed and angle of each wheel, in the weighted least squares sense,
+     * so a wheel with a lower weight, such as a slipping wheel, affects the result less.
+     * @param speeds the speed of each wheel
+     * @param angles the angle of each wheel in radians
+     * @param weights the weight of each wheel, at least three wheels at different positions must have a positive weight
+     * @param robotHeading an array of length 3 which is filled with the robot heading [forward, strafe, rotation]
+     */
+    public void toRobotHeading(double[] speeds, double[] angles, double[] weights, double[] robotHeading) {
+        toWheelVelocities(speeds, angles);
+        // the normal equations M^T * W * M * heading = M^T * W * v, where both rows of a wheel share its weight
+        for (int i = 0; i < 3; i++) {
+            weightedRhs[i] = 0;
+            for (int j = 0; j < 3; j++) {
+                weightedNormal[i][j] = 0;
+            }
+        }
+        for (int k = 0; k < 2 * moduleCount; k++) {
+            double[] row = inverseKinematics[k];
+            double weight = weights[k / 2];
+            for (int i = 0; i < 3; i++) {
+                weightedRhs[i] += weight * row[i] * measuredVelocities[k];
+                for (int j = 0; j < 3; j++) {
+                    weightedNormal[i][j] += weight * row[i] * row[j];
+                }
+            }
+        }
+
+        double[][] n = weightedNormal;
+        double det = n[0][0] * (n[1][1] * n[2][2] - n[1][2] * n[2][1])
+                - n[0][1] * (n[1][0] * n[2][2] - n[1][2] * n[2][0])
+                + n[0][2] * (n[1][0] * n[2][1] - n[1][1] * n[2][0]);
+        if (Math.abs(det) < 1e-12) {
+            // the weighted wheels don't determine the heading, such as when only one of them has any weight
+            Utils.matrixVectorMult(forwardKinematics, measuredVelocities, robotHeading);
+            return;
+        }
+        for (int i = 0; i < 3; i++) {
+            double value = 0;
+            for (int j = 0; j < 3; j++) {
+                int r1 = (j + 1) % 3, r2 = (j + 2) % 3, c1 = (i + 1) % 3, c2 = (i + 2) % 3;
+                value += (n[r1][c1] * n[r2][c2] - n[r1][c2] * n[r2][c1]) * weightedRhs[j];
+            }
+            robotHeading[i] = value / det;
+        }
+    }
+
+    /**
+     * calculates the translation of the robot which each wheel implies on its own, given the rotation of the robot.
+     * the wheels of a rigid robot which don't slip all imply the same translation.
+     * @param speeds the speed of each wheel
+     * @param angles the angle of each wheel in radians
+     * @param rotation the rotational speed of the robot, clockwise in radians per second
+     * @param forward an array of the module count which is filled with the forward speed each wheel implies
+     * @param strafe an array of the module count which is filled with the strafe speed each wheel implies
+     */
+    public void toModuleTranslations(double[] speeds, double[] angles, double rotation, double[] forward, double[] strafe) {
+        toWheelVelocities(speeds, angles);
+        for (int i = 0; i < moduleCount; i++) {
+            // removes the rotation part of the inverse kinematics from the velocity of the wheel
+            strafe[i] = measuredVelocities[2 * i] - inverseKinematics[2 * i][2] * rotation;
+            forward[i] = measuredVelocities[2 * i + 1] - inverseKinematics[2 * i + 1][2] * rotation;
+        }
+    }
+
+    private void toWheelVelocities(double[] speeds, double[] angles) {
+        // the inverse of Utils.cartesianToPolar, where the angle is measured from the Y axis
+        if (Constants.SwerveDrive.FAST_MATH) {
+            Utils.fastSinCos(angles, wheelSin, wheelCos);
+        } else {
+            for (int i = 0; i < moduleCount; i++) {
+                wheelSin[i] = Math.sin(angles[i]);
+                wheelCos[i] = Math.cos(angles[i]);
+            }
+        }
+        for (int i = 0; i < moduleCount; i++) {
+            measuredVelocities[2 * i] = speeds[i] * wheelSin[i];
+            measuredVelocities[2 * i + 1] = speeds[i] * wheelCos[i];
+        }
+    }
+
+    /**
+     * calculates the pseudo-inverse (M^T * M)^-1 * M^T of a matrix with 3 columns
+     * @param m a matrix of size R * 3 with independent columns
+     * @return the pseudo-inverse of size 3 * R
+     * @throws IllegalArgumentException if the columns aren't independent, such as when all of the modules are at one point
+     */
+    private static double[][] pseudoInverse(double[][] m) {
+        double[][] mtm = new double[3][3];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                for (double[] row : m) {
+                    mtm[i][j] += row[i] * row[j];
+                }
+            }
+        }
+
+        // inverts M^T * M by cofactors
+        double det = mtm[0][0] * (mtm[1][1] * mtm[2][2] - mtm[1][2] * mtm[2][1])
+                - mtm[0][1] * (mtm[1][0] * mtm[2][2] - mtm[1][2] * mtm[2][0])
+                + mtm[0][2] * (mtm[1][0] * mtm[2][1] - mtm[1][1] * mtm[2][0]);
+        if (Math.abs(det) < 1e-12)
+            throw new IllegalArgumentException("the module positions don't determine the rotation of the robot");
+        double[][] inverse = new double[3][3];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                int r1 = (j + 1) % 3, r2 = (j + 2) % 3, c1 = (i + 1) % 3, c2 = (i + 2) % 3;
+                inverse[i][j] = (mtm[r1][c1] * mtm[r2][c2] - mtm[r1][c2] * mtm[r2][c1]) / det;
+            }
+        }
+
+        double[][] pseudoInverse = new double[3][m.length];
+        for (int i = 0; i < 3; i++) {
+            for (int k = 0; k < m.length; k++) {
+                for (int j = 0; j < 3; j++) {
+                    pseudoInverse[i][k] += inverse[i][j] * m[k][j];
+                }
+            }
+        }
+        return pseudoInverse;
+    }
+}
@@ -1,28 +1,66 @@
 package frc.robot.subsystems.drivetrain;
 
 import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
 import com.ctre.phoenix.motorcontrol.FeedbackDevice;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
 import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
 import com.ctre.phoenix.motorcontrol.can.TalonFX;
+import com.ctre.phoenix.motorcontrol.can.TalonFXConfiguration;
 import com.ctre.phoenix.motorcontrol.can.TalonSRX;
+import com.ctre.phoenix.motorcontrol.can.TalonSRXConfiguration;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.Constants;
 import frc.robot.Ports;
-import frc.robot.Utils;
+import frc.robot.utilities.CachedMotorController;
+import frc.robot.utilities.MotorIO;
+import frc.robot.utilities.TalonConfiguration;
+import frc.robot.utilities.TalonMotorIO;
+
+import java.util.List;
 
 public class SwerveModule extends SubsystemBase {
-    private SupplyCurrentLimitConfiguration currLimitConfig = new SupplyCurrentLimitConfiguration(true, Constants.Drivetrain.MAX_CURRENT, 0, 0);
+    // the Talons are null when the module runs on simulated motors
     public final TalonFX driveMotor;
     private final TalonSRX angleMotor;
     private final int wheel;
 
+    private final MotorIO driveIO;
+    private final MotorIO angleIO;
+
+    // only changed setpoints are sent over CAN
+    private final CachedMotorController driveOutput;
+    private final CachedMotorController angleOutput;
+
     private UnitModel unitDrive = new UnitModel(Constants.Drivetrain.TICKS_PER_METER);
     private UnitModel unitAngle = new UnitModel(Constants.Drivetrain.TICKS_PER_RAD);
 
+    // the sensor readings of the current cycle
+    private final ModuleSnapshot snapshot = new ModuleSnapshot();
+    // set while the drive loop commands the module, which then reads the snapshot on its own thread instead of periodic()
+    private volatile boolean updatedByDriveLoop = false;
+
+    private boolean driveClosedLoop = Constants.SwerveModule.DRIVE_CLOSED_LOOP;
+    private double lastSpeed = 0; // the last speed setpoint in m/s, for the acceleration feedforward
+    private double accelerationFeedforward = 1; // the share of the acceleration feedforward
+
+    private boolean angleMotionMagic = Constants.SwerveModule.ANGLE_MOTION_MAGIC;
+    // the settle time of the steering, from a change of the angle setpoint until the wheel is within the tolerance.
+    // the setpoint, the start and the sums are only touched by the thread which updates and commands the module,
+    // the drive loop while it runs, and the published statistics are volatile since the dashboard reads them on the
+    // main thread. the average is calculated by the owning thread, so it is never read from half an update of the sums
+    private double angleSetpoint = Double.NaN; // in radians
+    private double settleStart = Double.NaN; // the time of the setpoint change, NaN while the wheel is settled
+    private double totalSettleTime = 0;
+    private int settleCount = 0;
+    private volatile double lastSettleTime = 0;
+    private volatile double maxSettleTime = 0;
+    private volatile double averageSettleTime = 0;
+
     public SwerveModule(int wheel, TalonFX driveMotor, TalonSRX angleMotor, boolean[] inverted) {
-        // configure feedback sensors
-        angleMotor.configSelectedFeedbackSensor(FeedbackDevice.Analog, wheel, Constants.TALON_TIMEOUT);
-        angleMotor.configFeedbackNotContinuous(Ports.SwerveDrive.IS_NOT_CONTINUOUS_FEEDBACK, Constants.TALON_TIMEOUT);
+        this(wheel, new TalonMotorIO(driveMotor), new TalonMotorIO(angleMotor), driveMotor, angleMotor);
 
         // set inversions
         angleMotor.setInverted(inverted[0]);
@@ -31,93 +69,443 @@ public class SwerveModule extends SubsystemBase {
         angleMotor.setSensorPhase(inverted[2]);
         driveMotor.setSensorPhase(inverted[3]);
 
-        // Set amperage limits
-        driveMotor.configSupplyCurrentLimit(currLimitConfig);
-
-        angleMotor.configContinuousCurrentLimit(Constants.Drivetrain.MAX_CURRENT);
+        // enable the current limits and voltage compensation, their values are part of the configurations
         angleMotor.enableCurrentLimit(true);
-
-        // set PIDF
-        angleMotor.config_kP(wheel, Constants.SwerveModule.KP, Constants.TALON_TIMEOUT);
-        angleMotor.config_kI(wheel, Constants.SwerveModule.KI, Constants.TALON_TIMEOUT);
-        angleMotor.config_kD(wheel, Constants.SwerveModule.KD, Constants.TALON_TIMEOUT);
-        angleMotor.config_kF(wheel, Constants.SwerveModule.KF, Constants.TALON_TIMEOUT);
-
-        // set voltage compensation and saturation
         driveMotor.enableVoltageCompensation(true);
-        driveMotor.configVoltageCompSaturation(12);
-
         angleMotor.enableVoltageCompensation(true);
-        angleMotor.configVoltageCompSaturation(12);
+    }
 
+    /**
+     * creates a module on motors which aren't Talons, such as the motors of the drivetrain simulation
+     * @param wheel the index of the module
+     * @param driveIO the drive motor
+     * @param angleIO the angle motor
+     */
+    public SwerveModule(int wheel, MotorIO driveIO, MotorIO angleIO) {
+        this(wheel, driveIO, angleIO, null, null);
+    }
+
+    private SwerveModule(int wheel, MotorIO driveIO, MotorIO angleIO, TalonFX driveMotor, TalonSRX angleMotor) {
         this.driveMotor = driveMotor;
         this.angleMotor = angleMotor;
+        this.driveIO = driveIO;
+        this.angleIO = angleIO;
         this.wheel = wheel;
+
+        driveOutput = new CachedMotorController(driveIO, Constants.SwerveModule.DRIVE_SETPOINT_EPSILON,
+                Constants.SwerveModule.DRIVE_FEEDFORWARD_EPSILON, Constants.SwerveModule.SETPOINT_REFRESH_PERIOD);
+        angleOutput = new CachedMotorController(angleIO, Constants.SwerveModule.ANGLE_SETPOINT_EPSILON, Constants.SwerveModule.SETPOINT_REFRESH_PERIOD);
+
+        update(Timer.getFPGATimestamp());
+    }
+
+    /**
+     * describes the desired configurations of the motors of the module.
+     * the configurations are applied by {@link frc.robot.utilities.TalonConfigurator}, concurrently with the other modules.
+     * @return the configurations of the drive motor and the angle motor, empty if the module doesn't run on Talons
+     */
+    public List<TalonConfiguration<?>> getConfigurations() {
+        if (driveMotor == null || angleMotor == null)
+            return List.of();
+
+        TalonFXConfiguration driveConfig = new TalonFXConfiguration();
+        driveConfig.supplyCurrLimit = new SupplyCurrentLimitConfiguration(true, Constants.Drivetrain.MAX_CURRENT, 0, 0);
+        driveConfig.voltageCompSaturation = Constants.SwerveModule.NOMINAL_VOLTAGE;
+        driveConfig.slot0.kP = Constants.SwerveModule.DRIVE_KP;
+        driveConfig.slot0.kI = Constants.SwerveModule.DRIVE_KI;
+        driveConfig.slot0.kD = Constants.SwerveModule.DRIVE_KD;
+        driveConfig.slot0.kF = Constants.SwerveModule.DRIVE_KF;
+
+        TalonSRXConfiguration angleConfig = new TalonSRXConfiguration();
+        angleConfig.primaryPID.selectedFeedbackSensor = FeedbackDevice.Analog;
+        angleConfig.feedbackNotContinuous = Ports.SwerveDrive.IS_NOT_CONTINUOUS_FEEDBACK;
+        angleConfig.continuousCurrentLimit = Constants.Drivetrain.MAX_CURRENT;
+        angleConfig.slot0.kP = Constants.SwerveModule.KP;
+        angleConfig.slot0.kI = Constants.SwerveModule.KI;
+        angleConfig.slot0.kD = Constants.SwerveModule.KD;
+        angleConfig.slot0.kF = Constants.SwerveModule.KF;
+        angleConfig.voltageCompSaturation = Constants.SwerveModule.NOMINAL_VOLTAGE;
+        angleConfig.motionCruiseVelocity = Constants.SwerveModule.ANGLE_CRUISE_VELOCITY[wheel];
+        angleConfig.motionAcceleration = Constants.SwerveModule.ANGLE_ACCELERATION[wheel];
+
+        return List.of(
+                new TalonConfiguration<>("Drive motor " + wheel, driveMotor, driveConfig, new TalonFXConfiguration(),
+                        driveMotor::configAllSettings, driveMotor::getAllConfigs)
+                        .verify("supply current limit", c -> c.supplyCurrLimit.currentLimit,
+                                t -> driveMotor.configSupplyCurrentLimit(driveConfig.supplyCurrLimit, t))
+                        .verify("kP", c -> c.slot0.kP, t -> driveMotor.config_kP(0, driveConfig.slot0.kP, t))
+                        .verify("kI", c -> c.slot0.kI, t -> driveMotor.config_kI(0, driveConfig.slot0.kI, t))
+                        .verify("kD", c -> c.slot0.kD, t -> driveMotor.config_kD(0, driveConfig.slot0.kD, t))
+                        .verify("kF", c -> c.slot0.kF, t -> driveMotor.config_kF(0, driveConfig.slot0.kF, t))
+                        .verify("voltage compensation", c -> c.voltageCompSaturation,
+                                t -> driveMotor.configVoltageCompSaturation(driveConfig.voltageCompSaturation, t)),
+                new TalonConfiguration<>("Angle motor " + wheel, angleMotor, angleConfig, new TalonSRXConfiguration(),
+                        angleMotor::configAllSettings, angleMotor::getAllConfigs)
+                        .verify("feedback sensor", c -> c.primaryPID.selectedFeedbackSensor.value,
+                                t -> angleMotor.configSelectedFeedbackSensor(FeedbackDevice.Analog, 0, t))
+                        .verify("feedback not continuous", c -> c.feedbackNotContinuous ? 1 : 0,
+                                t -> angleMotor.configFeedbackNotContinuous(angleConfig.feedbackNotContinuous, t))
+                        .verify("continuous current limit", c -> c.continuousCurrentLimit,
+                                t -> angleMotor.configContinuousCurrentLimit(angleConfig.continuousCurrentLimit, t))
+                        .verify("kP", c -> c.slot0.kP, t -> angleMotor.config_kP(0, angleConfig.slot0.kP, t))
+                        .verify("kI", c -> c.slot0.kI, t -> angleMotor.config_kI(0, angleConfig.slot0.kI, t))
+                        .verify("kD", c -> c.slot0.kD, t -> angleMotor.config_kD(0, angleConfig.slot0.kD, t))
+                        .verify("kF", c -> c.slot0.kF, t -> angleMotor.config_kF(0, angleConfig.slot0.kF, t))
+                        .verify("voltage compensation", c -> c.voltageCompSaturation,
+                                t -> angleMotor.configVoltageCompSaturation(angleConfig.voltageCompSaturation, t))
+                        .verify("motion cruise velocity", c -> c.motionCruiseVelocity,
+                                t -> angleMotor.configMotionCruiseVelocity(angleConfig.motionCruiseVelocity, t))
+                        .verify("motion acceleration", c -> c.motionAcceleration,
+                                t -> angleMotor.configMotionAcceleration(angleConfig.motionAcceleration, t))
+        );
+    }
+
+    /**
+     * declares the status frames of the motors of the module, by the signals which are read from them.
+     * the position and velocity of both motors are read every cycle, and the steering closes its loop on them.
+     * @param canBus the manager of the status frames, nothing is added if the module doesn't run on Talons
+     */
+    public void addStatusFrames(CanBusManager canBus) {
+        if (driveMotor == null || angleMotor == null)
+            return;
+
+        canBus.addDevice("Drive motor " + wheel, driveMotor::setStatusFramePeriod)
+                .frame(StatusFrameEnhanced.Status_1_General, Constants.CanBus.GENERAL_PERIODS)
+                .frame(StatusFrameEnhanced.Status_2_Feedback0, Constants.CanBus.FEEDBACK_PERIODS)
+                .frame(StatusFrameEnhanced.Status_Brushless_Current, Constants.CanBus.CURRENT_PERIODS)
+                .frame(StatusFrameEnhanced.Status_4_AinTempVbat, Constants.CanBus.UNUSED_PERIODS)
+                .frame(StatusFrameEnhanced.Status_10_Targets, Constants.CanBus.UNUSED_PERIODS)
+                .frame(StatusFrameEnhanced.Status_12_Feedback1, Constants.CanBus.UNUSED_PERIODS)
+                .frame(StatusFrameEnhanced.Status_13_Base_PIDF0, Constants.CanBus.UNUSED_PERIODS)
+                .frame(StatusFrameEnhanced.Status_14_Turn_PIDF1, Constants.CanBus.UNUSED_PERIODS);
+        // the current of a TalonSRX is part of its feedback frame, and the analog sensor is its selected sensor
+        canBus.addDevice("Angle motor " + wheel, angleMotor::setStatusFramePeriod)
+                .frame(StatusFrameEnhanced.Status_1_General, Constants.CanBus.GENERAL_PERIODS)
+                .frame(StatusFrameEnhanced.Status_2_Feedback0, Constants.CanBus.FEEDBACK_PERIODS)
+                .frame(StatusFrameEnhanced.Status_3_Quadrature, Constants.CanBus.UNUSED_PERIODS)
+                .frame(StatusFrameEnhanced.Status_4_AinTempVbat, Constants.CanBus.UNUSED_PERIODS)
+                .frame(StatusFrameEnhanced.Status_8_PulseWidth, Constants.CanBus.UNUSED_PERIODS)
+                .frame(StatusFrameEnhanced.Status_10_Targets, Constants.CanBus.UNUSED_PERIODS)
+                .frame(StatusFrameEnhanced.Status_12_Feedback1, Constants.CanBus.UNUSED_PERIODS)
+                .frame(StatusFrameEnhanced.Status_13_Base_PIDF0, Constants.CanBus.UNUSED_PERIODS)
+                .frame(StatusFrameEnhanced.Status_14_Turn_PIDF1, Constants.CanBus.UNUSED_PERIODS);
     }
 
+    @Override
+    public void periodic() {
+        if (!updatedByDriveLoop)
+            update(Timer.getFPGATimestamp());
+    }
 
     /**
-     * @return the speed of the wheel in [m/s]
+     * moves the update of the snapshot from {@link #periodic()} to the drive loop, so the snapshot is only ever
+     * written and read by the thread which commands the module
+     * @param updatedByDriveLoop whether the drive loop calls {@link #update(double)} every cycle
+     */
+    void setUpdatedByDriveLoop(boolean updatedByDriveLoop) {
+        this.updatedByDriveLoop = updatedByDriveLoop;
+    }
+
+    /**
+     * reads all of the sensors of the module into the snapshot of the current cycle.
+     * this is called by the thread which commands the module, the drive loop while it is enabled.
+     * @param timestamp the time of the reading in seconds
+     */
+    public void update(double timestamp) {
+        readSensors(snapshot, timestamp);
+
+        if (!Double.isNaN(settleStart) && Math.abs(snapshot.angle - angleSetpoint) <= Constants.SwerveModule.ANGLE_SETTLE_TOLERANCE) {
+            lastSettleTime = timestamp - settleStart;
+            maxSettleTime = Math.max(maxSettleTime, lastSettleTime);
+            totalSettleTime += lastSettleTime;
+            settleCount++;
+            averageSettleTime = totalSettleTime / settleCount;
+            settleStart = Double.NaN;
+        }
+    }
+
+    /**
+     * reads all of the sensors of the module into a snapshot.
+     * the motor controllers may be read from any thread, as long as each thread reads into its own snapshot.
+     * @param snapshot the snapshot to fill
+     * @param timestamp the time of the reading in seconds
+     */
+    public void readSensors(ModuleSnapshot snapshot, double timestamp) {
+        long start = System.nanoTime();
+
+        snapshot.timestamp = timestamp;
+        snapshot.drivePosition = unitDrive.toUnits(driveIO.getSelectedSensorPosition());
+        snapshot.driveVelocity = unitDrive.toVelocity(driveIO.getSelectedSensorVelocity());
+        snapshot.driveOutput = driveIO.getMotorOutputPercent();
+        snapshot.driveCurrent = driveIO.getStatorCurrent();
+
+        snapshot.angle = toWheelAngle(wheel, angleIO.getSelectedSensorPosition());
+        snapshot.angleVelocity = unitAngle.toVelocity(angleIO.getSelectedSensorVelocity());
+        snapshot.angleOutput = angleIO.getMotorOutputPercent();
+        snapshot.angleCurrent = angleIO.getStatorCurrent();
+
+        snapshot.readDuration = (System.nanoTime() - start) / 1e9;
+    }
+
+    /**
+     * @return the sensor readings of the current cycle, the returned object is overwritten every cycle
+     */
+    public ModuleSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+
+    /**
+     * @return the speed of the wheel in [m/s], as read at the start of the cycle
      */
     public double getSpeed() {
-        return unitDrive.toVelocity(driveMotor.getSelectedSensorVelocity());
+        return snapshot.driveVelocity;
     }
 
     /**
-     * @return the angle of the wheel in radians
+     * @return the angle of the wheel in radians, as read at the start of the cycle
      */
     public double getAngle() {
-        return unitAngle.toUnits(angleMotor.getSelectedSensorPosition());
+        return snapshot.angle;
     }
 
     /**
-     * sets the speed of the the wheel in ticks per 100ms
+     * sets the speed of the the wheel, from the main loop
      * @param speed the speed of the wheel in [m/s]
+     * @see #setSpeed(double, double)
      */
     public void setSpeed(double speed) {
-        driveMotor.set(ControlMode.PercentOutput, unitDrive.toTicks100ms(speed));
+        setSpeed(speed, Constants.Drivetrain.TIME_STEP);
     }
 
     /**
-     * sets the angle of the wheel, in consideration of the shortest path to the target angle
+     * sets the speed of the the wheel.
+     * the feedforward kS * sign(v) + kV * v + kA * a is calculated here, with the acceleration since the last setpoint,
+     * and is added to the velocity loop of the Talon as an arbitrary feedforward,
+     * or drives the motor alone when the drive is open loop
+     * @param speed the speed of the wheel in [m/s]
+     * @param dt the time since the last setpoint in seconds, the period of the loop which calls this
+     */
+    public void setSpeed(double speed, double dt) {
+        double acceleration = (speed - lastSpeed) / dt;
+        lastSpeed = speed;
+        setSpeedFeedForward(speed, acceleration);
+    }
+
+    /**
+     * stops the drive motor without the acceleration feedforward.
+     * the difference from the last speed setpoint would otherwise demand the full reverse output, which the Talon keeps
+     * applying until the next setpoint, and a stop may be the last setpoint the module gets
+     */
+    public void stopDriveMotor() {
+        lastSpeed = 0;
+        setSpeedFeedForward(0, 0);
+    }
+
+    /**
+     * sends the speed setpoint with the feedforward kS * sign(v) + kV * v + kA * a
+     * @param speed the speed of the wheel in [m/s]
+     * @param acceleration the acceleration of the setpoint in [m/s^2]
+     */
+    private void setSpeedFeedForward(double speed, double acceleration) {
+        double feedForward = (Constants.SwerveModule.DRIVE_KS * Math.signum(speed) + Constants.SwerveModule.DRIVE_KV * speed
+                + accelerationFeedforward * Constants.SwerveModule.DRIVE_KA * acceleration) / Constants.SwerveModule.NOMINAL_VOLTAGE;
+
+        if (driveClosedLoop)
+            driveOutput.set(ControlMode.Velocity, unitDrive.toTicks100ms(speed), DemandType.ArbitraryFeedForward, feedForward);
+        else
+            driveOutput.set(ControlMode.PercentOutput, 0, DemandType.ArbitraryFeedForward, feedForward);
+    }
+
+    /**
+     * scales the acceleration part kA * a of the feedforward. kA is characterized with the wheel carrying its share of
+     * the mass of the robot, so a slipping wheel which doesn't carry it is only spun faster by the full feedforward
+     * @param share the share of the acceleration feedforward, 1 for a wheel with full traction
+     */
+    public void setAccelerationFeedforward(double share) {
+        accelerationFeedforward = share;
+    }
+
+    /**
+     * selects between the closed loop velocity control of the drive motor and the open loop fallback
+     * @param closedLoop whether the Talon closes the velocity loop, otherwise the drive motor is driven by the feedforward alone
+     */
+    public void setDriveClosedLoop(boolean closedLoop) {
+        driveClosedLoop = closedLoop;
+    }
+
+    /**
+     * @return whether the velocity of the drive motor is closed loop
+     */
+    public boolean isDriveClosedLoop() {
+        return driveClosedLoop;
+    }
+
+    /**
+     * sets the state of the module, optimized so that the wheel never steers by more than 90 degrees.
+     * when the target angle is closer to the opposite direction of the wheel, the wheel steers to the opposite direction
+     * and drives backwards, and the speed is scaled by the cosine of the remaining steering error,
+     * so the wheel doesn't drive in the wrong direction while it is still steering.
+     * @param speed the target speed of the wheel in [m/s]
+     * @param angle the target angle in radians
+     */
+    public void setState(double speed, double angle) {
+        setState(speed, angle, Constants.Drivetrain.TIME_STEP);
+    }
+
+    /**
+     * sets the state of the module like {@link #setState(double, double)}, from a loop of any period
+     * @param speed the target speed of the wheel in [m/s]
+     * @param angle the target angle in radians
+     * @param dt the time since the last setpoint in seconds, the period of the loop which calls this
+     */
+    public void setState(double speed, double angle, double dt) {
+        double currentAngle = getAngle();
+        // the cosine is negative exactly when the target is flipped, so it both negates and scales the speed
+        setSpeed(speed * Math.cos(angle - currentAngle), dt);
+        setAngleSetpoint(getTargetAngle(angle, currentAngle));
+    }
+
+    /**
+     * sets the angle of the wheel, in consideration of the shortest path to the target angle.
+     * the wheel may end up facing the opposite direction, so this should only be used while the wheel isn't driven,
+     * otherwise use {@link #setState(double, double)}
      * @param angle the target angle in radians
      */
     public void setAngle(double angle) {
-        double targetAngle = getTargetAngle(angle, getAngle());
+        setAngleSetpoint(getTargetAngle(angle, getAngle()));
+    }
+
+    private void setAngleSetpoint(double targetAngle) {
+        // a setpoint which moves while the wheel is still settling keeps the time of the first change
+        if (Double.isNaN(settleStart) && !(Math.abs(targetAngle - angleSetpoint) <= Constants.SwerveModule.ANGLE_SETTLE_TOLERANCE))
+            settleStart = snapshot.timestamp;
+        angleSetpoint = targetAngle;
+
+        // the offset is in the native units of the sensor, so it is the same for both control modes
+        ControlMode mode = angleMotionMagic ? ControlMode.MotionMagic : ControlMode.Position;
         if (wheel % 2 == 0)
-            angleMotor.set(ControlMode.Position, unitAngle.toTicks(targetAngle) + Constants.SwerveDrive.MECHANICAL_OFFSET[wheel]);
+            angleOutput.set(mode, unitAngle.toTicks(targetAngle) + Constants.SwerveDrive.MECHANICAL_OFFSET[wheel]);
         else
-            angleMotor.set(ControlMode.Position, unitAngle.toTicks(targetAngle) - Constants.SwerveDrive.MECHANICAL_OFFSET[wheel]);
+            angleOutput.set(mode, unitAngle.toTicks(targetAngle) - Constants.SwerveDrive.MECHANICAL_OFFSET[wheel]);
+    }
+
+    /**
+     * selects between motion magic and plain position control of the steering
+     * @param motionMagic whether the steering follows the motion magic profile of the module
+     */
+    public void setAngleMotionMagic(boolean motionMagic) {
+        angleMotionMagic = motionMagic;
+    }
+
+    /**
+     * @return the time it took the wheel to settle after the last change of the angle setpoint, in seconds
+     */
+    public double getLastSettleTime() {
+        return lastSettleTime;
+    }
+
+    /**
+     * @return the longest settle time of the steering since the start, in seconds
+     */
+    public double getMaxSettleTime() {
+        return maxSettleTime;
     }
 
     /**
-     * finds the target angle of the wheel based on the shortest distance from the current position
+     * @return the average settle time of the steering since the start, in seconds
+     */
+    public double getAverageSettleTime() {
+        return averageSettleTime;
+    }
+
+    /**
+     * publishes the settle times of the steering to the dashboard
+     */
+    public void publishSettleTime() {
+        String prefix = "Swerve module " + wheel + " settle time ";
+        SmartDashboard.putNumber(prefix + "last", lastSettleTime);
+        SmartDashboard.putNumber(prefix + "average", getAverageSettleTime());
+        SmartDashboard.putNumber(prefix + "max", maxSettleTime);
+    }
+
+    /**
+     * converts the position of the angle motor to the angle of the wheel, removing the mechanical offset
+     * which is added to the setpoint in {@link #setAngle(double)}
+     * @param wheel the index of the module
+     * @param ticks the position of the angle motor
+     * @return the angle of the wheel in radians
+     */
+    public static double toWheelAngle(int wheel, double ticks) {
+        if (wheel % 2 == 0)
+            return (ticks - Constants.SwerveDrive.MECHANICAL_OFFSET[wheel]) / Constants.Drivetrain.TICKS_PER_RAD;
+        return (ticks + Constants.SwerveDrive.MECHANICAL_OFFSET[wheel]) / Constants.Drivetrain.TICKS_PER_RAD;
+    }
+
+    /**
+     * finds the target angle of the wheel which is nearest to the current angle, either the target angle itself
+     * or the opposite direction, so the wheel never steers by more than 90 degrees
      * @param angle the current target angle
      * @param currentAngle the current angle of the wheel
-     * @return the target angle
-     */
-    public double getTargetAngle(double angle, double currentAngle) {
-        // makes sure the value is between -pi and pi
-        angle = Utils.floorMod(angle, Math.PI);
-        double[] angles = {angle - 2 * Math.PI, angle, angle + 2 * Math.PI}; // An array of all possible target angles
-        double targetAngle = currentAngle;
-        double shortestDistance = Double.MAX_VALUE;
-        for (double target : angles) { // for each possible angle
-            if (Math.abs(target - currentAngle) < shortestDistance) // if the calculated distance is less than the current shortest distance
-            {
-                shortestDistance = Math.abs(target - currentAngle);
-                targetAngle = target;
-            }
-        }
+     * @return the target angle, within pi/2 of the current angle
+     */
+    public static double getTargetAngle(double angle, double currentAngle) {
+        // the target and the flipped target repeat every pi, the remainder is between -pi/2 and pi/2
+        return currentAngle + Math.IEEEremainder(angle - currentAngle, Math.PI);
+    }
 
-        return targetAngle;
+    /**
+     * drives the drive motor at a voltage, for the characterization of the drive mechanism.
+     * the setpoint cache is bypassed, so every small step of a voltage ramp is sent
+     * @param voltage the voltage in volts, relative to the voltage compensation of the motor
+     */
+    public void setDriveVoltage(double voltage) {
+        driveIO.set(ControlMode.PercentOutput, voltage / Constants.SwerveModule.NOMINAL_VOLTAGE, DemandType.Neutral, 0);
+        driveOutput.invalidate();
+        lastSpeed = 0;
+    }
+
+    /**
+     * drives the angle motor at a voltage, for the characterization of the steering mechanism.
+     * the setpoint cache is bypassed, so every small step of a voltage ramp is sent.
+     * this may be called from another thread, so the owning thread clears the setpoint first with {@link #clearAngleSetpoint()}
+     * @param voltage the voltage in volts, relative to the voltage compensation of the motor
+     */
+    public void setAngleVoltage(double voltage) {
+        angleIO.set(ControlMode.PercentOutput, voltage / Constants.SwerveModule.NOMINAL_VOLTAGE, DemandType.Neutral, 0);
+        angleOutput.invalidate();
     }
 
     /**
      * stops the angle motor
      */
     public void stopAngleMotor() {
-        angleMotor.set(ControlMode.PercentOutput, 0);
+        angleOutput.set(ControlMode.PercentOutput, 0);
+        clearAngleSetpoint();
+    }
+
+    /**
+     * clears the angle setpoint, so the wheel isn't settling towards any setpoint.
+     * this should only be called by the thread which updates and commands the module, before the angle motor is
+     * driven without a setpoint, such as by {@link #setAngleVoltage(double)}
+     */
+    public void clearAngleSetpoint() {
+        settleStart = Double.NaN;
+        angleSetpoint = Double.NaN;
+    }
+
+    /**
+     * @return the number of setpoints of both motors which were sent over CAN
+     */
+    public long getWritesSent() {
+        return driveOutput.getWritesSent() + angleOutput.getWritesSent();
+    }
+
+    /**
+     * @return the number of setpoints of both motors which were skipped because they didn't change
+     */
+    public long getWritesSuppressed() {
+        return driveOutput.getWritesSuppressed() + angleOutput.getWritesSuppressed();
     }
 
 
@@ -0,0 +1,251 @@
+package frc.robot.subsystems.drivetrain;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.interfaces.Gyro;
+import frc.robot.Constants;
+import frc.robot.utilities.LoopTimeRecorder;
+import frc.robot.vision.VisionInput;
+
+/**
+ * Wheel odometry of the swerve drive, integrated on its own thread at a higher rate than the main loop.
+ * The pose is in the field coordinate system of the field oriented drive: x is the strafe direction,
+ * y is the forward direction and the heading is the gyro angle in radians, clockwise positive like the navX.
+ * <p>
+ * The odometry steps are kept by a {@link PoseEstimator}, which fuses the delayed measurements of the vision input
+ * at the time they were taken, so the latency of the vision doesn't pull the pose back in time.
+ * The wheels are weighted by their traction, so a slipping wheel barely moves the pose.
+ * <p>
+ * The latest pose is published to the main thread through a sequence lock, so neither thread ever blocks
+ * and nothing is allocated per update.
+ */
+public class SwerveOdometry {
+    private final SwerveModule[] swerveModules;
+    private final Gyro gyro;
+    private final double period;
+    private final Notifier notifier;
+
+    // owned by the odometry thread, the kinematics buffers are not shared with the main thread
+    private final SwerveKinematics kinematics = new SwerveKinematics(Constants.SwerveDrive.ROBOT_WIDTH, Constants.SwerveDrive.ROBOT_LENGTH);
+    private final ModuleSnapshot[] snapshots;
+    private final double[] lastPositions;
+    private final double[] distances;
+    private final double[] angles;
+    private final double[] displacement = new double[3];
+    private final double[] velocities;
+    private final TractionControl traction = new TractionControl(kinematics);
+    private final LoopTimeRecorder updateTime;
+    private final PoseEstimator estimator = new PoseEstimator(Constants.PoseEstimation.HISTORY_SIZE,
+            Constants.PoseEstimation.ODOMETRY_STD, Constants.PoseEstimation.HEADING_STD,
+            Constants.PoseEstimation.VISION_STD_XY, Constants.PoseEstimation.VISION_STD_HEADING);
+    private final double[] measurement = new double[VisionInput.MEASUREMENT_SIZE];
+    private final double[] estimatedPose = new double[3];
+    private volatile VisionInput visionInput = null;
+
+    // the pose the integration starts from, only touched by the odometry thread
+    private boolean initialized = false;
+    private double x = 0;
+    private double y = 0;
+    private double lastHeading = 0;
+    private double headingOffset = 0;
+
+    // the published pose, guarded by the sequence, which is odd while the pose is being written
+    private volatile int sequence = 0;
+    private volatile double publishedX = 0;
+    private volatile double publishedY = 0;
+    private volatile double publishedHeading = 0;
+    private volatile double publishedTimestamp = 0;
+
+    // a reset requested by the main thread, applied by the odometry thread on its next update.
+    // the reset is pending until the odometry thread published a pose which starts from it
+    private volatile int resetRequests = 0;
+    private volatile int appliedResets = 0;
+    private volatile double resetX;
+    private volatile double resetY;
+    private volatile double resetHeading;
+
+    /**
+     * @param swerveModules the modules of the drivetrain
+     * @param gyro the gyro of the robot
+     * @param period the period of the odometry loop in seconds
+     */
+    public SwerveOdometry(SwerveModule[] swerveModules, Gyro gyro, double period) {
+        this.swerveModules = swerveModules;
+        this.gyro = gyro;
+        this.period = period;
+
+        snapshots = new ModuleSnapshot[swerveModules.length];
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = new ModuleSnapshot();
+        }
+        lastPositions = new double[swerveModules.length];
+        distances = new double[swerveModules.length];
+        angles = new double[swerveModules.length];
+        velocities = new double[swerveModules.length];
+
+        updateTime = new LoopTimeRecorder("Odometry", period, Constants.LoopTiming.HISTOGRAM_BIN_WIDTH / 10,
+                Constants.LoopTiming.HISTOGRAM_BINS, Constants.LoopTiming.HISTORY_SIZE);
+        notifier = new Notifier(this::update);
+    }
+
+    /**
+     * starts updating the odometry periodically on its own thread
+     */
+    public void start() {
+        notifier.startPeriodic(period);
+    }
+
+    /**
+     * stops updating the odometry
+     */
+    public void stop() {
+        notifier.stop();
+    }
+
+    /**
+     * samples the modules and the gyro and integrates the pose.
+     * this is called by the odometry thread, and should only be called directly when the thread isn't running.
+     */
+    public void update() {
+        updateTime.start();
+        update(Timer.getFPGATimestamp());
+        updateTime.stop();
+    }
+
+    /**
+     * samples the modules and the gyro and integrates the pose
+     * @param timestamp the time of the sample in seconds
+     */
+    public void update(double timestamp) {
+        for (int i = 0; i < swerveModules.length; i++) {
+            swerveModules[i].readSensors(snapshots[i], timestamp);
+        }
+        double heading = Math.toRadians(gyro.getAngle());
+
+        int resetRequests = this.resetRequests;
+        if (resetRequests != appliedResets) {
+            x = resetX;
+            y = resetY;
+            headingOffset = resetHeading - heading;
+            initialized = false;
+        }
+
+        if (initialized) {
+            for (int i = 0; i < swerveModules.length; i++) {
+                distances[i] = snapshots[i].drivePosition - lastPositions[i];
+                angles[i] = snapshots[i].angle;
+            }
+            // the slip is detected from the velocities the Talons measure, so the wheels which slipped count less.
+            // the distances over a step can't be used, since the feedback frames of the Talons arrive out of phase
+            // and at a longer period than the odometry, so a wheel moves either nothing or several frames in a step
+            for (int i = 0; i < swerveModules.length; i++) {
+                velocities[i] = snapshots[i].driveVelocity;
+            }
+            traction.update(velocities, angles, Math.toRadians(gyro.getRate()));
+            // the displacement of the robot in its own coordinate system
+            kinematics.toRobotHeading(distances, angles, traction.getWeights(), displacement);
+
+            // the estimator rotates the displacement to the field coordinate system by the mean heading over the step.
+            // the gyro angle is clockwise positive, like the rotation of the robot heading
+            estimator.addOdometry(timestamp, displacement[0], displacement[1], (lastHeading + heading) / 2, heading);
+        } else {
+            estimator.reset(timestamp, x, y, heading + headingOffset, heading);
+            traction.reset();
+        }
+        for (int i = 0; i < swerveModules.length; i++) {
+            lastPositions[i] = snapshots[i].drivePosition;
+        }
+        lastHeading = heading;
+        initialized = true;
+
+        VisionInput visionInput = this.visionInput;
+        if (visionInput != null) {
+            while (visionInput.poll(measurement)) {
+                estimator.addMeasurement(measurement[VisionInput.TIMESTAMP], measurement[VisionInput.X],
+                        measurement[VisionInput.Y], measurement[VisionInput.HEADING]);
+            }
+        }
+
+        estimator.getPose(estimatedPose);
+        publish(estimatedPose[0], estimatedPose[1], estimatedPose[2], timestamp);
+        appliedResets = resetRequests;
+    }
+
+    private void publish(double x, double y, double heading, double timestamp) {
+        sequence++;
+        publishedX = x;
+        publishedY = y;
+        publishedHeading = heading;
+        publishedTimestamp = timestamp;
+        sequence++;
+    }
+
+    /**
+     * reads the latest pose without blocking the odometry thread
+     * @param pose an array of length 3 which is filled with the pose [x, y, heading]
+     * @return the time of the pose in seconds
+     */
+    public double getPose(double[] pose) {
+        while (true) {
+            int start = sequence;
+            if ((start & 1) == 0) {
+                double timestamp = publishedTimestamp;
+                pose[0] = publishedX;
+                pose[1] = publishedY;
+                pose[2] = publishedHeading;
+                if (sequence == start)
+                    return timestamp;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * resets the pose, the reset is applied on the next update of the odometry thread, see {@link #isResetPending()}
+     * @param x the x position in meters
+     * @param y the y position in meters
+     * @param heading the heading in radians
+     */
+    public void resetPose(double x, double y, double heading) {
+        resetX = x;
+        resetY = y;
+        resetHeading = heading;
+        resetRequests++;
+    }
+
+    /**
+     * @return whether a reset was requested, and the odometry thread didn't publish a pose which starts from it yet
+     */
+    public boolean isResetPending() {
+        return appliedResets != resetRequests;
+    }
+
+    /**
+     * sets the source of the measurements which are fused with the odometry, polled by the odometry thread
+     * @param visionInput the vision input, or null to use the odometry alone
+     */
+    public void setVisionInput(VisionInput visionInput) {
+        this.visionInput = visionInput;
+    }
+
+    /**
+     * @return the estimator of the pose, which should only be read when the odometry thread isn't running
+     */
+    public PoseEstimator getEstimator() {
+        return estimator;
+    }
+
+    /**
+     * @return the slip detection of the odometry, which should only be read when the odometry thread isn't running
+     */
+    public TractionControl getTraction() {
+        return traction;
+    }
+
+    /**
+     * @return the timing of the updates of the odometry thread
+     */
+    public LoopTimeRecorder getUpdateTime() {
+        return updateTime;
+    }
+}
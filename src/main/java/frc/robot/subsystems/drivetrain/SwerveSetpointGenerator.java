@@ -0,0 +1,120 @@
+package frc.robot.subsystems.drivetrain;
+
+/**
+ * Turns the requested robot heading into module states which the drivetrain can reach within one loop period.
+ * <ul>
+ *     <li>the heading is scaled down so that no wheel is faster than the max velocity, keeping its direction</li>
+ *     <li>the change of the heading is limited so that no wheel accelerates faster than the max acceleration</li>
+ *     <li>each wheel steers by at most the max steering rate, and its speed is projected on the direction it
+ *     actually points to, like the cosine scaling of {@link SwerveModule#setState(double, double)}</li>
+ * </ul>
+ * Wheels which aren't asked to move keep their last angle instead of steering back to zero.
+ * Nothing is allocated per cycle, and the generator should only be used by one thread.
+ */
+public class SwerveSetpointGenerator {
+    // a wheel slower than this doesn't have a meaningful direction, in m/s
+    private static final double STOPPED_EPSILON = 1e-6;
+
+    private final SwerveKinematics kinematics;
+    private final double maxVelocity;
+    private final double maxAcceleration;
+    private final double maxSteeringRate;
+
+    // the state of the last setpoint
+    private final double[] setpoint = new double[3];
+    private final double[] lastAngles;
+
+    private final double[] desired = new double[3];
+    private final double[] change = new double[3];
+    private final double[] wheelVelocities;
+    private final double[] targetSpeeds;
+    private final double[] targetAngles;
+
+    /**
+     * @param kinematics the kinematics of the drivetrain
+     * @param maxVelocity the max velocity of each wheel in m/s
+     * @param maxAcceleration the max acceleration of each wheel in m/s^2
+     * @param maxSteeringRate the max angular velocity of the steering of each wheel in rad/s
+     */
+    public SwerveSetpointGenerator(SwerveKinematics kinematics, double maxVelocity, double maxAcceleration, double maxSteeringRate) {
+        this.kinematics = kinematics;
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+        this.maxSteeringRate = maxSteeringRate;
+        lastAngles = new double[kinematics.getModuleCount()];
+        wheelVelocities = new double[2 * kinematics.getModuleCount()];
+        targetSpeeds = new double[kinematics.getModuleCount()];
+        targetAngles = new double[kinematics.getModuleCount()];
+    }
+
+    /**
+     * resets the generator to a robot at rest
+     * @param angles the current angle of each wheel in radians
+     */
+    public void reset(double[] angles) {
+        setpoint[0] = setpoint[1] = setpoint[2] = 0;
+        System.arraycopy(angles, 0, lastAngles, 0, lastAngles.length);
+    }
+
+    /**
+     * calculates the next setpoint
+     * @param robotHeading the requested robot heading [forward, strafe, rotation], which isn't modified
+     * @param dt the loop period in seconds
+     * @param speeds an array of the module count which is filled with the speed of each wheel, negative when it drives backwards
+     * @param angles an array of the module count which is filled with the angle of each wheel
+     */
+    public void generate(double[] robotHeading, double dt, double[] speeds, double[] angles) {
+        // scales the heading down until the fastest wheel is at the max velocity
+        kinematics.calculateWheelVelocities(robotHeading, wheelVelocities);
+        double scale = Math.min(1, maxVelocity / maxWheelSpeed(wheelVelocities));
+        for (int i = 0; i < 3; i++) {
+            desired[i] = robotHeading[i] * scale;
+        }
+
+        // the wheel velocities are linear in the heading, so scaling the change of the heading scales the change
+        // of every wheel velocity by the same factor
+        for (int i = 0; i < 3; i++) {
+            change[i] = desired[i] - setpoint[i];
+        }
+        kinematics.calculateWheelVelocities(change, wheelVelocities);
+        double maxChange = maxWheelSpeed(wheelVelocities);
+        double changeScale = maxChange == 0 ? 1 : Math.min(1, maxAcceleration * dt / maxChange);
+        for (int i = 0; i < 3; i++) {
+            setpoint[i] += change[i] * changeScale;
+        }
+
+        kinematics.calculateWheelVelocities(setpoint, wheelVelocities);
+        kinematics.toModuleStates(wheelVelocities, targetSpeeds, targetAngles);
+        double maxSteering = maxSteeringRate * dt;
+        for (int k = 0; k < targetSpeeds.length; k++) {
+            if (targetSpeeds[k] < STOPPED_EPSILON) {
+                speeds[k] = 0;
+                angles[k] = lastAngles[k];
+                continue;
+            }
+            // steers towards the target or its opposite, whichever is nearer
+            double steering = Math.IEEEremainder(targetAngles[k] - lastAngles[k], Math.PI);
+            double angle = lastAngles[k] + Math.max(-maxSteering, Math.min(maxSteering, steering));
+            speeds[k] = targetSpeeds[k] * Math.cos(targetAngles[k] - angle);
+            angles[k] = angle;
+            lastAngles[k] = angle;
+        }
+    }
+
+    private static double maxWheelSpeed(double[] wheelVelocities) {
+        double max = 0;
+        for (int k = 0; k < wheelVelocities.length / 2; k++) {
+            double x = wheelVelocities[2 * k];
+            double y = wheelVelocities[2 * k + 1];
+            max = Math.max(max, x * x + y * y);
+        }
+        return Math.sqrt(max);
+    }
+
+    /**
+     * @param robotHeading an array of length 3 which is filled with the robot heading of the last setpoint
+     */
+    public void getSetpoint(double[] robotHeading) {
+        System.arraycopy(setpoint, 0, robotHeading, 0, 3);
+    }
+}
@@ -0,0 +1,203 @@
+package frc.robot.subsystems.drivetrain;
+
+import static frc.robot.Constants.Traction.*;
+
+/**
+ * Detects the wheels which slip, by the kinematic consistency of all of the modules with the gyro.
+ * <p>
+ * The wheels of a rigid robot which don't slip all imply the same translation of the robot, once the rotation the gyro
+ * measures is removed from their velocities. The translation the robot actually has is estimated as the median of the
+ * translations of all of the wheels, so a single slipping wheel doesn't pull it, and the slip of each wheel is its
+ * velocity along its own direction minus the velocity the estimated motion of the robot gives it there. The sideways
+ * difference isn't slip, but the error of the angle of the wheel.
+ * <p>
+ * A wheel slips when its slip exceeds a threshold which grows with its speed, since the encoders and the gyro
+ * are noisier at speed. Each wheel gets a weight for the odometry, which falls smoothly as its slip grows.
+ * Once a wheel slipped, its commanded speed is limited to the speed of the ground under it plus a fraction of the
+ * threshold, so a spinning wheel is slowed and a locked wheel is released. The limit is lifted once the wheel grips
+ * and the commanded speed is back within it, so the setpoint never jumps. A slipping wheel doesn't carry its share of
+ * the mass of the robot, so its acceleration feedforward is scaled down by its weight, and a limited wheel gets none.
+ * <p>
+ * Every instance is owned by a single thread, like the kinematics it uses, and nothing is allocated per update.
+ */
+public class TractionControl {
+    private final SwerveKinematics kinematics;
+    private final int moduleCount;
+
+    // buffers of the consensus
+    private final double[] forward;
+    private final double[] strafe;
+    private final double[] sorted;
+    private final double[] consensus = new double[3];
+    private final double[] groundVelocities;
+
+    private final double[] slip;
+    private final double[] weights;
+    private final boolean[] slipping;
+    private final boolean[] limited;
+    private final long[] slipCycles;
+
+    /**
+     * @param kinematics the kinematics of the drivetrain, owned by the same thread as this instance
+     */
+    public TractionControl(SwerveKinematics kinematics) {
+        this.kinematics = kinematics;
+        moduleCount = kinematics.getModuleCount();
+        forward = new double[moduleCount];
+        strafe = new double[moduleCount];
+        sorted = new double[moduleCount];
+        slip = new double[moduleCount];
+        weights = new double[moduleCount];
+        groundVelocities = new double[2 * moduleCount];
+        slipping = new boolean[moduleCount];
+        limited = new boolean[moduleCount];
+        slipCycles = new long[moduleCount];
+        reset();
+    }
+
+    /**
+     * resets every wheel to full traction
+     */
+    public void reset() {
+        for (int i = 0; i < moduleCount; i++) {
+            slip[i] = 0;
+            weights[i] = 1;
+            slipping[i] = false;
+            limited[i] = false;
+        }
+    }
+
+    /**
+     * estimates the slip of every wheel from a single sample of the modules and the gyro
+     * @param speeds the measured speed of each wheel in m/s
+     * @param angles the measured angle of each wheel in radians
+     * @param rotation the rotational speed of the robot the gyro measures, clockwise in radians per second
+     */
+    public void update(double[] speeds, double[] angles, double rotation) {
+        kinematics.toModuleTranslations(speeds, angles, rotation, forward, strafe);
+        consensus[0] = median(forward);
+        consensus[1] = median(strafe);
+        consensus[2] = rotation;
+        // the velocity of the ground under each wheel, by the estimated motion of the robot
+        kinematics.calculateWheelVelocities(consensus, groundVelocities);
+
+        for (int i = 0; i < moduleCount; i++) {
+            // the difference between the wheel and the ground under it, along the direction of the wheel
+            double groundSpeed = getGroundSpeed(i, angles[i]);
+            slip[i] = speeds[i] - groundSpeed;
+            double threshold = SLIP_MIN + SLIP_RATIO * Math.abs(groundSpeed);
+            slipping[i] = Math.abs(slip[i]) > threshold;
+            weights[i] = Math.max(MIN_WEIGHT, threshold * threshold / (threshold * threshold + slip[i] * slip[i]));
+            if (slipping[i]) {
+                limited[i] = true;
+                slipCycles[i]++;
+            }
+        }
+    }
+
+    /**
+     * limits the commanded speed of a wheel which slipped to the speed of the ground under it,
+     * plus {@link frc.robot.Constants.Traction#GRIP_RATIO} of the slip threshold
+     * @param wheel the index of the module
+     * @param speed the commanded speed of the wheel in m/s
+     * @param angle the commanded angle of the wheel in radians
+     * @return the limited speed in m/s
+     */
+    public double limitSpeed(int wheel, double speed, double angle) {
+        if (!limited[wheel])
+            return speed;
+        double groundSpeed = getGroundSpeed(wheel, angle);
+        double allowedSlip = GRIP_RATIO * (SLIP_MIN + SLIP_RATIO * Math.abs(groundSpeed));
+        if (!slipping[wheel] && Math.abs(speed - groundSpeed) <= allowedSlip) {
+            // the wheel grips and the ground caught up with the command, so the limit is lifted without a jump of the setpoint
+            limited[wheel] = false;
+            return speed;
+        }
+        return Math.max(groundSpeed - allowedSlip, Math.min(groundSpeed + allowedSlip, speed));
+    }
+
+    /**
+     * @param wheel the index of the module
+     * @param angle the angle of the wheel in radians, measured from the Y axis
+     * @return the speed of the ground under the wheel along the angle, by the last update
+     */
+    private double getGroundSpeed(int wheel, double angle) {
+        return groundVelocities[2 * wheel] * Math.sin(angle) + groundVelocities[2 * wheel + 1] * Math.cos(angle);
+    }
+
+    /**
+     * @param values the values, which are copied so their order is kept
+     * @return the median of the values
+     */
+    private double median(double[] values) {
+        // insertion sort, which is the fastest for the few modules of a robot
+        for (int i = 0; i < moduleCount; i++) {
+            double value = values[i];
+            int j = i - 1;
+            while (j >= 0 && sorted[j] > value) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = value;
+        }
+        int middle = moduleCount / 2;
+        return moduleCount % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    /**
+     * @param wheel the index of the module
+     * @return the slip of the wheel in m/s, positive when the wheel is faster than the ground along its direction
+     */
+    public double getSlip(int wheel) {
+        return slip[wheel];
+    }
+
+    /**
+     * @param wheel the index of the module
+     * @return whether the wheel slipped on the last update
+     */
+    public boolean isSlipping(int wheel) {
+        return slipping[wheel];
+    }
+
+    /**
+     * @param wheel the index of the module
+     * @return the weight of the wheel in the odometry, between {@link frc.robot.Constants.Traction#MIN_WEIGHT} and 1
+     */
+    public double getWeight(int wheel) {
+        return weights[wheel];
+    }
+
+    /**
+     * kA of the drive is characterized with the wheel carrying its share of the mass of the robot, so the full
+     * acceleration feedforward only spins a slipping wheel faster, and would undo the limit of its speed
+     * @param wheel the index of the module
+     * @return the share of the acceleration feedforward of the wheel, 0 while its speed is limited and its weight otherwise
+     */
+    public double getAccelerationShare(int wheel) {
+        return limited[wheel] ? 0 : weights[wheel];
+    }
+
+    /**
+     * @return the weights of all of the wheels, which should only be read by the thread which owns this instance
+     */
+    public double[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * @param wheel the index of the module
+     * @return whether the commanded speed of the wheel is limited since it slipped
+     */
+    public boolean isLimited(int wheel) {
+        return limited[wheel];
+    }
+
+    /**
+     * @param wheel the index of the module
+     * @return the number of updates on which the wheel slipped
+     */
+    public long getSlipCycles(int wheel) {
+        return slipCycles[wheel];
+    }
+}
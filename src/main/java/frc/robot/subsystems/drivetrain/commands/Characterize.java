@@ -0,0 +1,300 @@
+package frc.robot.subsystems.drivetrain.commands;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.Constants;
+import frc.robot.subsystems.drivetrain.DriveLoop;
+import frc.robot.subsystems.drivetrain.ModuleSnapshot;
+import frc.robot.subsystems.drivetrain.SwerveDrive;
+import frc.robot.subsystems.drivetrain.SwerveModule;
+import frc.robot.utilities.CharacterizationLog;
+import frc.robot.utilities.FeedforwardSolver;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static frc.robot.Constants.Characterization.*;
+
+/**
+ * Characterizes the drive or the steering mechanism of every module, by the feedforward model
+ * V = kS * sign(v) + kV * v + kA * a.
+ * <p>
+ * The routine runs four voltage tests, each after the mechanism came to rest: a quasistatic ramp forward and
+ * backward, where the acceleration is negligible so the voltage is split between kS and kV, and a dynamic step
+ * forward and backward, which determines kA. The drive tests keep the wheels straight, and end before the robot
+ * travels too far. The voltages, positions and velocities of every module are sampled on their own thread at a
+ * higher rate than the main loop into a preallocated log, and when the routine ends the gains of every module are
+ * solved, reported, and the log is dumped so it can be solved again offline with {@link FeedforwardSolver}.
+ * The solution and the dump run on a background thread, since they take longer than a cycle of the main loop.
+ */
+public class Characterize extends CommandBase {
+    public static final int DRIVE = 0;
+    public static final int STEER = 1;
+
+    // the runs of the routine, each of them after a rest
+    private static final int QUASISTATIC_FORWARD = 0;
+    private static final int QUASISTATIC_BACKWARD = 1;
+    private static final int DYNAMIC_FORWARD = 2;
+    private static final int DYNAMIC_BACKWARD = 3;
+    private static final int RUNS = 4;
+
+    private final SwerveDrive swerveDrive;
+    private final int mechanism;
+    private final CharacterizationLog log;
+    private final Path dumpFile;
+    private final Notifier notifier;
+
+    // only touched by the sampling thread while the routine runs
+    private final ModuleSnapshot[] snapshots;
+    private final double[] voltages;
+    private final double[] positions;
+    private final double[] velocities;
+    private final double[] startPositions;
+    private int phase; // even phases rest, and odd phases are the runs
+    private double phaseStart;
+
+    // held by every sample, so once the routine ends under it no sample drives the modules or writes the log
+    private final Object sampleLock = new Object();
+    private volatile boolean finished = false;
+    private DriveLoop pausedDriveLoop = null;
+
+    // the solver and the gains are only touched by the analysis thread, until the analysis is awaited
+    private final ExecutorService analysisExecutor;
+    private Future<?> analysis = null;
+    private final FeedforwardSolver solver = new FeedforwardSolver();
+    private final double[][] gains;
+    private final double[] fits;
+
+    /**
+     * @param swerveDrive the drivetrain
+     * @param mechanism the characterized mechanism, {@link #DRIVE} or {@link #STEER}
+     * @param log the log of the samples, with a channel for every module
+     * @param dumpFile the file the log is dumped to when the routine ends
+     */
+    public Characterize(SwerveDrive swerveDrive, int mechanism, CharacterizationLog log, Path dumpFile) {
+        this.swerveDrive = swerveDrive;
+        this.mechanism = mechanism;
+        this.log = log;
+        this.dumpFile = dumpFile;
+
+        int modules = swerveDrive.swerveModules.length;
+        snapshots = new ModuleSnapshot[modules];
+        for (int i = 0; i < modules; i++) {
+            snapshots[i] = new ModuleSnapshot();
+        }
+        voltages = new double[modules];
+        positions = new double[modules];
+        velocities = new double[modules];
+        startPositions = new double[modules];
+        gains = new double[modules][FeedforwardSolver.GAINS_SIZE];
+        fits = new double[modules];
+
+        notifier = new Notifier(() -> sample(Timer.getFPGATimestamp()));
+        analysisExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Characterization analysis");
+            thread.setDaemon(true);
+            return thread;
+        });
+        addRequirements(swerveDrive);
+    }
+
+    @Override
+    public void initialize() {
+        // the log of the previous routine may still be dumped
+        awaitAnalysis();
+        // the modules are only driven by the characterization while it runs
+        pausedDriveLoop = swerveDrive.getDriveLoop();
+        if (pausedDriveLoop != null)
+            pausedDriveLoop.stop();
+
+        log.clear();
+        phase = 0;
+        phaseStart = Double.NaN;
+        finished = false;
+        for (SwerveModule swerveModule : swerveDrive.swerveModules) {
+            swerveModule.setDriveVoltage(0);
+            // the wheels settle straight during the first rest
+            if (mechanism == DRIVE) {
+                swerveModule.setAngle(0);
+            } else {
+                // the steering is driven by voltages, so no settle time is measured until the routine ends
+                swerveModule.clearAngleSetpoint();
+                swerveModule.setAngleVoltage(0);
+            }
+        }
+        notifier.startPeriodic(PERIOD);
+    }
+
+    /**
+     * a single sample of the routine, called by the sampling thread.
+     * this should only be called directly when the thread isn't running, such as in the simulation.
+     * @param timestamp the current time in seconds
+     */
+    public void sample(double timestamp) {
+        synchronized (sampleLock) {
+            if (!finished)
+                step(timestamp);
+        }
+    }
+
+    /**
+     * a sample of the routine, while the lock of the samples is held and the routine didn't end
+     * @param timestamp the current time in seconds
+     */
+    private void step(double timestamp) {
+        if (Double.isNaN(phaseStart))
+            phaseStart = timestamp;
+        SwerveModule[] swerveModules = swerveDrive.swerveModules;
+        for (int i = 0; i < swerveModules.length; i++) {
+            swerveModules[i].readSensors(snapshots[i], timestamp);
+            ModuleSnapshot snapshot = snapshots[i];
+            // voltage compensation scales the output to the nominal voltage
+            voltages[i] = (mechanism == DRIVE ? snapshot.driveOutput : snapshot.angleOutput)
+                    * Constants.SwerveModule.NOMINAL_VOLTAGE;
+            positions[i] = mechanism == DRIVE ? snapshot.drivePosition : snapshot.angle;
+            velocities[i] = mechanism == DRIVE ? snapshot.driveVelocity : snapshot.angleVelocity;
+        }
+
+        double elapsed = timestamp - phaseStart;
+        if (phase % 2 == 0) {
+            apply(0);
+            if (elapsed >= REST_TIME)
+                nextPhase(timestamp);
+            return;
+        }
+
+        int run = phase / 2;
+        if (!log.add(timestamp, voltages, positions, velocities)) {
+            finish();
+            return;
+        }
+        boolean quasistatic = run == QUASISTATIC_FORWARD || run == QUASISTATIC_BACKWARD;
+        double voltage = quasistatic ? QUASISTATIC_RAMP * elapsed : DYNAMIC_VOLTAGE;
+        boolean done = quasistatic ? voltage > MAX_VOLTAGE : elapsed >= DYNAMIC_DURATION;
+        if (mechanism == DRIVE) {
+            for (int i = 0; i < swerveModules.length; i++) {
+                done |= Math.abs(positions[i] - startPositions[i]) >= DRIVE_DISTANCE;
+            }
+        }
+
+        if (done) {
+            apply(0);
+            nextPhase(timestamp);
+        } else {
+            apply(run == QUASISTATIC_FORWARD || run == DYNAMIC_FORWARD ? voltage : -voltage);
+        }
+    }
+
+    private void nextPhase(double timestamp) {
+        phase++;
+        phaseStart = timestamp;
+        if (phase == 2 * RUNS + 1) {
+            finish();
+            return;
+        }
+        if (phase % 2 == 1) {
+            log.startRun();
+            System.arraycopy(positions, 0, startPositions, 0, positions.length);
+        }
+    }
+
+    private void finish() {
+        apply(0);
+        finished = true;
+    }
+
+    private void apply(double voltage) {
+        SwerveModule[] swerveModules = swerveDrive.swerveModules;
+        for (int i = 0; i < swerveModules.length; i++) {
+            if (mechanism == DRIVE) {
+                // a wheel which settled on the opposite direction drives backwards, so the robot drives straight
+                swerveModules[i].setDriveVoltage(Math.cos(snapshots[i].angle) < 0 ? -voltage : voltage);
+            } else {
+                swerveModules[i].setAngleVoltage(voltage);
+            }
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        // the notifier doesn't wait for a sample which already runs, so the routine is ended under the lock of the samples
+        notifier.stop();
+        synchronized (sampleLock) {
+            finished = true;
+        }
+        for (SwerveModule swerveModule : swerveDrive.swerveModules) {
+            swerveModule.setDriveVoltage(0);
+            if (mechanism == STEER)
+                swerveModule.setAngleVoltage(0);
+        }
+        if (pausedDriveLoop != null)
+            pausedDriveLoop.start();
+
+        analysis = analysisExecutor.submit(this::analyze);
+    }
+
+    /**
+     * solves the gains of every module, reports them, and dumps the log, on the analysis thread
+     */
+    private void analyze() {
+        String name = mechanism == DRIVE ? "Drive" : "Steer";
+        for (int i = 0; i < gains.length; i++) {
+            solver.reset();
+            solver.add(log, i, MIN_VELOCITY);
+            fits[i] = solver.solve(gains[i]);
+            System.out.printf("%s characterization of module %d: kS = %.4f, kV = %.4f, kA = %.4f, r^2 = %.4f over %d samples%n",
+                    name, i, gains[i][FeedforwardSolver.KS], gains[i][FeedforwardSolver.KV], gains[i][FeedforwardSolver.KA],
+                    fits[i], solver.getSamples());
+            SmartDashboard.putNumber("Characterization/" + name + " " + i + " kS", gains[i][FeedforwardSolver.KS]);
+            SmartDashboard.putNumber("Characterization/" + name + " " + i + " kV", gains[i][FeedforwardSolver.KV]);
+            SmartDashboard.putNumber("Characterization/" + name + " " + i + " kA", gains[i][FeedforwardSolver.KA]);
+            SmartDashboard.putNumber("Characterization/" + name + " " + i + " r^2", fits[i]);
+        }
+
+        try {
+            log.dump(dumpFile);
+        } catch (IOException e) {
+            DriverStation.reportError("Failed to dump the characterization log: " + e.getMessage(), false);
+        }
+    }
+
+    /**
+     * waits until the gains of the last routine are solved and its log is dumped
+     */
+    public void awaitAnalysis() {
+        if (analysis == null)
+            return;
+        try {
+            analysis.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            DriverStation.reportError("The characterization analysis failed: " + e.getCause(), false);
+        }
+    }
+
+    /**
+     * waits for the analysis of the last routine, so this shouldn't be called by the main loop right after it ends
+     * @param module the index of the module
+     * @param gains an array of length {@value FeedforwardSolver#GAINS_SIZE} which is filled with the [kS, kV, kA]
+     *              the last run solved for the module
+     * @return the coefficient of determination of the fit
+     */
+    public double getGains(int module, double[] gains) {
+        awaitAnalysis();
+        System.arraycopy(this.gains[module], 0, gains, 0, FeedforwardSolver.GAINS_SIZE);
+        return fits[module];
+    }
+}
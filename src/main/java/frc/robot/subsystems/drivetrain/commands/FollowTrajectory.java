@@ -0,0 +1,77 @@
+package frc.robot.subsystems.drivetrain.commands;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.Constants;
+import frc.robot.subsystems.drivetrain.SwerveDrive;
+import frc.robot.subsystems.drivetrain.trajectory.Trajectory;
+
+/**
+ * Follows a precomputed trajectory with the velocities of the trajectory as a feedforward,
+ * corrected by the error of the odometry pose. Nothing is allocated while the command runs.
+ */
+public class FollowTrajectory extends CommandBase {
+    private final SwerveDrive swerveDrive;
+    private final Trajectory trajectory;
+
+    private final double[] state = new double[Trajectory.STATE_SIZE];
+    private final double[] pose = new double[3];
+    private double startTime; // NaN until the odometry applied the reset to the start of the trajectory
+
+    public FollowTrajectory(SwerveDrive swerveDrive, Trajectory trajectory) {
+        this.swerveDrive = swerveDrive;
+        this.trajectory = trajectory;
+        addRequirements(swerveDrive);
+    }
+
+    @Override
+    public void initialize() {
+        // the trajectory starts where the robot is placed at the start of the match
+        trajectory.sample(0, state);
+        swerveDrive.getOdometry().resetPose(state[0], state[1], state[2]);
+        startTime = Double.NaN;
+    }
+
+    @Override
+    public void execute() {
+        if (Double.isNaN(startTime)) {
+            // the reset is applied by the odometry thread, so the robot waits for a pose which starts from it
+            if (swerveDrive.getOdometry().isResetPending()) {
+                swerveDrive.robotOrientedDrive(0, 0, 0);
+                return;
+            }
+            startTime = Timer.getFPGATimestamp();
+        }
+        trajectory.sample(Timer.getFPGATimestamp() - startTime, state);
+        swerveDrive.getPose(pose);
+
+        // the field velocity, corrected towards the trajectory
+        double xVelocity = state[3] + Constants.Autonomous.KP_TRANSLATION * (state[0] - pose[0]);
+        double yVelocity = state[4] + Constants.Autonomous.KP_TRANSLATION * (state[1] - pose[1]);
+        double angularVelocity = state[5] + Constants.Autonomous.KP_ROTATION * (state[2] - pose[2]);
+
+        // rotates the field velocity to the coordinate system of the robot, the inverse of the odometry rotation
+        double cos = Math.cos(pose[2]);
+        double sin = Math.sin(pose[2]);
+        double forward = cos * yVelocity + sin * xVelocity;
+        double strafe = cos * xVelocity - sin * yVelocity;
+        swerveDrive.robotOrientedDrive(forward, strafe, angularVelocity);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return !Double.isNaN(startTime) && Timer.getFPGATimestamp() - startTime >= trajectory.getDuration();
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        swerveDrive.stop();
+    }
+
+    /**
+     * @return the trajectory which is followed
+     */
+    public Trajectory getTrajectory() {
+        return trajectory;
+    }
+}
@@ -1,16 +1,21 @@
 package frc.robot.subsystems.drivetrain.commands;
 
 import edu.wpi.first.wpilibj2.command.CommandBase;
-import frc.robot.Constants;
-import frc.robot.OI;
+import frc.robot.input.DriverInput;
 import frc.robot.subsystems.drivetrain.SwerveDrive;
 
 public class HolonomicDrive extends CommandBase {
 
     private SwerveDrive swerveDrive;
+    private final DriverInput driverInput;
 
-    public HolonomicDrive(SwerveDrive swerveDrive) {
+    /**
+     * @param swerveDrive the drivetrain
+     * @param driverInput the input of the driver, which applies the deadband and the response curves
+     */
+    public HolonomicDrive(SwerveDrive swerveDrive, DriverInput driverInput) {
         this.swerveDrive = swerveDrive;
+        this.driverInput = driverInput;
     }
 
     @Override
@@ -18,26 +23,7 @@ public class HolonomicDrive extends CommandBase {
 
     @Override
     public void execute() {
-        double forward = -OI.getJoystickY();
-        double strafe = OI.getJoystickX();
-        double rotation = OI.getJoystickZ();
-
-        forward = joystickDeadband(forward);
-        strafe = joystickDeadband(strafe);
-        rotation = joystickDeadband(rotation);
-
-        swerveDrive.holonomicDrive(forward, strafe, rotation);
-    }
-
-    /**
-     * sets the value of the joystick to 0 if the value is less than the threshold
-     * @param val the joystick value
-     * @return 0 if val is less than the threshold else val
-     */
-    private double joystickDeadband(double val) {
-        if (val < Constants.SwerveDrive.JOYSTICK_THRESHOLD)
-            return 0;
-        return val;
+        swerveDrive.holonomicDrive(driverInput);
     }
 
     @Override
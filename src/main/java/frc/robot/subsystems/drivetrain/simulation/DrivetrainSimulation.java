@@ -0,0 +1,193 @@
+package frc.robot.subsystems.drivetrain.simulation;
+
+import frc.robot.Constants;
+import frc.robot.subsystems.drivetrain.GyroService;
+import frc.robot.subsystems.drivetrain.SwerveDrive;
+import frc.robot.subsystems.drivetrain.SwerveKinematics;
+import frc.robot.subsystems.drivetrain.SwerveModule;
+
+import static frc.robot.Constants.Simulation.*;
+
+/**
+ * A headless physics simulation of the swerve drivetrain.
+ * Every module has a simulated drive Talon and angle Talon, which receive the same setpoints
+ * {@link SwerveModule#setSpeed(double)} and {@link SwerveModule#setAngle(double)} send to the real Talons.
+ * The mass of the robot is part of the model of each drive motor, and the chassis moves with the least squares
+ * fit of the wheel velocities, the same forward kinematics the odometry uses.
+ * <p>
+ * Slip is injected by the traction of each wheel: a wheel without full traction carries less of the mass of the robot,
+ * so its drive motor spins it up faster than the others, and the chassis follows it less.
+ * <p>
+ * The simulation is stepped at a fixed time step, independent of the wall clock, so it runs as fast as the CPU allows.
+ * The pose is in the coordinate system of {@link frc.robot.subsystems.drivetrain.SwerveOdometry}.
+ */
+public class DrivetrainSimulation {
+    private final SimulatedTalon[] driveMotors = new SimulatedTalon[4];
+    private final SimulatedTalon[] angleMotors = new SimulatedTalon[4];
+    private final SimulatedGyro gyro = new SimulatedGyro();
+    // samples the simulated gyro at the update rate of the navX, in simulated time
+    private final GyroService gyroService = new GyroService(gyro, Constants.SwerveDrive.GYRO_HISTORY_SIZE);
+    private final int gyroSamplePeriod = (int) Math.round(1.0 / Constants.SwerveDrive.NAVX_UPDATE_RATE / STEP); // in steps
+    private long steps = 0;
+    private final SwerveKinematics kinematics = new SwerveKinematics(Constants.SwerveDrive.ROBOT_WIDTH, Constants.SwerveDrive.ROBOT_LENGTH);
+
+    private final double[] wheelSpeeds = new double[4];
+    private final double[] wheelAngles = new double[4];
+    private final double[] chassisSpeeds = new double[3];
+    private final double[] traction = {1, 1, 1, 1};
+
+    private double time = 0; // in seconds
+    private double x = 0; // in meters
+    private double y = 0; // in meters
+    private double heading = 0; // in radians, clockwise positive
+
+    public DrivetrainSimulation() {
+        for (int i = 0; i < 4; i++) {
+            // the models are converted from the units of the wheel to the native units of the sensors
+            driveMotors[i] = new SimulatedTalon(DRIVE_KS, DRIVE_KV / Constants.Drivetrain.TICKS_PER_METER,
+                    DRIVE_KA / Constants.Drivetrain.TICKS_PER_METER, DRIVE_RESISTANCE);
+            angleMotors[i] = new SimulatedTalon(ANGLE_KS, ANGLE_KV / Constants.Drivetrain.TICKS_PER_RAD,
+                    ANGLE_KA / Constants.Drivetrain.TICKS_PER_RAD, ANGLE_RESISTANCE);
+            driveMotors[i].configPIDF(Constants.SwerveModule.DRIVE_KP, Constants.SwerveModule.DRIVE_KI,
+                    Constants.SwerveModule.DRIVE_KD, Constants.SwerveModule.DRIVE_KF);
+            angleMotors[i].configPIDF(ANGLE_KP, ANGLE_KI, ANGLE_KD, 0);
+            angleMotors[i].configMotionMagic(Constants.SwerveModule.ANGLE_CRUISE_VELOCITY[i], Constants.SwerveModule.ANGLE_ACCELERATION[i]);
+
+            // the wheels start straight, at the mechanical offset of the sensor
+            angleMotors[i].setPosition(i % 2 == 0 ? Constants.SwerveDrive.MECHANICAL_OFFSET[i] : -Constants.SwerveDrive.MECHANICAL_OFFSET[i]);
+        }
+        gyroService.sample(time);
+    }
+
+    /**
+     * creates a drivetrain which runs on the simulated motors and gyro
+     * @param isFieldOriented whether the drive is field oriented
+     * @return the drivetrain
+     */
+    public SwerveDrive createSwerveDrive(boolean isFieldOriented) {
+        SwerveModule[] swerveModules = new SwerveModule[4];
+        for (int i = 0; i < 4; i++) {
+            swerveModules[i] = new SwerveModule(i, driveMotors[i], angleMotors[i]);
+        }
+        return new SwerveDrive(isFieldOriented, gyroService, swerveModules);
+    }
+
+    /**
+     * advances the simulation in steps of {@link Constants.Simulation#STEP}
+     * @param dt the time to advance in seconds
+     */
+    public void step(double dt) {
+        int steps = (int) Math.round(dt / STEP);
+        for (int i = 0; i < steps; i++) {
+            substep(STEP);
+        }
+    }
+
+    private void substep(double dt) {
+        for (int i = 0; i < 4; i++) {
+            driveMotors[i].step(dt);
+            angleMotors[i].step(dt);
+            wheelSpeeds[i] = driveMotors[i].getVelocity() / Constants.Drivetrain.TICKS_PER_METER;
+            wheelAngles[i] = SwerveModule.toWheelAngle(i, angleMotors[i].getSelectedSensorPosition());
+        }
+
+        // chassisSpeeds is [forward, strafe, rotation], rotated to the field by the heading
+        kinematics.toRobotHeading(wheelSpeeds, wheelAngles, traction, chassisSpeeds);
+        double meanHeading = heading + chassisSpeeds[2] * dt / 2;
+        double cos = Math.cos(meanHeading);
+        double sin = Math.sin(meanHeading);
+        x += (sin * chassisSpeeds[0] + cos * chassisSpeeds[1]) * dt;
+        y += (cos * chassisSpeeds[0] - sin * chassisSpeeds[1]) * dt;
+        heading += chassisSpeeds[2] * dt;
+        time += dt;
+
+        gyro.setState(Math.toDegrees(heading), Math.toDegrees(chassisSpeeds[2]));
+        if (++steps % gyroSamplePeriod == 0)
+            gyroService.sample(time);
+    }
+
+    /**
+     * sets the traction of a wheel, to inject slip
+     * @param wheel the index of the module
+     * @param traction the share of the force of the wheel which reaches the ground, between 0 and 1.
+     *                 1 is full grip, and 0 is a wheel spinning freely in the air
+     */
+    public void setTraction(int wheel, double traction) {
+        this.traction[wheel] = traction;
+        // the wheel itself is all that is left of the inertia of a wheel which spins freely
+        driveMotors[wheel].setLoad(WHEEL_INERTIA + traction * (1 - WHEEL_INERTIA));
+    }
+
+    /**
+     * emulates the feedback frames of the drive Talons, which arrive out of phase with each other
+     * @param period the period of the frames in seconds, or 0 to read the sensors continuously
+     */
+    public void setFeedbackPeriod(double period) {
+        for (int i = 0; i < 4; i++) {
+            driveMotors[i].setFeedbackPeriod(period, period * i / 4);
+        }
+    }
+
+    /**
+     * @return the simulated time in seconds
+     */
+    public double getTime() {
+        return time;
+    }
+
+    /**
+     * reads the true pose of the simulated robot
+     * @param pose an array of length 3 which is filled with the pose [x, y, heading]
+     */
+    public void getPose(double[] pose) {
+        pose[0] = x;
+        pose[1] = y;
+        pose[2] = heading;
+    }
+
+    /**
+     * @param wheel the index of the module
+     * @return the true angle of the wheel in radians
+     */
+    public double getWheelAngle(int wheel) {
+        return SwerveModule.toWheelAngle(wheel, angleMotors[wheel].getSelectedSensorPosition());
+    }
+
+    /**
+     * @param wheel the index of the module
+     * @return the true speed of the wheel in m/s
+     */
+    public double getWheelSpeed(int wheel) {
+        return driveMotors[wheel].getVelocity() / Constants.Drivetrain.TICKS_PER_METER;
+    }
+
+    /**
+     * @param wheel the index of the module
+     * @return the simulated drive Talon of the module
+     */
+    public SimulatedTalon getDriveMotor(int wheel) {
+        return driveMotors[wheel];
+    }
+
+    /**
+     * @param wheel the index of the module
+     * @return the simulated angle Talon of the module
+     */
+    public SimulatedTalon getAngleMotor(int wheel) {
+        return angleMotors[wheel];
+    }
+
+    /**
+     * @return the service which samples the simulated gyro, like the navX callback on the robot
+     */
+    public GyroService getGyroService() {
+        return gyroService;
+    }
+
+    /**
+     * @return the simulated gyro
+     */
+    public SimulatedGyro getGyro() {
+        return gyro;
+    }
+}
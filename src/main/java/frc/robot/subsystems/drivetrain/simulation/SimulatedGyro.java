@@ -0,0 +1,46 @@
+package frc.robot.subsystems.drivetrain.simulation;
+
+import edu.wpi.first.wpilibj.interfaces.Gyro;
+
+/**
+ * A simulated navX, which reports the heading of the simulated chassis.
+ * Like the navX, the angle is continuous and clockwise positive, in degrees.
+ */
+public class SimulatedGyro implements Gyro {
+    private double angle = 0; // in degrees
+    private double rate = 0; // in degrees per second
+    private double offset = 0;
+
+    /**
+     * sets the true heading of the chassis
+     * @param angle the heading in degrees
+     * @param rate the angular velocity in degrees per second
+     */
+    public void setState(double angle, double rate) {
+        this.angle = angle;
+        this.rate = rate;
+    }
+
+    @Override
+    public void calibrate() {
+    }
+
+    @Override
+    public void reset() {
+        offset = angle;
+    }
+
+    @Override
+    public double getAngle() {
+        return angle - offset;
+    }
+
+    @Override
+    public double getRate() {
+        return rate;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,263 @@
+package frc.robot.subsystems.drivetrain.simulation;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
+import frc.robot.utilities.MotorIO;
+
+/**
+ * A simulated Talon driving a simulated mechanism.
+ * The mechanism follows the feedforward model V = kS * sign(v) + kV * v + kA * a, in the native units of the sensor,
+ * and the Talon closed loops are emulated at 1 kHz, with the output scaled to 1023 like on the Talon itself.
+ * Motion magic follows a trapezoidal profile towards the setpoint, and closes the position loop on the profile.
+ * Voltage compensation is always on, at {@value #NOMINAL_VOLTAGE} volts.
+ */
+public class SimulatedTalon implements MotorIO {
+    public static final double NOMINAL_VOLTAGE = 12;
+    public static final double CLOSED_LOOP_PERIOD = 0.001; // in seconds
+
+    // the model of the mechanism, in volts per native units
+    private final double kS;
+    private final double kV;
+    private final double kA;
+    private final double resistance; // in ohms
+    private double load = 1; // the inertia of the mechanism relative to the model
+
+    // the gains of the emulated closed loop
+    private double kP = 0;
+    private double kI = 0;
+    private double kD = 0;
+    private double kF = 0;
+
+    // the motion magic profile, in ticks per second and ticks per second squared
+    private double cruiseVelocity = 0;
+    private double acceleration = 0;
+    private double profilePosition = 0;
+    private double profileVelocity = 0;
+
+    private ControlMode mode = ControlMode.PercentOutput;
+    private double value = 0;
+    private DemandType demandType = DemandType.Neutral;
+    private double demand = 0;
+
+    private double position = 0; // in ticks
+    private double velocity = 0; // in ticks per second
+    private double output = 0; // between -1 and 1
+    private double current = 0; // in amperes
+
+    private double integral = 0;
+    private double lastError = 0;
+    private double closedLoopTime = 0;
+
+    // the status frame of the sensor, which holds the position and the velocity that are read between two frames
+    private double feedbackPeriod = 0; // in seconds, 0 for a sensor which is read continuously
+    private double feedbackTime = 0; // the time since the last frame
+    private double feedbackPosition = 0;
+    private double feedbackVelocity = 0;
+
+    /**
+     * @param kS the voltage needed to overcome static friction
+     * @param kV the voltage per tick per second of velocity
+     * @param kA the voltage per tick per second squared of acceleration
+     * @param resistance the winding resistance of the motor in ohms
+     */
+    public SimulatedTalon(double kS, double kV, double kA, double resistance) {
+        this.kS = kS;
+        this.kV = kV;
+        this.kA = kA;
+        this.resistance = resistance;
+    }
+
+    /**
+     * configures the gains of the closed loop, in the units of the Talon
+     */
+    public void configPIDF(double kP, double kI, double kD, double kF) {
+        this.kP = kP;
+        this.kI = kI;
+        this.kD = kD;
+        this.kF = kF;
+    }
+
+    /**
+     * configures the motion magic profile, in the units of the Talon
+     * @param cruiseVelocity the cruise velocity in ticks per 100ms
+     * @param acceleration the acceleration in ticks per 100ms per second
+     */
+    public void configMotionMagic(double cruiseVelocity, double acceleration) {
+        this.cruiseVelocity = cruiseVelocity * 10;
+        this.acceleration = acceleration * 10;
+    }
+
+    @Override
+    public void set(ControlMode mode, double value, DemandType demandType, double demand) {
+        if (mode != this.mode) {
+            integral = 0;
+            lastError = 0;
+            // like the Talon, a new profile starts from the current state of the mechanism
+            profilePosition = position;
+            profileVelocity = velocity;
+        }
+        this.mode = mode;
+        this.value = value;
+        this.demandType = demandType;
+        this.demand = demand;
+    }
+
+    /**
+     * emulates the status frame of the sensor, so the position and the velocity which are read only change once a period,
+     * like the feedback frame of a real Talon
+     * @param period the period of the frame in seconds, or 0 to read the sensor continuously
+     * @param phase the time since the last frame in seconds, so the frames of different Talons are out of phase
+     */
+    public void setFeedbackPeriod(double period, double phase) {
+        feedbackPeriod = period;
+        feedbackTime = phase;
+        feedbackPosition = position;
+        feedbackVelocity = velocity;
+    }
+
+    /**
+     * advances the simulation
+     * @param dt the time step in seconds
+     */
+    public void step(double dt) {
+        stepMechanism(dt);
+        if (feedbackPeriod > 0) {
+            feedbackTime += dt;
+            if (feedbackTime >= feedbackPeriod - dt / 2) {
+                feedbackTime -= feedbackPeriod;
+                feedbackPosition = position;
+                feedbackVelocity = velocity;
+            }
+        }
+    }
+
+    private void stepMechanism(double dt) {
+        closedLoopTime += dt;
+        if (closedLoopTime >= CLOSED_LOOP_PERIOD) {
+            closedLoopTime -= CLOSED_LOOP_PERIOD;
+            output = Math.max(-1, Math.min(1, calculateOutput()));
+        }
+
+        double voltage = output * NOMINAL_VOLTAGE;
+        // static friction holds the mechanism until the voltage overcomes it
+        if (velocity == 0 && Math.abs(voltage) <= kS) {
+            current = voltage / resistance;
+            return;
+        }
+        double frictionVoltage = kS * Math.signum(velocity == 0 ? voltage : velocity);
+        double acceleration = (voltage - frictionVoltage - kV * velocity) / (kA * load);
+        double newVelocity = velocity + acceleration * dt;
+        // friction can stop the mechanism, but never reverse it
+        if (velocity != 0 && Math.signum(newVelocity) != Math.signum(velocity) && Math.abs(voltage) <= kS)
+            newVelocity = 0;
+        position += (velocity + newVelocity) / 2 * dt;
+        velocity = newVelocity;
+        current = (voltage - kV * velocity) / resistance;
+    }
+
+    private double calculateOutput() {
+        double arbitraryFeedForward = demandType == DemandType.ArbitraryFeedForward ? demand : 0;
+        double error;
+        switch (mode) {
+            case PercentOutput:
+                return value + arbitraryFeedForward;
+            case Position:
+                error = value - position;
+                break;
+            case Velocity:
+                error = value - getSelectedSensorVelocity();
+                break;
+            case MotionMagic:
+                stepProfile();
+                error = profilePosition - position;
+                integral += error;
+                double profileDerivative = error - lastError;
+                lastError = error;
+                return (kP * error + kI * integral + kD * profileDerivative + kF * profileVelocity / 10) / 1023 + arbitraryFeedForward;
+            default:
+                return 0;
+        }
+        integral += error;
+        double derivative = error - lastError;
+        lastError = error;
+        return (kP * error + kI * integral + kD * derivative + kF * value) / 1023 + arbitraryFeedForward;
+    }
+
+    private void stepProfile() {
+        double distance = value - profilePosition;
+        // the fastest velocity from which the profile can still stop at the setpoint
+        double targetVelocity = Math.signum(distance) * Math.min(cruiseVelocity, Math.sqrt(2 * acceleration * Math.abs(distance)));
+        double maxChange = acceleration * CLOSED_LOOP_PERIOD;
+        profileVelocity += Math.max(-maxChange, Math.min(maxChange, targetVelocity - profileVelocity));
+        profilePosition += profileVelocity * CLOSED_LOOP_PERIOD;
+        if (Math.abs(value - profilePosition) < Math.abs(profileVelocity) * CLOSED_LOOP_PERIOD && Math.abs(profileVelocity) <= maxChange) {
+            profilePosition = value;
+            profileVelocity = 0;
+        }
+    }
+
+    /**
+     * sets the position of the mechanism
+     * @param position the position in ticks
+     */
+    public void setPosition(double position) {
+        this.position = position;
+    }
+
+    /**
+     * scales the inertia of the mechanism, for example when a wheel loses traction and no longer carries the robot
+     * @param load the inertia relative to the model, 1 for the inertia of the model
+     */
+    public void setLoad(double load) {
+        this.load = load;
+    }
+
+    /**
+     * @return the velocity of the mechanism in ticks per second
+     */
+    public double getVelocity() {
+        return velocity;
+    }
+
+    /**
+     * sets the velocity of the mechanism, for example when the load forces it
+     * @param velocity the velocity in ticks per second
+     */
+    public void setVelocity(double velocity) {
+        this.velocity = velocity;
+    }
+
+    /**
+     * @return the control mode which was last set
+     */
+    public ControlMode getControlMode() {
+        return mode;
+    }
+
+    /**
+     * @return the value of the control mode which was last set
+     */
+    public double getSetpoint() {
+        return value;
+    }
+
+    @Override
+    public double getSelectedSensorPosition() {
+        return feedbackPeriod > 0 ? feedbackPosition : position;
+    }
+
+    @Override
+    public double getSelectedSensorVelocity() {
+        return (feedbackPeriod > 0 ? feedbackVelocity : velocity) / 10;
+    }
+
+    @Override
+    public double getMotorOutputPercent() {
+        return output;
+    }
+
+    @Override
+    public double getStatorCurrent() {
+        return current;
+    }
+}
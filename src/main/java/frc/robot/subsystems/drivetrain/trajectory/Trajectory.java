@@ -0,0 +1,116 @@
+package frc.robot.subsystems.drivetrain.trajectory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A trajectory sampled at a fixed period, read directly from a memory-mapped file.
+ * Each sample is the state of the robot in the field coordinate system of the odometry:
+ * [x, y, heading, x velocity, y velocity, angular velocity], in meters, radians and seconds.
+ * <p>
+ * The file layout, in little endian, is:
+ * <pre>
+ * int magic, int version, int sample count, int padding, double sample period,
+ * sample count * 6 doubles
+ * </pre>
+ * The files are generated at build time by {@link TrajectoryGenerator}.
+ */
+public class Trajectory {
+    public static final int MAGIC = 0x5452414a; // "TRAJ"
+    public static final int VERSION = 1;
+    public static final int STATE_SIZE = 6;
+    static final int HEADER_SIZE = 24;
+
+    private final String name;
+    private final ByteBuffer buffer;
+    private final int sampleCount;
+    private final double period;
+
+    Trajectory(String name, ByteBuffer buffer) throws IOException {
+        this.name = name;
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new IOException(name + " is not a trajectory file of version " + VERSION);
+        this.sampleCount = buffer.getInt(8);
+        this.period = buffer.getDouble(16);
+    }
+
+    /**
+     * maps a trajectory file into memory and loads all of its pages, so that sampling never waits on the disk
+     * @param name the name of the trajectory
+     * @param path the path of the file
+     * @return the trajectory
+     * @throws IOException if the file can't be mapped or isn't a trajectory file
+     */
+    public static Trajectory load(String name, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.load();
+            return new Trajectory(name, buffer);
+        }
+    }
+
+    /**
+     * writes a trajectory file
+     * @param path the path of the file
+     * @param period the sample period in seconds
+     * @param samples the samples, each of length {@value #STATE_SIZE}
+     * @throws IOException if the file can't be written
+     */
+    public static void write(Path path, double period, double[][] samples) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + samples.length * STATE_SIZE * Double.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(samples.length).putInt(0).putDouble(period);
+        for (double[] sample : samples) {
+            for (int i = 0; i < STATE_SIZE; i++) {
+                buffer.putDouble(sample[i]);
+            }
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * interpolates the state of the trajectory at a given time, without allocating
+     * @param time the time since the start of the trajectory in seconds, clamped to the duration
+     * @param state an array of length {@value #STATE_SIZE} which is filled with the state
+     */
+    public void sample(double time, double[] state) {
+        double index = Math.max(0, Math.min(time / period, sampleCount - 1));
+        int first = Math.min((int) index, sampleCount - 2);
+        double fraction = index - first;
+        if (sampleCount == 1) {
+            first = 0;
+            fraction = 0;
+        }
+        int offset = HEADER_SIZE + first * STATE_SIZE * Double.BYTES;
+        for (int i = 0; i < STATE_SIZE; i++) {
+            double a = buffer.getDouble(offset + i * Double.BYTES);
+            double b = sampleCount == 1 ? a : buffer.getDouble(offset + (STATE_SIZE + i) * Double.BYTES);
+            state[i] = a + (b - a) * fraction;
+        }
+    }
+
+    /**
+     * @return the duration of the trajectory in seconds
+     */
+    public double getDuration() {
+        return (sampleCount - 1) * period;
+    }
+
+    /**
+     * @return the name of the trajectory
+     */
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,56 @@
+package frc.robot.subsystems.drivetrain.trajectory;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The trajectories which were generated at build time, memory-mapped once when the robot boots.
+ */
+public class TrajectoryCache {
+    private final Map<String, Trajectory> trajectories = new TreeMap<>();
+
+    /**
+     * maps every trajectory file of a directory. a file which can't be mapped is reported and skipped.
+     * @param directory the directory of the trajectory files, normally in the deploy directory
+     */
+    public TrajectoryCache(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            DriverStation.reportError("No trajectories were deployed to " + directory, false);
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + TrajectoryGenerator.TRAJECTORY_EXTENSION)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                String name = fileName.substring(0, fileName.length() - TrajectoryGenerator.TRAJECTORY_EXTENSION.length());
+                try {
+                    trajectories.put(name, Trajectory.load(name, file));
+                } catch (IOException e) {
+                    DriverStation.reportError("Failed to load trajectory " + name + ": " + e.getMessage(), false);
+                }
+            }
+        } catch (IOException e) {
+            DriverStation.reportError("Failed to list the trajectories in " + directory + ": " + e.getMessage(), false);
+        }
+    }
+
+    /**
+     * @return the trajectories by name, in alphabetical order
+     */
+    public Map<String, Trajectory> getTrajectories() {
+        return trajectories;
+    }
+
+    /**
+     * @param name the name of the trajectory, which is the name of its path file
+     * @return the trajectory, or null if there is no such trajectory
+     */
+    public Trajectory get(String name) {
+        return trajectories.get(name);
+    }
+}
@@ -0,0 +1,236 @@
+package frc.robot.subsystems.drivetrain.trajectory;
+
+import frc.robot.Constants;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the trajectory files from the path definitions, on the desktop at build time,
+ * so that the robot never computes a trajectory while it is running.
+ * Usage: {@code ./gradlew generateTrajectories}, which is also run before every deploy.
+ * <p>
+ * A path definition is a text file with one command per line, and # for comments:
+ * <pre>
+ * constraints [max velocity in m/s] [max acceleration in m/s^2]
+ * waypoint [x in meters] [y in meters] [heading in radians]
+ * </pre>
+ * The waypoints are joined by a Catmull-Rom spline, the speed along the spline follows a trapezoidal profile
+ * which starts and ends at rest, and the heading is interpolated by the distance between the waypoints.
+ */
+public class TrajectoryGenerator {
+    public static final String PATH_EXTENSION = ".path";
+    public static final String TRAJECTORY_EXTENSION = ".traj";
+    private static final int SPLINE_SAMPLES = 1000; // per segment, for the arc length table
+
+    private final double[] waypointX;
+    private final double[] waypointY;
+    private final double[] waypointHeading;
+    private final double maxVelocity;
+    private final double maxAcceleration;
+
+    // the arc length table of the spline
+    private final double[] tableX;
+    private final double[] tableY;
+    private final double[] tableDistance;
+    private final double[] waypointDistance;
+
+    /**
+     * @param waypoints the waypoints of the path, each [x, y, heading]
+     * @param maxVelocity the max velocity along the path in m/s
+     * @param maxAcceleration the max acceleration along the path in m/s^2
+     */
+    public TrajectoryGenerator(double[][] waypoints, double maxVelocity, double maxAcceleration) {
+        if (waypoints.length < 2)
+            throw new IllegalArgumentException("a path needs at least two waypoints");
+        int n = waypoints.length;
+        waypointX = new double[n];
+        waypointY = new double[n];
+        waypointHeading = new double[n];
+        for (int i = 0; i < n; i++) {
+            waypointX[i] = waypoints[i][0];
+            waypointY[i] = waypoints[i][1];
+            waypointHeading[i] = waypoints[i][2];
+        }
+        this.maxVelocity = maxVelocity;
+        this.maxAcceleration = maxAcceleration;
+
+        int size = (n - 1) * SPLINE_SAMPLES + 1;
+        tableX = new double[size];
+        tableY = new double[size];
+        tableDistance = new double[size];
+        waypointDistance = new double[n];
+        buildTable();
+    }
+
+    private void buildTable() {
+        int n = waypointX.length;
+        int index = 0;
+        for (int segment = 0; segment < n - 1; segment++) {
+            double tx0 = tangent(waypointX, segment), ty0 = tangent(waypointY, segment);
+            double tx1 = tangent(waypointX, segment + 1), ty1 = tangent(waypointY, segment + 1);
+            for (int k = segment == 0 ? 0 : 1; k <= SPLINE_SAMPLES; k++) {
+                double s = (double) k / SPLINE_SAMPLES;
+                tableX[index] = hermite(waypointX[segment], tx0, waypointX[segment + 1], tx1, s);
+                tableY[index] = hermite(waypointY[segment], ty0, waypointY[segment + 1], ty1, s);
+                if (index > 0)
+                    tableDistance[index] = tableDistance[index - 1]
+                            + Math.hypot(tableX[index] - tableX[index - 1], tableY[index] - tableY[index - 1]);
+                index++;
+            }
+            waypointDistance[segment + 1] = tableDistance[index - 1];
+        }
+    }
+
+    private static double tangent(double[] values, int i) {
+        int previous = Math.max(0, i - 1);
+        int next = Math.min(values.length - 1, i + 1);
+        return (values[next] - values[previous]) / (next - previous);
+    }
+
+    private static double hermite(double p0, double m0, double p1, double m1, double s) {
+        double s2 = s * s, s3 = s2 * s;
+        return (2 * s3 - 3 * s2 + 1) * p0 + (s3 - 2 * s2 + s) * m0 + (-2 * s3 + 3 * s2) * p1 + (s3 - s2) * m1;
+    }
+
+    /**
+     * samples the trajectory
+     * @param period the sample period in seconds
+     * @return the samples, each [x, y, heading, x velocity, y velocity, angular velocity]
+     */
+    public double[][] generate(double period) {
+        double length = tableDistance[tableDistance.length - 1];
+        // the trapezoidal profile, which becomes a triangle when the path is too short to reach the max velocity
+        double cruiseVelocity = Math.min(maxVelocity, Math.sqrt(length * maxAcceleration));
+        double accelerationTime = cruiseVelocity / maxAcceleration;
+        double accelerationDistance = cruiseVelocity * accelerationTime / 2;
+        double cruiseTime = (length - 2 * accelerationDistance) / cruiseVelocity;
+        double duration = 2 * accelerationTime + cruiseTime;
+
+        int count = (int) Math.ceil(duration / period) + 1;
+        double[][] samples = new double[count][Trajectory.STATE_SIZE];
+        double[] point = new double[3];
+        for (int i = 0; i < count; i++) {
+            double t = Math.min(i * period, duration);
+            double distance, speed;
+            if (t < accelerationTime) {
+                speed = maxAcceleration * t;
+                distance = speed * t / 2;
+            } else if (t < accelerationTime + cruiseTime) {
+                speed = cruiseVelocity;
+                distance = accelerationDistance + cruiseVelocity * (t - accelerationTime);
+            } else {
+                double remaining = duration - t;
+                speed = maxAcceleration * remaining;
+                distance = length - speed * remaining / 2;
+            }
+            int index = locate(distance);
+            interpolate(index, distance, point);
+            double dx = tableX[index + 1] - tableX[index];
+            double dy = tableY[index + 1] - tableY[index];
+            double norm = Math.hypot(dx, dy);
+
+            samples[i][0] = point[0];
+            samples[i][1] = point[1];
+            samples[i][2] = point[2];
+            samples[i][3] = norm == 0 ? 0 : speed * dx / norm;
+            samples[i][4] = norm == 0 ? 0 : speed * dy / norm;
+        }
+        // the angular velocity is the derivative of the interpolated heading
+        for (int i = 0; i < count - 1; i++) {
+            samples[i][5] = (samples[i + 1][2] - samples[i][2]) / period;
+        }
+        return samples;
+    }
+
+    private int locate(double distance) {
+        int low = 0, high = tableDistance.length - 2;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (tableDistance[middle] <= distance)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+        return low;
+    }
+
+    private void interpolate(int index, double distance, double[] point) {
+        double span = tableDistance[index + 1] - tableDistance[index];
+        double fraction = span == 0 ? 0 : Math.max(0, Math.min(1, (distance - tableDistance[index]) / span));
+        point[0] = tableX[index] + (tableX[index + 1] - tableX[index]) * fraction;
+        point[1] = tableY[index] + (tableY[index + 1] - tableY[index]) * fraction;
+
+        int segment = 0;
+        while (segment < waypointDistance.length - 2 && distance > waypointDistance[segment + 1])
+            segment++;
+        double segmentLength = waypointDistance[segment + 1] - waypointDistance[segment];
+        double headingFraction = segmentLength == 0 ? 1
+                : Math.max(0, Math.min(1, (distance - waypointDistance[segment]) / segmentLength));
+        point[2] = waypointHeading[segment] + (waypointHeading[segment + 1] - waypointHeading[segment]) * headingFraction;
+    }
+
+    /**
+     * parses a path definition
+     * @param lines the lines of the path file
+     * @return the generator of the path
+     */
+    public static TrajectoryGenerator parse(List<String> lines) {
+        double maxVelocity = Constants.Drivetrain.MAX_VEL;
+        double maxAcceleration = Constants.Drivetrain.MAX_ACCELERATION;
+        List<double[]> waypoints = new ArrayList<>();
+        for (String line : lines) {
+            int comment = line.indexOf('#');
+            String[] tokens = (comment >= 0 ? line.substring(0, comment) : line).trim().split("\\s+");
+            if (tokens[0].isEmpty())
+                continue;
+            switch (tokens[0]) {
+                case "constraints":
+                    maxVelocity = Double.parseDouble(tokens[1]);
+                    maxAcceleration = Double.parseDouble(tokens[2]);
+                    break;
+                case "waypoint":
+                    waypoints.add(new double[]{
+                            Double.parseDouble(tokens[1]), Double.parseDouble(tokens[2]), Double.parseDouble(tokens[3])});
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown command " + tokens[0]);
+            }
+        }
+        return new TrajectoryGenerator(waypoints.toArray(new double[0][]), maxVelocity, maxAcceleration);
+    }
+
+    /**
+     * generates a trajectory file for every path definition of a directory
+     * @param pathDirectory the directory of the path definitions
+     * @param outputDirectory the directory to write the trajectory files to
+     * @param period the sample period in seconds
+     * @throws IOException if a file can't be read or written
+     */
+    public static void generateAll(Path pathDirectory, Path outputDirectory, double period) throws IOException {
+        Files.createDirectories(outputDirectory);
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(pathDirectory, "*" + PATH_EXTENSION)) {
+            for (Path path : paths) {
+                String fileName = path.getFileName().toString();
+                String name = fileName.substring(0, fileName.length() - PATH_EXTENSION.length());
+                double[][] samples = parse(Files.readAllLines(path)).generate(period);
+                Trajectory.write(outputDirectory.resolve(name + TRAJECTORY_EXTENSION), period, samples);
+                System.out.println("generated " + name + ": " + samples.length + " samples, "
+                        + (samples.length - 1) * period + " s");
+            }
+        }
+    }
+
+    public static void main(String... args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: TrajectoryGenerator <path directory> <output directory>");
+            System.exit(1);
+        }
+        generateAll(Paths.get(args[0]), Paths.get(args[1]), Constants.Autonomous.SAMPLE_PERIOD);
+    }
+}
@@ -0,0 +1,111 @@
+package frc.robot.utilities;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
+
+/**
+ * A write-through cache of the setpoint of a motor controller.
+ * A set is only sent over CAN when the control mode or the demand type changes, when the value or the demand
+ * moved by more than their epsilons since the last set that was sent, or when the refresh period has passed,
+ * so the controller keeps being fed even when the setpoint doesn't change.
+ */
+public class CachedMotorController {
+    private final MotorIO motor;
+    private final double epsilon;
+    private final double demandEpsilon;
+    private final long refreshPeriodNanos;
+
+    private ControlMode lastMode = null;
+    private double lastValue;
+    private DemandType lastDemandType;
+    private double lastDemand;
+    private long lastSentTime;
+
+    private long writesSent = 0;
+    private long writesSuppressed = 0;
+
+    /**
+     * @param motor the motor controller to write to
+     * @param epsilon the largest change of the value which is not sent, in the units of the control mode
+     * @param refreshPeriod the longest time between two sets that are sent, in seconds
+     */
+    public CachedMotorController(MotorIO motor, double epsilon, double refreshPeriod) {
+        this(motor, epsilon, epsilon, refreshPeriod);
+    }
+
+    /**
+     * @param motor the motor controller to write to
+     * @param epsilon the largest change of the value which is not sent, in the units of the control mode
+     * @param demandEpsilon the largest change of the additional demand which is not sent, in the units of the demand type
+     * @param refreshPeriod the longest time between two sets that are sent, in seconds
+     */
+    public CachedMotorController(MotorIO motor, double epsilon, double demandEpsilon, double refreshPeriod) {
+        this.motor = motor;
+        this.epsilon = epsilon;
+        this.demandEpsilon = demandEpsilon;
+        this.refreshPeriodNanos = (long) (refreshPeriod * 1e9);
+    }
+
+    /**
+     * sets the output of the motor controller, unless it is the same as the last output
+     * @param mode the control mode
+     * @param value the value of the control mode
+     */
+    public void set(ControlMode mode, double value) {
+        set(mode, value, DemandType.Neutral, 0);
+    }
+
+    /**
+     * sets the output of the motor controller with an additional demand, unless it is the same as the last output
+     * @param mode the control mode
+     * @param value the value of the control mode
+     * @param demandType the type of the additional demand
+     * @param demand the value of the additional demand
+     */
+    public void set(ControlMode mode, double value, DemandType demandType, double demand) {
+        long now = System.nanoTime();
+        if (mode == lastMode && demandType == lastDemandType
+                && Math.abs(value - lastValue) <= epsilon && Math.abs(demand - lastDemand) <= demandEpsilon
+                && now - lastSentTime < refreshPeriodNanos) {
+            writesSuppressed++;
+            return;
+        }
+
+        motor.set(mode, value, demandType, demand);
+        lastMode = mode;
+        lastValue = value;
+        lastDemandType = demandType;
+        lastDemand = demand;
+        lastSentTime = now;
+        writesSent++;
+    }
+
+    /**
+     * forgets the last output, so that the next set is always sent.
+     * call this after the motor controller was written to directly.
+     */
+    public void invalidate() {
+        lastMode = null;
+    }
+
+    /**
+     * @return the motor controller which is written to
+     */
+    public MotorIO getMotor() {
+        return motor;
+    }
+
+    /**
+     * @return the number of sets which were sent to the motor controller
+     */
+    public long getWritesSent() {
+        return writesSent;
+    }
+
+    /**
+     * @return the number of sets which were skipped because the output didn't change
+     */
+    public long getWritesSuppressed() {
+        return writesSuppressed;
+    }
+}
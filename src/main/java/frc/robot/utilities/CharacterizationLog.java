@@ -0,0 +1,220 @@
+package frc.robot.utilities;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A preallocated log of the samples of a characterization routine: the voltage, position and velocity of every
+ * channel, such as every module of the drivetrain, at the time of the sample.
+ * <p>
+ * The samples are grouped into runs, such as a single voltage ramp, so the accelerations which are differentiated
+ * from the velocities never span two runs. Nothing is allocated while the samples are added, and the log can be
+ * dumped to a CSV file, one row per sample, to solve it offline.
+ */
+public class CharacterizationLog {
+    private static final String HEADER = "timestamp,run";
+    private static final String[] CHANNEL_COLUMNS = {"voltage", "position", "velocity"};
+
+    private final int capacity;
+    private final int channels;
+    private final double[] timestamps;
+    private final int[] runs;
+    private final double[] voltages; // the channels of each sample are consecutive
+    private final double[] positions;
+    private final double[] velocities;
+
+    private int size = 0;
+    private int run = -1;
+
+    /**
+     * @param capacity the number of samples which can be logged
+     * @param channels the number of channels of each sample
+     */
+    public CharacterizationLog(int capacity, int channels) {
+        this.capacity = capacity;
+        this.channels = channels;
+        timestamps = new double[capacity];
+        runs = new int[capacity];
+        voltages = new double[capacity * channels];
+        positions = new double[capacity * channels];
+        velocities = new double[capacity * channels];
+    }
+
+    /**
+     * removes all of the samples
+     */
+    public void clear() {
+        size = 0;
+        run = -1;
+    }
+
+    /**
+     * starts a new run, the samples added after it aren't differentiated with the samples before it
+     */
+    public void startRun() {
+        run++;
+    }
+
+    /**
+     * adds a sample to the current run
+     * @param timestamp the time of the sample in seconds
+     * @param voltage the voltage applied to each channel in volts
+     * @param position the position of each channel
+     * @param velocity the velocity of each channel
+     * @return whether the sample was logged, false when the log is full
+     */
+    public boolean add(double timestamp, double[] voltage, double[] position, double[] velocity) {
+        if (size == capacity)
+            return false;
+        timestamps[size] = timestamp;
+        runs[size] = Math.max(run, 0);
+        System.arraycopy(voltage, 0, voltages, size * channels, channels);
+        System.arraycopy(position, 0, positions, size * channels, channels);
+        System.arraycopy(velocity, 0, velocities, size * channels, channels);
+        size++;
+        return true;
+    }
+
+    /**
+     * @return the number of logged samples
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return whether the log is full
+     */
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    /**
+     * @return the number of channels of each sample
+     */
+    public int getChannels() {
+        return channels;
+    }
+
+    /**
+     * @param sample the index of the sample
+     * @return the time of the sample in seconds
+     */
+    public double getTimestamp(int sample) {
+        return timestamps[sample];
+    }
+
+    /**
+     * @param sample the index of the sample
+     * @return the run of the sample
+     */
+    public int getRun(int sample) {
+        return runs[sample];
+    }
+
+    /**
+     * @param sample the index of the sample
+     * @param channel the index of the channel
+     * @return the voltage applied to the channel in volts
+     */
+    public double getVoltage(int sample, int channel) {
+        return voltages[sample * channels + channel];
+    }
+
+    /**
+     * @param sample the index of the sample
+     * @param channel the index of the channel
+     * @return the position of the channel
+     */
+    public double getPosition(int sample, int channel) {
+        return positions[sample * channels + channel];
+    }
+
+    /**
+     * @param sample the index of the sample
+     * @param channel the index of the channel
+     * @return the velocity of the channel
+     */
+    public double getVelocity(int sample, int channel) {
+        return velocities[sample * channels + channel];
+    }
+
+    /**
+     * writes the samples to a CSV file
+     * @param file the file to write, its directory is created if it doesn't exist
+     * @throws IOException if the file couldn't be written
+     */
+    public void dump(Path file) throws IOException {
+        if (file.getParent() != null)
+            Files.createDirectories(file.getParent());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+            StringBuilder header = new StringBuilder(HEADER);
+            for (int channel = 0; channel < channels; channel++) {
+                for (String column : CHANNEL_COLUMNS) {
+                    header.append(',').append(column).append(channel);
+                }
+            }
+            writer.println(header);
+            for (int i = 0; i < size; i++) {
+                writer.print(timestamps[i]);
+                writer.print(',');
+                writer.print(runs[i]);
+                for (int channel = 0; channel < channels; channel++) {
+                    writer.print(',');
+                    writer.print(getVoltage(i, channel));
+                    writer.print(',');
+                    writer.print(getPosition(i, channel));
+                    writer.print(',');
+                    writer.print(getVelocity(i, channel));
+                }
+                writer.println();
+            }
+        }
+    }
+
+    /**
+     * reads a log which was dumped to a CSV file
+     * @param file the file to read
+     * @return the log, with the capacity of the samples in the file
+     * @throws IOException if the file couldn't be read or isn't a dumped log
+     */
+    public static CharacterizationLog load(Path file) throws IOException {
+        long rows = 0;
+        int columns;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String header = reader.readLine();
+            if (header == null || !header.startsWith(HEADER))
+                throw new IOException("not a characterization log: " + file);
+            columns = header.split(",").length;
+            while (reader.readLine() != null) {
+                rows++;
+            }
+        }
+        int channels = (columns - 2) / CHANNEL_COLUMNS.length;
+
+        CharacterizationLog log = new CharacterizationLog((int) rows, channels);
+        double[] voltage = new double[channels];
+        double[] position = new double[channels];
+        double[] velocity = new double[channels];
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split(",");
+                if (values.length != columns)
+                    throw new IOException("a row of " + values.length + " columns instead of " + columns + ": " + line);
+                for (int channel = 0; channel < channels; channel++) {
+                    voltage[channel] = Double.parseDouble(values[2 + 3 * channel]);
+                    position[channel] = Double.parseDouble(values[3 + 3 * channel]);
+                    velocity[channel] = Double.parseDouble(values[4 + 3 * channel]);
+                }
+                log.run = Integer.parseInt(values[1]);
+                log.add(Double.parseDouble(values[0]), voltage, position, velocity);
+            }
+        }
+        return log;
+    }
+}
@@ -0,0 +1,146 @@
+package frc.robot.utilities;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Fits the feedforward model V = kS * sign(v) + kV * v + kA * a of a mechanism to its characterization samples,
+ * in the least squares sense.
+ * <p>
+ * The samples are accumulated into the normal equations, so any number of samples takes constant memory and
+ * nothing is allocated. The acceleration of a logged sample is the central difference of the velocities of the
+ * samples around it in the same run. Samples slower than the minimal velocity are skipped, since static friction
+ * doesn't follow the model while the mechanism is at rest.
+ * <p>
+ * Run {@link #main(String[])} with the dumped log to solve it offline.
+ */
+public class FeedforwardSolver {
+    public static final int KS = 0;
+    public static final int KV = 1;
+    public static final int KA = 2;
+    public static final int GAINS_SIZE = 3;
+
+    // the normal equations X^T * X * gains = X^T * V, and the sums of the coefficient of determination
+    private final double[][] xtx = new double[3][3];
+    private final double[] xtv = new double[3];
+    private final double[] row = new double[3];
+    private double sumV = 0;
+    private double sumV2 = 0;
+    private int samples = 0;
+
+    /**
+     * removes all of the samples
+     */
+    public void reset() {
+        for (int i = 0; i < 3; i++) {
+            xtv[i] = 0;
+            for (int j = 0; j < 3; j++) {
+                xtx[i][j] = 0;
+            }
+        }
+        sumV = sumV2 = 0;
+        samples = 0;
+    }
+
+    /**
+     * adds a single sample
+     * @param voltage the applied voltage in volts
+     * @param velocity the velocity of the mechanism
+     * @param acceleration the acceleration of the mechanism
+     */
+    public void add(double voltage, double velocity, double acceleration) {
+        row[KS] = Math.signum(velocity);
+        row[KV] = velocity;
+        row[KA] = acceleration;
+        for (int i = 0; i < 3; i++) {
+            xtv[i] += row[i] * voltage;
+            for (int j = 0; j < 3; j++) {
+                xtx[i][j] += row[i] * row[j];
+            }
+        }
+        sumV += voltage;
+        sumV2 += voltage * voltage;
+        samples++;
+    }
+
+    /**
+     * adds the samples of a channel of a log
+     * @param log the log of the characterization
+     * @param channel the channel of the mechanism
+     * @param minVelocity the velocity below which samples are skipped
+     */
+    public void add(CharacterizationLog log, int channel, double minVelocity) {
+        for (int i = 1; i < log.size() - 1; i++) {
+            if (log.getRun(i - 1) != log.getRun(i) || log.getRun(i + 1) != log.getRun(i))
+                continue;
+            double velocity = log.getVelocity(i, channel);
+            if (Math.abs(velocity) < minVelocity)
+                continue;
+            double acceleration = (log.getVelocity(i + 1, channel) - log.getVelocity(i - 1, channel))
+                    / (log.getTimestamp(i + 1) - log.getTimestamp(i - 1));
+            add(log.getVoltage(i, channel), velocity, acceleration);
+        }
+    }
+
+    /**
+     * @return the number of samples which were added
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    /**
+     * solves the normal equations
+     * @param gains an array of length {@value #GAINS_SIZE} which is filled with [kS, kV, kA]
+     * @return the coefficient of determination of the fit, or NaN if the samples don't determine the gains,
+     * such as when the mechanism never accelerated
+     */
+    public double solve(double[] gains) {
+        double det = determinant(xtx[0][0], xtx[0][1], xtx[0][2], xtx[1][0], xtx[1][1], xtx[1][2], xtx[2][0], xtx[2][1], xtx[2][2]);
+        if (samples < 3 || Math.abs(det) < 1e-9) {
+            gains[KS] = gains[KV] = gains[KA] = Double.NaN;
+            return Double.NaN;
+        }
+        // Cramer's rule, each gain is the determinant with its column replaced by X^T * V
+        double[] c0 = xtx[0], c1 = xtx[1], c2 = xtx[2];
+        for (int k = 0; k < 3; k++) {
+            gains[k] = determinant(
+                    k == 0 ? xtv[0] : c0[0], k == 1 ? xtv[0] : c0[1], k == 2 ? xtv[0] : c0[2],
+                    k == 0 ? xtv[1] : c1[0], k == 1 ? xtv[1] : c1[1], k == 2 ? xtv[1] : c1[2],
+                    k == 0 ? xtv[2] : c2[0], k == 1 ? xtv[2] : c2[1], k == 2 ? xtv[2] : c2[2]) / det;
+        }
+
+        // the residual sum of squares of the least squares solution is V^T * V - gains^T * X^T * V
+        double residual = sumV2 - (gains[KS] * xtv[KS] + gains[KV] * xtv[KV] + gains[KA] * xtv[KA]);
+        double total = sumV2 - sumV * sumV / samples;
+        return 1 - residual / total;
+    }
+
+    private static double determinant(double a, double b, double c, double d, double e, double f, double g, double h, double i) {
+        return a * (e * i - f * h) - b * (d * i - f * g) + c * (d * h - e * g);
+    }
+
+    /**
+     * solves a dumped characterization log offline, and prints the gains of every channel
+     * @param args the path of the log, and optionally the minimal velocity
+     * @throws IOException if the log couldn't be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: FeedforwardSolver <log.csv> [min velocity]");
+            System.exit(1);
+        }
+        CharacterizationLog log = CharacterizationLog.load(Paths.get(args[0]));
+        double minVelocity = args.length > 1 ? Double.parseDouble(args[1]) : 0;
+
+        FeedforwardSolver solver = new FeedforwardSolver();
+        double[] gains = new double[GAINS_SIZE];
+        for (int channel = 0; channel < log.getChannels(); channel++) {
+            solver.reset();
+            solver.add(log, channel, minVelocity);
+            double r2 = solver.solve(gains);
+            System.out.printf("channel %d: kS = %.4f V, kV = %.4f V/(unit/s), kA = %.4f V/(unit/s^2), r^2 = %.4f over %d samples%n",
+                    channel, gains[KS], gains[KV], gains[KA], r2, solver.getSamples());
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package frc.robot.utilities;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs the periodic tasks of the main loop by their priority, and sheds the non-critical ones under load.
+ * <p>
+ * Every task runs every few cycles at its nominal rate, and has a time budget. Critical tasks always run.
+ * The loop is under load while one of the recent cycles ran longer than the threshold, and then
+ * normal priority tasks run at a reduced rate and low priority tasks don't run at all.
+ * A task which doesn't fit in the time left in the current cycle is deferred to the next cycle that it fits in.
+ * <p>
+ * The runs, the shed runs, the deferrals and the overruns of the budget of each task are counted,
+ * and nothing is allocated per cycle.
+ */
+public class LoopBudget {
+    public static final int CRITICAL = 0;
+    public static final int HIGH = 1;
+    public static final int NORMAL = 2;
+    public static final int LOW = 3;
+
+    private static class Task {
+        final String name;
+        final String dashboardKey;
+        final int priority;
+        final int rate;
+        final long budgetNanos;
+        final Runnable runnable;
+
+        boolean pending = false;
+        long runs = 0;
+        long shed = 0;
+        long deferred = 0;
+        long overruns = 0;
+
+        Task(String name, int priority, int rate, long budgetNanos, Runnable runnable) {
+            this.name = name;
+            this.dashboardKey = "Loop Budget/" + name + " shed";
+            this.priority = priority;
+            this.rate = rate;
+            this.budgetNanos = budgetNanos;
+            this.runnable = runnable;
+        }
+    }
+
+    private final long thresholdNanos;
+    private final int loadWindow;
+    private final int reducedRate;
+    private final LongSupplier clock;
+    private final List<Task> tasks = new ArrayList<>(); // by priority
+    private final List<Task> registered = new ArrayList<>(); // by id
+
+    private long cycles = 0;
+    private long lastOverloadedCycle = Long.MIN_VALUE / 2;
+    private long overloadedCycles = 0;
+
+    /**
+     * @param threshold the duration of a cycle in seconds above which the loop is under load, below the period
+     * @param loadWindow the number of cycles the loop stays under load after a cycle ran over the threshold
+     * @param reducedRate the factor by which the rate of normal priority tasks is divided under load
+     */
+    public LoopBudget(double threshold, int loadWindow, int reducedRate) {
+        this(threshold, loadWindow, reducedRate, System::nanoTime);
+    }
+
+    /**
+     * @param threshold the duration of a cycle in seconds above which the loop is under load, below the period
+     * @param loadWindow the number of cycles the loop stays under load after a cycle ran over the threshold
+     * @param reducedRate the factor by which the rate of normal priority tasks is divided under load
+     * @param clock the time in nanoseconds
+     */
+    public LoopBudget(double threshold, int loadWindow, int reducedRate, LongSupplier clock) {
+        this.thresholdNanos = (long) (threshold * 1e9);
+        this.loadWindow = loadWindow;
+        this.reducedRate = reducedRate;
+        this.clock = clock;
+    }
+
+    /**
+     * registers a periodic task, the tasks run by their priority and then by their registration order
+     * @param name the name of the task, used in the logs
+     * @param priority the priority of the task, one of the constants of this class
+     * @param rate the number of cycles between the runs of the task
+     * @param budget the time the task is expected to take in seconds
+     * @param runnable the task
+     * @return the id of the task
+     */
+    public int register(String name, int priority, int rate, double budget, Runnable runnable) {
+        Task task = new Task(name, priority, rate, (long) (budget * 1e9), runnable);
+        int index = 0;
+        while (index < tasks.size() && tasks.get(index).priority <= priority) {
+            index++;
+        }
+        tasks.add(index, task);
+        registered.add(task);
+        return registered.size() - 1;
+    }
+
+    /**
+     * runs the tasks which are due in this cycle
+     * @param elapsed the time already spent in this cycle in seconds, before the tasks
+     */
+    public void run(double elapsed) {
+        long start = clock.getAsLong();
+        long spent = (long) (elapsed * 1e9);
+        boolean loaded = isLoaded();
+
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            if (cycles % task.rate == 0)
+                task.pending = true;
+            if (!task.pending)
+                continue;
+
+            if (task.priority != CRITICAL) {
+                if (loaded && (task.priority == LOW || (task.priority == NORMAL && cycles % (task.rate * reducedRate) != 0))) {
+                    task.pending = false;
+                    task.shed++;
+                    continue;
+                }
+                if (spent + clock.getAsLong() - start + task.budgetNanos > thresholdNanos) {
+                    task.deferred++;
+                    continue;
+                }
+            }
+
+            long taskStart = clock.getAsLong();
+            task.runnable.run();
+            if (clock.getAsLong() - taskStart > task.budgetNanos)
+                task.overruns++;
+            task.runs++;
+            task.pending = false;
+        }
+
+        if (spent + clock.getAsLong() - start > thresholdNanos) {
+            lastOverloadedCycle = cycles;
+            overloadedCycles++;
+        }
+        cycles++;
+    }
+
+    /**
+     * @return whether one of the recent cycles ran longer than the threshold
+     */
+    public boolean isLoaded() {
+        return cycles - lastOverloadedCycle <= loadWindow;
+    }
+
+    /**
+     * @return the number of cycles which ran longer than the threshold
+     */
+    public long getOverloadedCycles() {
+        return overloadedCycles;
+    }
+
+    /**
+     * @param id the id of the task
+     * @return the number of times the task ran
+     */
+    public long getRuns(int id) {
+        return registered.get(id).runs;
+    }
+
+    /**
+     * @param id the id of the task
+     * @return the number of runs of the task which were skipped under load
+     */
+    public long getShed(int id) {
+        return registered.get(id).shed;
+    }
+
+    /**
+     * @param id the id of the task
+     * @return the number of cycles the task was due in but didn't fit in
+     */
+    public long getDeferred(int id) {
+        return registered.get(id).deferred;
+    }
+
+    /**
+     * @param id the id of the task
+     * @return the number of runs of the task which took longer than its budget
+     */
+    public long getOverruns(int id) {
+        return registered.get(id).overruns;
+    }
+
+    /**
+     * publishes the shed runs of every task to the dashboard.
+     * this is meant to be called at a low rate, not every cycle.
+     */
+    public void publish() {
+        for (int i = 0; i < tasks.size(); i++) {
+            SmartDashboard.putNumber(tasks.get(i).dashboardKey, tasks.get(i).shed);
+        }
+        SmartDashboard.putNumber("Loop Budget/overloaded cycles", overloadedCycles);
+    }
+
+    /**
+     * prints the counts of every task
+     * @param out the stream to print to
+     */
+    public void dump(PrintStream out) {
+        out.printf("Loop Budget: %d cycles, %d overloaded%n", cycles, overloadedCycles);
+        for (Task task : tasks) {
+            out.printf("  %s: %d runs, %d shed, %d deferred, %d over budget%n",
+                    task.name, task.runs, task.shed, task.deferred, task.overruns);
+        }
+    }
+}
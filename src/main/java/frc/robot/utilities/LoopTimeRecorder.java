@@ -0,0 +1,264 @@
+package frc.robot.utilities;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.Constants;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Records the duration and the jitter of a periodic loop.
+ * The durations are counted in a fixed-size histogram, from which the percentiles are read,
+ * and the most recent cycles are kept in a ring buffer so that they can be dumped when the robot is disabled.
+ * Nothing is allocated while recording, so the recorder can be fed every cycle.
+ * <p>
+ * The recorder is owned by the thread which records the cycles, and only that thread reads the histogram and the
+ * ring buffers. Every {@link Constants.LoopTiming#PUBLISH_PERIOD} cycles the owning thread copies the statistics out
+ * through a sequence lock, which {@link #getStatistics(double[])} and {@link #publish()} read from any thread,
+ * so the statistics of a loop on another thread are never torn.
+ */
+public class LoopTimeRecorder {
+    // the indices of the statistics which are published to other threads
+    public static final int P50 = 0;
+    public static final int P99 = 1;
+    public static final int MAX = 2;
+    public static final int MAX_JITTER = 3;
+    public static final int OVERRUNS = 4;
+    public static final int CYCLES = 5;
+    public static final int STATISTICS_SIZE = 6;
+
+    private final String name;
+    private final long periodNanos;
+    private final long binWidthNanos;
+
+    // the last bin counts every cycle longer than the histogram range
+    private final long[] histogram;
+
+    // ring buffers of the most recent cycles
+    private final long[] durations;
+    private final long[] jitters;
+    private int head = 0;
+
+    private long cycleStart = -1;
+    private long lastCycleStart = -1;
+    private long cycles = 0;
+    private long overruns = 0;
+    private long maxDuration = 0;
+    private long maxJitter = 0;
+    private int unpublishedCycles = 0;
+
+    // the statistics copied out by the owning thread, guarded by the sequence, which is odd while they are being written
+    private volatile int sequence = 0;
+    private volatile double publishedP50 = 0;
+    private volatile double publishedP99 = 0;
+    private volatile double publishedMax = 0;
+    private volatile double publishedMaxJitter = 0;
+    private volatile long publishedOverruns = 0;
+    private volatile long publishedCycles = 0;
+    // only touched by the thread which publishes to the dashboard
+    private final double[] statistics = new double[STATISTICS_SIZE];
+
+    /**
+     * @param name the name of the loop, used as the dashboard prefix
+     * @param period the period of the loop in seconds, cycles longer than it are counted as overruns
+     * @param binWidth the width of each histogram bin in seconds
+     * @param bins the number of histogram bins
+     * @param historySize the number of recent cycles kept in the ring buffer
+     */
+    public LoopTimeRecorder(String name, double period, double binWidth, int bins, int historySize) {
+        this.name = name;
+        this.periodNanos = (long) (period * 1e9);
+        this.binWidthNanos = (long) (binWidth * 1e9);
+        this.histogram = new long[bins + 1];
+        this.durations = new long[historySize];
+        this.jitters = new long[historySize];
+    }
+
+    /**
+     * marks the start of a cycle
+     */
+    public void start() {
+        cycleStart = System.nanoTime();
+    }
+
+    /**
+     * marks the end of the cycle which was started by {@link #start()}
+     */
+    public void stop() {
+        if (cycleStart < 0)
+            return;
+        record(cycleStart, System.nanoTime());
+        cycleStart = -1;
+    }
+
+    /**
+     * records a single cycle
+     * @param start the start time of the cycle in nanoseconds
+     * @param end the end time of the cycle in nanoseconds
+     */
+    public void record(long start, long end) {
+        long duration = end - start;
+        // the jitter is the deviation of the time between the starts of two cycles from the period
+        long jitter = lastCycleStart < 0 ? 0 : Math.abs(start - lastCycleStart - periodNanos);
+        lastCycleStart = start;
+
+        histogram[(int) Math.min(duration / binWidthNanos, histogram.length - 1)]++;
+        durations[head] = duration;
+        jitters[head] = jitter;
+        head = (head + 1) % durations.length;
+
+        cycles++;
+        if (duration > periodNanos)
+            overruns++;
+        maxDuration = Math.max(maxDuration, duration);
+        maxJitter = Math.max(maxJitter, jitter);
+
+        if (++unpublishedCycles >= Constants.LoopTiming.PUBLISH_PERIOD)
+            updateStatistics();
+    }
+
+    /**
+     * copies the statistics out for the other threads, this should only be called by the thread which records the cycles.
+     * it is called by {@link #record(long, long)} every {@link Constants.LoopTiming#PUBLISH_PERIOD} cycles
+     */
+    public void updateStatistics() {
+        unpublishedCycles = 0;
+        sequence++;
+        publishedP50 = getPercentile(0.5);
+        publishedP99 = getPercentile(0.99);
+        publishedMax = getMax();
+        publishedMaxJitter = getMaxJitter();
+        publishedOverruns = overruns;
+        publishedCycles = cycles;
+        sequence++;
+    }
+
+    /**
+     * reads the statistics the owning thread last copied out, from any thread and without blocking it
+     * @param statistics an array of length {@value #STATISTICS_SIZE} which is filled with the statistics,
+     *                   by the indices of this class, the times in seconds
+     */
+    public void getStatistics(double[] statistics) {
+        while (true) {
+            int start = sequence;
+            if ((start & 1) == 0) {
+                statistics[P50] = publishedP50;
+                statistics[P99] = publishedP99;
+                statistics[MAX] = publishedMax;
+                statistics[MAX_JITTER] = publishedMaxJitter;
+                statistics[OVERRUNS] = publishedOverruns;
+                statistics[CYCLES] = publishedCycles;
+                if (sequence == start)
+                    return;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * reads a percentile of the cycle duration from the histogram
+     * @param percentile the percentile, between 0 and 1
+     * @return the upper edge of the histogram bin which contains the percentile in seconds,
+     * or the maximal duration if the percentile is beyond the histogram range
+     */
+    public double getPercentile(double percentile) {
+        if (cycles == 0)
+            return 0;
+        long target = (long) Math.ceil(percentile * cycles);
+        long count = 0;
+        for (int i = 0; i < histogram.length - 1; i++) {
+            count += histogram[i];
+            if (count >= target)
+                return Math.min((i + 1) * binWidthNanos, maxDuration) / 1e9;
+        }
+        return maxDuration / 1e9;
+    }
+
+    /**
+     * @return the longest recorded cycle in seconds
+     */
+    public double getMax() {
+        return maxDuration / 1e9;
+    }
+
+    /**
+     * @return the largest recorded deviation of the cycle start from the period in seconds
+     */
+    public double getMaxJitter() {
+        return maxJitter / 1e9;
+    }
+
+    /**
+     * @return the duration of the last recorded cycle in seconds
+     */
+    public double getLastDuration() {
+        return durations[Math.floorMod(head - 1, durations.length)] / 1e9;
+    }
+
+    /**
+     * @return the number of cycles longer than the period
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+
+    /**
+     * @return the number of recorded cycles
+     */
+    public long getCycles() {
+        return cycles;
+    }
+
+    /**
+     * publishes the statistics which the owning thread last copied out to the dashboard, from a single thread.
+     * this is meant to be called at a low rate, not every cycle.
+     */
+    public void publish() {
+        getStatistics(statistics);
+        SmartDashboard.putNumber(name + "/p50 ms", statistics[P50] * 1e3);
+        SmartDashboard.putNumber(name + "/p99 ms", statistics[P99] * 1e3);
+        SmartDashboard.putNumber(name + "/max ms", statistics[MAX] * 1e3);
+        SmartDashboard.putNumber(name + "/max jitter ms", statistics[MAX_JITTER] * 1e3);
+        SmartDashboard.putNumber(name + "/overruns", statistics[OVERRUNS]);
+    }
+
+    /**
+     * prints the statistics, the histogram and the recent cycles, this should only be called by the owning thread
+     * @param out the stream to print to
+     */
+    public void dump(PrintStream out) {
+        out.printf("%s: %d cycles, %d overruns, p50 %.3f ms, p99 %.3f ms, max %.3f ms, max jitter %.3f ms%n",
+                name, cycles, overruns, getPercentile(0.5) * 1e3, getPercentile(0.99) * 1e3, getMax() * 1e3, getMaxJitter() * 1e3);
+        for (int i = 0; i < histogram.length; i++) {
+            if (histogram[i] == 0)
+                continue;
+            if (i == histogram.length - 1)
+                out.printf("  >= %.1f ms: %d%n", i * binWidthNanos / 1e6, histogram[i]);
+            else
+                out.printf("  %.1f - %.1f ms: %d%n", i * binWidthNanos / 1e6, (i + 1) * binWidthNanos / 1e6, histogram[i]);
+        }
+        int size = (int) Math.min(cycles, durations.length);
+        out.println("  recent cycles [duration ms, jitter ms]:");
+        for (int i = 0; i < size; i++) {
+            int index = Math.floorMod(head - size + i, durations.length);
+            out.printf("  %.3f, %.3f%n", durations[index] / 1e6, jitters[index] / 1e6);
+        }
+    }
+
+    /**
+     * clears all of the recorded cycles, this should only be called by the owning thread
+     */
+    public void reset() {
+        Arrays.fill(histogram, 0);
+        Arrays.fill(durations, 0);
+        Arrays.fill(jitters, 0);
+        head = 0;
+        cycleStart = -1;
+        lastCycleStart = -1;
+        cycles = 0;
+        overruns = 0;
+        maxDuration = 0;
+        maxJitter = 0;
+        updateStatistics();
+    }
+}
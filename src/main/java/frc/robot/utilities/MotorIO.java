@@ -0,0 +1,41 @@
+package frc.robot.utilities;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
+
+/**
+ * The part of a Talon which the control loop uses every cycle: the setpoint and the sensor readings.
+ * It is implemented by {@link TalonMotorIO} on the robot, and by a simulated Talon in the drivetrain simulation.
+ * All of the values are in the native units of the Talon.
+ */
+public interface MotorIO {
+
+    /**
+     * sets the output of the motor
+     * @param mode the control mode
+     * @param value the value of the control mode
+     * @param demandType the type of the additional demand
+     * @param demand the value of the additional demand
+     */
+    void set(ControlMode mode, double value, DemandType demandType, double demand);
+
+    /**
+     * @return the position of the selected sensor in ticks
+     */
+    double getSelectedSensorPosition();
+
+    /**
+     * @return the velocity of the selected sensor in ticks per 100ms
+     */
+    double getSelectedSensorVelocity();
+
+    /**
+     * @return the applied output, between -1 and 1
+     */
+    double getMotorOutputPercent();
+
+    /**
+     * @return the stator current in amperes
+     */
+    double getStatorCurrent();
+}
@@ -0,0 +1,133 @@
+package frc.robot.utilities;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
+import com.ctre.phoenix.motorcontrol.can.BaseTalonConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The desired configuration of a single Talon, described as data.
+ * The whole configuration is applied with one all-in-one config call, read back from the device and verified
+ * parameter by parameter, and only the parameters which don't match are applied again individually.
+ *
+ * @param <C> the configuration type of the Talon
+ */
+public class TalonConfiguration<C extends BaseTalonConfiguration> {
+    private static final double TOLERANCE = 1e-3;
+
+    private final String name;
+    private final BaseMotorController motor;
+    private final C config;
+    private final C readBack;
+    private final ConfigApplier<C> applyAll;
+    private final ConfigReader<C> readAll;
+    private final List<Parameter<C>> parameters = new ArrayList<>();
+
+    /**
+     * @param name the name of the device, used in the report
+     * @param motor the Talon to configure
+     * @param config the desired configuration
+     * @param readBack an empty configuration of the same type, into which the configuration is read back
+     * @param applyAll the all-in-one config call of the Talon, e.g. {@code talon::configAllSettings}
+     * @param readAll the all-in-one read back call of the Talon, e.g. {@code talon::getAllConfigs}
+     */
+    public TalonConfiguration(String name, BaseMotorController motor, C config, C readBack,
+                              ConfigApplier<C> applyAll, ConfigReader<C> readAll) {
+        this.name = name;
+        this.motor = motor;
+        this.config = config;
+        this.readBack = readBack;
+        this.applyAll = applyAll;
+        this.readAll = readAll;
+    }
+
+    /**
+     * adds a parameter which is verified after the configuration is applied
+     * @param name the name of the parameter
+     * @param field reads the parameter from a configuration
+     * @param apply applies only this parameter with the given timeout
+     * @return this configuration
+     */
+    public TalonConfiguration<C> verify(String name, ToDoubleFunction<C> field, IntFunction<ErrorCode> apply) {
+        parameters.add(new Parameter<>(name, field, apply));
+        return this;
+    }
+
+    /**
+     * applies the configuration, verifies it and retries the parameters which failed.
+     * this blocks on CAN, and may be called concurrently for different devices.
+     * @param timeout the timeout of each config call in ms
+     * @param retries the number of times a failed parameter is applied again
+     * @return a description of the parameters which still failed after all of the retries, or null if none failed
+     */
+    public String apply(int timeout, int retries) {
+        // configAllSettings only sends the values which differ from the factory defaults
+        motor.configFactoryDefault(timeout);
+        applyAll.apply(config, timeout);
+
+        List<Parameter<C>> failed = findMismatches(timeout);
+        for (int attempt = 0; attempt < retries && !failed.isEmpty(); attempt++) {
+            for (Parameter<C> parameter : failed) {
+                parameter.apply.apply(timeout);
+            }
+            failed = findMismatches(timeout);
+        }
+
+        if (failed.isEmpty())
+            return null;
+        StringBuilder report = new StringBuilder(name).append(" failed to configure:");
+        for (Parameter<C> parameter : failed) {
+            report.append(' ').append(parameter.name);
+        }
+        return report.toString();
+    }
+
+    private List<Parameter<C>> findMismatches(int timeout) {
+        readAll.read(readBack, timeout);
+        List<Parameter<C>> mismatches = new ArrayList<>();
+        for (Parameter<C> parameter : parameters) {
+            double expected = parameter.field.applyAsDouble(config);
+            double actual = parameter.field.applyAsDouble(readBack);
+            if (Math.abs(expected - actual) > TOLERANCE * Math.max(1, Math.abs(expected)))
+                mismatches.add(parameter);
+        }
+        return mismatches;
+    }
+
+    /**
+     * @return the name of the device
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * an all-in-one config call
+     */
+    public interface ConfigApplier<C> {
+        ErrorCode apply(C config, int timeout);
+    }
+
+    /**
+     * an all-in-one read back call
+     */
+    public interface ConfigReader<C> {
+        void read(C config, int timeout);
+    }
+
+    private static class Parameter<C> {
+        private final String name;
+        private final ToDoubleFunction<C> field;
+        private final IntFunction<ErrorCode> apply;
+
+        private Parameter(String name, ToDoubleFunction<C> field, IntFunction<ErrorCode> apply) {
+            this.name = name;
+            this.field = field;
+            this.apply = apply;
+        }
+    }
+}
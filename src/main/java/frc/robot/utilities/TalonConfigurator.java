@@ -0,0 +1,55 @@
+package frc.robot.utilities;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Applies the configurations of many Talons concurrently.
+ * Each config call blocks until the device answers, so configuring every device on its own thread
+ * makes the total configuration time about that of the slowest device instead of the sum of all of them.
+ */
+public class TalonConfigurator {
+
+    /**
+     * applies all of the configurations concurrently and reports the failures and the total configuration time
+     * @param configurations the configurations of the devices
+     * @param timeout the timeout of each config call in ms
+     * @param retries the number of times a failed parameter is applied again
+     * @return whether all of the devices were configured successfully
+     */
+    public static boolean configure(List<TalonConfiguration<?>> configurations, int timeout, int retries) {
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(configurations.size());
+        List<Future<String>> results = new ArrayList<>();
+        for (TalonConfiguration<?> configuration : configurations) {
+            results.add(executor.submit(() -> configuration.apply(timeout, retries)));
+        }
+
+        boolean success = true;
+        for (int i = 0; i < results.size(); i++) {
+            String failure;
+            try {
+                failure = results.get(i).get();
+            } catch (InterruptedException | ExecutionException e) {
+                failure = configurations.get(i).getName() + " failed to configure: " + e;
+            }
+            if (failure != null) {
+                DriverStation.reportError(failure, false);
+                success = false;
+            }
+        }
+        executor.shutdown();
+
+        double time = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Configured %d Talons in %.3f seconds%n", configurations.size(), time);
+        SmartDashboard.putNumber("Talon configuration time", time);
+        return success;
+    }
+}
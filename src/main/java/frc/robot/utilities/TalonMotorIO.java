@@ -0,0 +1,48 @@
+package frc.robot.utilities;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
+import com.ctre.phoenix.motorcontrol.can.BaseTalon;
+
+/**
+ * A {@link MotorIO} of a real TalonFX or TalonSRX.
+ */
+public class TalonMotorIO implements MotorIO {
+    private final BaseTalon talon;
+
+    public TalonMotorIO(BaseTalon talon) {
+        this.talon = talon;
+    }
+
+    @Override
+    public void set(ControlMode mode, double value, DemandType demandType, double demand) {
+        talon.set(mode, value, demandType, demand);
+    }
+
+    @Override
+    public double getSelectedSensorPosition() {
+        return talon.getSelectedSensorPosition();
+    }
+
+    @Override
+    public double getSelectedSensorVelocity() {
+        return talon.getSelectedSensorVelocity();
+    }
+
+    @Override
+    public double getMotorOutputPercent() {
+        return talon.getMotorOutputPercent();
+    }
+
+    @Override
+    public double getStatorCurrent() {
+        return talon.getStatorCurrent();
+    }
+
+    /**
+     * @return the Talon
+     */
+    public BaseTalon getTalon() {
+        return talon;
+    }
+}
@@ -0,0 +1,126 @@
+package frc.robot.utilities;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Decodes a file written by {@link TelemetryRecorder} on the desktop.
+ * Usage: {@code ./gradlew decodeTelemetry -Ptelemetry=<file> [-Pcolumns]}, which prints CSV by default,
+ * or one line per field with all of its values when columns is set.
+ */
+public class TelemetryDecoder {
+    private final String[] fieldNames;
+    private final double[][] columns;
+    private final long[] sequences;
+
+    /**
+     * reads all of the valid records of a file, from the oldest to the newest
+     * @param path the path of the file
+     * @throws IOException if the file can't be read or isn't a telemetry file
+     */
+    public TelemetryDecoder(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt(0) != TelemetryRecorder.MAGIC || buffer.getInt(4) != TelemetryRecorder.VERSION)
+            throw new IOException(path + " is not a telemetry file of version " + TelemetryRecorder.VERSION);
+
+        int fieldCount = buffer.getInt(TelemetryRecorder.FIELD_COUNT_OFFSET);
+        int capacity = buffer.getInt(TelemetryRecorder.CAPACITY_OFFSET);
+        long writeCount = buffer.getLong(TelemetryRecorder.WRITE_COUNT_OFFSET);
+
+        fieldNames = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            byte[] name = new byte[TelemetryRecorder.NAME_LENGTH];
+            buffer.position(TelemetryRecorder.NAMES_OFFSET + i * TelemetryRecorder.NAME_LENGTH);
+            buffer.get(name);
+            int length = 0;
+            while (length < name.length && name[length] != 0)
+                length++;
+            fieldNames[i] = new String(name, 0, length, StandardCharsets.US_ASCII);
+        }
+
+        int recordsOffset = TelemetryRecorder.NAMES_OFFSET + fieldCount * TelemetryRecorder.NAME_LENGTH;
+        int recordSize = Long.BYTES + fieldCount * Double.BYTES;
+        int count = (int) Math.min(writeCount, capacity);
+        long first = writeCount - count;
+
+        columns = new double[fieldCount][count];
+        sequences = new long[count];
+        for (int r = 0; r < count; r++) {
+            long sequence = first + r;
+            int offset = recordsOffset + (int) (sequence % capacity) * recordSize;
+            sequences[r] = buffer.getLong(offset);
+            for (int i = 0; i < fieldCount; i++) {
+                columns[i][r] = buffer.getDouble(offset + Long.BYTES + i * Double.BYTES);
+            }
+        }
+    }
+
+    /**
+     * @return the names of the fields
+     */
+    public String[] getFieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * @return the values of each field, indexed by [field][record]
+     */
+    public double[][] getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return the sequence number of each record
+     */
+    public long[] getSequences() {
+        return sequences;
+    }
+
+    /**
+     * prints the records as CSV, one record per line
+     * @param out the stream to print to
+     */
+    public void writeCsv(PrintStream out) {
+        out.print("sequence");
+        for (String name : fieldNames)
+            out.print("," + name);
+        out.println();
+        for (int r = 0; r < sequences.length; r++) {
+            out.print(sequences[r]);
+            for (double[] column : columns)
+                out.print("," + column[r]);
+            out.println();
+        }
+    }
+
+    /**
+     * prints the records by columns, one field per line
+     * @param out the stream to print to
+     */
+    public void writeColumns(PrintStream out) {
+        for (int i = 0; i < fieldNames.length; i++) {
+            out.print(fieldNames[i]);
+            for (double value : columns[i])
+                out.print("," + value);
+            out.println();
+        }
+    }
+
+    public static void main(String... args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: TelemetryDecoder <file> [--columns]");
+            System.exit(1);
+        }
+        TelemetryDecoder decoder = new TelemetryDecoder(Paths.get(args[0]));
+        if (args.length > 1 && args[1].equals("--columns"))
+            decoder.writeColumns(System.out);
+        else
+            decoder.writeCsv(System.out);
+    }
+}
@@ -0,0 +1,167 @@
+package frc.robot.utilities;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records fixed-width binary records of doubles into a memory-mapped ring file.
+ * A record is written with absolute puts into the mapped buffer, so the hot path doesn't allocate or make system calls.
+ * The buffer is forced to the disk periodically by a background thread.
+ * <p>
+ * The file layout, in little endian, is a header followed by the ring of records:
+ * <pre>
+ * int magic, int version, int field count, int capacity, long records written,
+ * field count * {@value #NAME_LENGTH} bytes of ASCII field names padded with zeros,
+ * capacity * (long sequence number, field count * double)
+ * </pre>
+ * The records are decoded by {@link TelemetryDecoder}.
+ */
+public class TelemetryRecorder implements Closeable {
+    public static final int MAGIC = 0x54454c4d; // "TELM"
+    public static final int VERSION = 1;
+    public static final int NAME_LENGTH = 32;
+
+    static final int FIELD_COUNT_OFFSET = 8;
+    static final int CAPACITY_OFFSET = 12;
+    static final int WRITE_COUNT_OFFSET = 16;
+    static final int NAMES_OFFSET = 24;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final ScheduledExecutorService flusher;
+    private final int fieldCount;
+    private final int capacity;
+    private final int recordsOffset;
+    private final int recordSize;
+    private long writeCount = 0;
+
+    /**
+     * creates the file, overwriting any previous recording
+     * @param path the path of the file
+     * @param fieldNames the names of the fields of each record, at most {@value #NAME_LENGTH} ASCII characters each
+     * @param capacity the number of records in the ring, older records are overwritten
+     * @param flushPeriod the period in seconds in which the file is forced to the disk
+     * @throws IOException if the file can't be created or mapped
+     */
+    public TelemetryRecorder(Path path, String[] fieldNames, int capacity, double flushPeriod) throws IOException {
+        this(path, fieldNames, capacity, flushPeriod, 0);
+    }
+
+    /**
+     * creates the file, after the previous recordings are rotated to the path with the suffix ".1", ".2" and so on,
+     * so the recording of a match survives the reboot of a brownout.
+     * the suffixes are used instead of the time, since the clock of the roboRIO isn't set until the driver station connects
+     * @param path the path of the file
+     * @param fieldNames the names of the fields of each record, at most {@value #NAME_LENGTH} ASCII characters each
+     * @param capacity the number of records in the ring, older records are overwritten
+     * @param flushPeriod the period in seconds in which the file is forced to the disk
+     * @param keptRecordings the number of previous recordings which are kept, the oldest one is deleted
+     * @throws IOException if the file can't be created or mapped
+     */
+    public TelemetryRecorder(Path path, String[] fieldNames, int capacity, double flushPeriod, int keptRecordings) throws IOException {
+        this.fieldCount = fieldNames.length;
+        this.capacity = capacity;
+        this.recordsOffset = NAMES_OFFSET + fieldCount * NAME_LENGTH;
+        this.recordSize = Long.BYTES + fieldCount * Double.BYTES;
+
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+        rotate(path, keptRecordings);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, recordsOffset + (long) capacity * recordSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(FIELD_COUNT_OFFSET, fieldCount);
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        buffer.putLong(WRITE_COUNT_OFFSET, 0);
+        for (int i = 0; i < fieldCount; i++) {
+            byte[] name = fieldNames[i].getBytes(StandardCharsets.US_ASCII);
+            for (int j = 0; j < Math.min(name.length, NAME_LENGTH); j++) {
+                buffer.put(NAMES_OFFSET + i * NAME_LENGTH + j, name[j]);
+            }
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Telemetry flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long flushPeriodMs = (long) (flushPeriod * 1000);
+        flusher.scheduleAtFixedRate(buffer::force, flushPeriodMs, flushPeriodMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * shifts the previous recordings by one suffix, the oldest one is overwritten
+     * @param path the path of the file
+     * @param keptRecordings the number of previous recordings which are kept
+     * @throws IOException if a recording can't be moved
+     */
+    private static void rotate(Path path, int keptRecordings) throws IOException {
+        if (keptRecordings <= 0)
+            return;
+        for (int i = keptRecordings - 1; i >= 1; i--) {
+            Path older = getRotatedPath(path, i);
+            if (Files.exists(older))
+                Files.move(older, getRotatedPath(path, i + 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (Files.exists(path))
+            Files.move(path, getRotatedPath(path, 1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @param path the path of the file
+     * @param age the number of recordings which were created since, starting from 1 for the previous recording
+     * @return the path of the previous recording
+     */
+    public static Path getRotatedPath(Path path, int age) {
+        return path.resolveSibling(path.getFileName() + "." + age);
+    }
+
+    /**
+     * writes a record into the ring, overwriting the oldest record once the ring is full
+     * @param values the values of the record, in the order of the field names
+     */
+    public void record(double[] values) {
+        int offset = recordsOffset + (int) (writeCount % capacity) * recordSize;
+        buffer.putLong(offset, writeCount);
+        offset += Long.BYTES;
+        for (int i = 0; i < fieldCount; i++) {
+            buffer.putDouble(offset + i * Double.BYTES, values[i]);
+        }
+        writeCount++;
+        // the count is written last, so a decoder never reads a record which is only partially written
+        buffer.putLong(WRITE_COUNT_OFFSET, writeCount);
+    }
+
+    /**
+     * @return the number of records written since the file was created
+     */
+    public long getWriteCount() {
+        return writeCount;
+    }
+
+    /**
+     * forces the records to the disk and closes the file
+     * @throws IOException if the file can't be closed
+     */
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        buffer.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,166 @@
+package frc.robot.utilities;
+
+import java.lang.invoke.VarHandle;
+
+/**
+ * A fixed-size ring buffer of timestamped samples of primitive doubles, with interpolated lookups by time.
+ * One thread adds the samples and any number of threads read them. The readers never block the writer:
+ * the buffer is guarded by a sequence lock, and a reader which overlapped a write simply reads again.
+ * Nothing is allocated after construction.
+ */
+public class TimeSeriesBuffer {
+    private final int capacity;
+    private final int channels;
+    private final double[] timestamps;
+    private final double[] values; // the channels of each sample are consecutive
+
+    // odd while a sample is being written
+    private volatile long sequence = 0;
+    // the number of samples which were ever added, only written by the writer
+    private long count = 0;
+
+    /**
+     * @param capacity the number of samples which are kept
+     * @param channels the number of values of each sample
+     */
+    public TimeSeriesBuffer(int capacity, int channels) {
+        this.capacity = capacity;
+        this.channels = channels;
+        timestamps = new double[capacity];
+        values = new double[capacity * channels];
+    }
+
+    /**
+     * adds a sample, overwriting the oldest one when the buffer is full.
+     * samples which are older than the newest sample are ignored, so the buffer stays sorted by time.
+     * must only be called from one thread.
+     * @param timestamp the time of the sample in seconds
+     * @param sample the values of the sample, of length channels
+     */
+    public void add(double timestamp, double[] sample) {
+        if (count > 0 && timestamp < timestamps[(int) ((count - 1) % capacity)])
+            return;
+        long start = sequence;
+        sequence = start + 1;
+        VarHandle.storeStoreFence();
+
+        int slot = (int) (count % capacity);
+        timestamps[slot] = timestamp;
+        System.arraycopy(sample, 0, values, slot * channels, channels);
+        count++;
+
+        sequence = start + 2;
+    }
+
+    /**
+     * interpolates the sample at a given time. times outside of the buffer are clamped to the oldest or newest sample.
+     * @param timestamp the time in seconds
+     * @param sample an array of length channels which is filled with the interpolated values
+     * @return whether the buffer had any samples
+     */
+    public boolean get(double timestamp, double[] sample) {
+        while (true) {
+            long start = sequence;
+            if ((start & 1) == 0) {
+                boolean found = read(timestamp, sample);
+                VarHandle.loadLoadFence();
+                if (sequence == start)
+                    return found;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private boolean read(double timestamp, double[] sample) {
+        long total = count;
+        int size = (int) Math.min(total, capacity);
+        if (size == 0)
+            return false;
+        long first = total - size;
+
+        // the last sample which isn't after the timestamp
+        int low = 0, high = size - 1;
+        if (timestamp < timestamps[slot(first)]) {
+            high = 0;
+        } else {
+            while (low < high) {
+                int middle = (low + high + 1) >>> 1;
+                if (timestamps[slot(first + middle)] <= timestamp)
+                    low = middle;
+                else
+                    high = middle - 1;
+            }
+        }
+        int before = slot(first + high);
+        if (high == size - 1 || timestamp <= timestamps[before]) {
+            System.arraycopy(values, before * channels, sample, 0, channels);
+            return true;
+        }
+        int after = slot(first + high + 1);
+        double fraction = (timestamp - timestamps[before]) / (timestamps[after] - timestamps[before]);
+        for (int i = 0; i < channels; i++) {
+            double a = values[before * channels + i];
+            sample[i] = a + (values[after * channels + i] - a) * fraction;
+        }
+        return true;
+    }
+
+    private int slot(long index) {
+        return (int) (index % capacity);
+    }
+
+    /**
+     * @return the time of the newest sample in seconds, or NaN if the buffer is empty
+     */
+    public double getNewestTimestamp() {
+        while (true) {
+            long start = sequence;
+            if ((start & 1) == 0) {
+                long total = count;
+                double timestamp = total == 0 ? Double.NaN : timestamps[slot(total - 1)];
+                VarHandle.loadLoadFence();
+                if (sequence == start)
+                    return timestamp;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * @return the time of the oldest sample which is still kept in seconds, or NaN if the buffer is empty
+     */
+    public double getOldestTimestamp() {
+        while (true) {
+            long start = sequence;
+            if ((start & 1) == 0) {
+                long total = count;
+                double timestamp = total == 0 ? Double.NaN : timestamps[slot(Math.max(0, total - capacity))];
+                VarHandle.loadLoadFence();
+                if (sequence == start)
+                    return timestamp;
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * @return the number of samples which were ever added
+     */
+    public long getCount() {
+        while (true) {
+            long start = sequence;
+            long total = count;
+            VarHandle.loadLoadFence();
+            if ((start & 1) == 0 && sequence == start)
+                return total;
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * @return the number of values of each sample
+     */
+    public int getChannels() {
+        return channels;
+    }
+}
@@ -0,0 +1,59 @@
+package frc.robot.vision;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Replays recorded vision measurements, each released once the clock reaches the time it arrived at.
+ * The file has one measurement per line, and # for comments:
+ * <pre>
+ * [arrival time], [time the measurement was taken], [x], [y], [heading]
+ * </pre>
+ * in seconds, meters and radians. The arrival time models the latency of the coprocessor.
+ */
+public class RecordedVisionInput implements VisionInput {
+    private final DoubleSupplier clock;
+    private final double[] arrivalTimes;
+    private final double[][] measurements;
+    private int next = 0;
+
+    /**
+     * reads all of the measurements of a file
+     * @param path the path of the file
+     * @param clock the current time in seconds, in the time base of the recorded times
+     * @throws IOException if the file can't be read
+     */
+    public RecordedVisionInput(Path path, DoubleSupplier clock) throws IOException {
+        this.clock = clock;
+        List<String> lines = Files.readAllLines(path);
+        lines.removeIf(line -> line.trim().isEmpty() || line.trim().startsWith("#"));
+        arrivalTimes = new double[lines.size()];
+        measurements = new double[lines.size()][MEASUREMENT_SIZE];
+        for (int i = 0; i < lines.size(); i++) {
+            String[] values = lines.get(i).split(",");
+            arrivalTimes[i] = Double.parseDouble(values[0].trim());
+            for (int j = 0; j < MEASUREMENT_SIZE; j++) {
+                measurements[i][j] = Double.parseDouble(values[j + 1].trim());
+            }
+        }
+    }
+
+    @Override
+    public boolean poll(double[] measurement) {
+        if (next >= arrivalTimes.length || arrivalTimes[next] > clock.getAsDouble())
+            return false;
+        System.arraycopy(measurements[next], 0, measurement, 0, MEASUREMENT_SIZE);
+        next++;
+        return true;
+    }
+
+    /**
+     * @return the number of measurements which weren't released yet
+     */
+    public int getRemaining() {
+        return arrivalTimes.length - next;
+    }
+}
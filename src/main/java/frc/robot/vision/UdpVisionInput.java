@@ -0,0 +1,111 @@
+package frc.robot.vision;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Receives vision measurements from a coprocessor, or from a stand-in process on the desktop, over UDP.
+ * Each datagram is 4 little endian doubles: [latency in seconds, x in meters, y in meters, heading in radians],
+ * where the latency is the time from the capture of the image until the datagram was sent.
+ * The socket is non-blocking and the buffer is preallocated, so polling never blocks and never allocates.
+ * <p>
+ * The stand-in process replays a file of {@link RecordedVisionInput} in real time:
+ * {@code ./gradlew visionStandIn -Pvision=<file> [-Phost=<host>]}
+ */
+public class UdpVisionInput implements VisionInput {
+    public static final int DATAGRAM_SIZE = 4 * Double.BYTES;
+
+    private final DatagramChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(DATAGRAM_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private long malformedDatagrams = 0;
+
+    /**
+     * @param port the port to listen on
+     * @throws IOException if the port can't be bound
+     */
+    public UdpVisionInput(int port) throws IOException {
+        channel = DatagramChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(new InetSocketAddress(port));
+    }
+
+    @Override
+    public boolean poll(double[] measurement) {
+        while (true) {
+            buffer.clear();
+            try {
+                if (channel.receive(buffer) == null)
+                    return false;
+            } catch (IOException e) {
+                DriverStation.reportError("Failed to receive a vision measurement: " + e.getMessage(), false);
+                return false;
+            }
+            if (buffer.position() != DATAGRAM_SIZE) {
+                malformedDatagrams++;
+                continue;
+            }
+            measurement[TIMESTAMP] = Timer.getFPGATimestamp() - buffer.getDouble(0);
+            measurement[X] = buffer.getDouble(Double.BYTES);
+            measurement[Y] = buffer.getDouble(2 * Double.BYTES);
+            measurement[HEADING] = buffer.getDouble(3 * Double.BYTES);
+            return true;
+        }
+    }
+
+    /**
+     * @return the number of datagrams which were ignored because of their size
+     */
+    public long getMalformedDatagrams() {
+        return malformedDatagrams;
+    }
+
+    /**
+     * closes the socket
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * the stand-in process, which sends a recorded file at the times the measurements arrived
+     */
+    public static void main(String... args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.err.println("usage: UdpVisionInput <file> <host> <port>");
+            System.exit(1);
+        }
+        List<String> lines = Files.readAllLines(Paths.get(args[0]));
+        InetSocketAddress address = new InetSocketAddress(args[1], Integer.parseInt(args[2]));
+        ByteBuffer datagram = ByteBuffer.allocate(DATAGRAM_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            long start = System.nanoTime();
+            for (String line : lines) {
+                if (line.trim().isEmpty() || line.trim().startsWith("#"))
+                    continue;
+                String[] values = line.split(",");
+                double arrival = Double.parseDouble(values[0].trim());
+                double taken = Double.parseDouble(values[1].trim());
+                long wait = start + (long) (arrival * 1e9) - System.nanoTime();
+                if (wait > 0)
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+
+                datagram.clear();
+                datagram.putDouble(arrival - taken);
+                for (int i = 2; i <= 4; i++) {
+                    datagram.putDouble(Double.parseDouble(values[i].trim()));
+                }
+                datagram.flip();
+                channel.send(datagram, address);
+            }
+        }
+    }
+}
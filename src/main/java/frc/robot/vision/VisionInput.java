@@ -0,0 +1,21 @@
+package frc.robot.vision;
+
+/**
+ * A source of delayed absolute measurements of the pose of the robot, such as a vision coprocessor.
+ * The pose is in the coordinate system of {@link frc.robot.subsystems.drivetrain.SwerveOdometry}.
+ */
+public interface VisionInput {
+    int TIMESTAMP = 0;
+    int X = 1;
+    int Y = 2;
+    int HEADING = 3;
+    int MEASUREMENT_SIZE = 4;
+
+    /**
+     * takes the next measurement which has arrived, without blocking and without allocating
+     * @param measurement an array of length {@value #MEASUREMENT_SIZE} which is filled with
+     *                    [the time the measurement was taken in seconds, x in meters, y in meters, heading in radians]
+     * @return whether there was a new measurement
+     */
+    boolean poll(double[] measurement);
+}
@@ -39,4 +39,68 @@ public class UtilsTest {
 
         Assert.assertArrayEquals(exp, vector, delta);
     }
+
+    @Test
+    public void batchedCartesianToPolar() {
+        double[] x = {1, -2, 0, 0.3};
+        double[] y = {3, 0.5, -1, 0};
+        double[] magnitudes = new double[4];
+        double[] angles = new double[4];
+        double[] polar = new double[2];
+
+        Utils.cartesianToPolar(x, y, magnitudes, angles);
+        for (int i = 0; i < 4; i++) {
+            Utils.cartesianToPolar(x[i], y[i], polar);
+            Assert.assertEquals(polar[0], magnitudes[i], 0);
+            Assert.assertEquals(polar[1], angles[i], 0);
+        }
+
+        Utils.fastCartesianToPolar(x, y, magnitudes, angles);
+        for (int i = 0; i < 4; i++) {
+            Utils.cartesianToPolar(x[i], y[i], polar);
+            Assert.assertEquals(polar[0], magnitudes[i], 0);
+            Assert.assertEquals(polar[1], angles[i], Utils.FAST_ATAN2_MAX_ERROR);
+        }
+    }
+
+    @Test
+    public void fastAtan2ErrorBound() {
+        double maxError = 0;
+        // every direction, at magnitudes from tiny to large
+        for (int i = 0; i < 100000; i++) {
+            double angle = -Math.PI + 2 * Math.PI * i / 100000;
+            for (double magnitude : new double[]{1e-9, 1, 1e6}) {
+                double y = magnitude * Math.sin(angle);
+                double x = magnitude * Math.cos(angle);
+                maxError = Math.max(maxError, Math.abs(Utils.fastAtan2(y, x) - Math.atan2(y, x)));
+            }
+        }
+        Assert.assertTrue("max error " + maxError, maxError <= Utils.FAST_ATAN2_MAX_ERROR);
+
+        Assert.assertEquals(0, Utils.fastAtan2(0, 0), 0);
+        Assert.assertEquals(Math.PI, Utils.fastAtan2(0, -1), Utils.FAST_ATAN2_MAX_ERROR);
+        Assert.assertEquals(-Math.PI / 2, Utils.fastAtan2(-1, 0), Utils.FAST_ATAN2_MAX_ERROR);
+    }
+
+    @Test
+    public void fastSinCosErrorBound() {
+        double maxError = 0;
+        double[] angles = new double[1000];
+        double[] sin = new double[angles.length];
+        double[] cos = new double[angles.length];
+        // dense around zero, then sparse up to the max angle on both sides
+        for (int batch = 0; batch < 200; batch++) {
+            for (int i = 0; i < angles.length; i++) {
+                int k = batch * angles.length + i;
+                double t = (double) k / (200 * angles.length);
+                angles[i] = (k % 2 == 0 ? 1 : -1) * Utils.FAST_SIN_COS_MAX_ANGLE * t * t * t;
+            }
+            Utils.fastSinCos(angles, sin, cos);
+            for (int i = 0; i < angles.length; i++) {
+                maxError = Math.max(maxError, Math.abs(sin[i] - Math.sin(angles[i])));
+                maxError = Math.max(maxError, Math.abs(cos[i] - Math.cos(angles[i])));
+            }
+        }
+        Assert.assertTrue("max error " + maxError, maxError <= Utils.FAST_SIN_COS_MAX_ERROR);
+    }
 }
\ No newline at end of file
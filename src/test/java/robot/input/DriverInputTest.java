@@ -0,0 +1,93 @@
+package robot.input;
+
+import frc.robot.input.AxisSource;
+import frc.robot.input.DriverInput;
+import frc.robot.input.ResponseCurve;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DriverInputTest {
+
+    private final float[] joystick = new float[3];
+    private double packetTime = 1;
+    private DriverInput driverInput;
+    private final double[] snapshot = new double[DriverInput.SNAPSHOT_SIZE];
+    private double delta = 1e-6;
+
+    @Before
+    public void setup() {
+        AxisSource source = new AxisSource() {
+            @Override
+            public int read(float[] axes) {
+                System.arraycopy(joystick, 0, axes, 0, joystick.length);
+                return joystick.length;
+            }
+
+            @Override
+            public double getTimestamp() {
+                return packetTime;
+            }
+        };
+        driverInput = new DriverInput(source, 0, 1, 2, 0.1, ResponseCurve.power(1, 11), ResponseCurve.power(1, 11));
+    }
+
+    private void read(float x, float y, float z) {
+        joystick[0] = x;
+        joystick[1] = y;
+        joystick[2] = z;
+        driverInput.update();
+        driverInput.getSnapshot(snapshot);
+    }
+
+    @Test
+    public void negativeInputsArentZeroed() {
+        read(-1, 0, -1);
+        Assert.assertArrayEquals(new double[]{0, -1, -1}, snapshot, delta);
+        read(0, 1, -0.55f);
+        Assert.assertArrayEquals(new double[]{-1, 0, -0.5}, snapshot, delta);
+    }
+
+    @Test
+    public void radialDeadband() {
+        // each axis is within the deadband, but together they are past it
+        read(0.08f, -0.08f, 0.05f);
+        double magnitude = Math.hypot(0.08f, 0.08f);
+        double expected = (magnitude - 0.1) / 0.9;
+        Assert.assertEquals(expected * Math.sqrt(0.5), snapshot[DriverInput.FORWARD], delta);
+        Assert.assertEquals(expected * Math.sqrt(0.5), snapshot[DriverInput.STRAFE], delta);
+        Assert.assertEquals(0, snapshot[DriverInput.ROTATION], delta);
+
+        // the output starts from 0 at the edge of the deadband, and the direction of the stick is kept
+        read(0, -0.1f, 0.1f);
+        Assert.assertArrayEquals(new double[]{0, 0, 0}, snapshot, delta);
+        read(0.3f, -0.4f, 0.55f);
+        Assert.assertEquals(4.0 / 3, snapshot[DriverInput.FORWARD] / snapshot[DriverInput.STRAFE], delta);
+        Assert.assertEquals(0.4 / 0.9, Math.hypot(snapshot[0], snapshot[1]), delta);
+        Assert.assertEquals(0.5, snapshot[DriverInput.ROTATION], delta);
+    }
+
+    @Test
+    public void responseCurveInterpolatesTheTable() {
+        ResponseCurve curve = ResponseCurve.power(2, 257);
+        for (double value = -1; value <= 1; value += 0.001) {
+            // the error of linear interpolation of x^2 is at most h^2 / 4
+            Assert.assertEquals(Math.signum(value) * value * value, curve.apply(value), 1.0 / 256 / 256 / 4 + 1e-12);
+        }
+        Assert.assertEquals(1, curve.apply(1.5), delta);
+    }
+
+    @Test
+    public void inputAgeIsRecordedOncePerPacket() {
+        read(0, -1, 0);
+        driverInput.recordActuation(driverInput.getSnapshot(snapshot), 1.004);
+        // the same packet is actuated again by the next cycles
+        driverInput.recordActuation(driverInput.getSnapshot(snapshot), 1.009);
+        packetTime = 1.02;
+        read(0, -1, 0);
+        driverInput.recordActuation(driverInput.getSnapshot(snapshot), 1.027);
+
+        Assert.assertEquals(2, driverInput.getInputAge().getCycles());
+        Assert.assertEquals(0.007, driverInput.getInputAge().getMax(), delta);
+    }
+}
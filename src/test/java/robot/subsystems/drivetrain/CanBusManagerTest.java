@@ -0,0 +1,75 @@
+package robot.subsystems.drivetrain;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+import edu.wpi.first.wpilibj.CANStatus;
+import frc.robot.Constants;
+import frc.robot.subsystems.drivetrain.CanBusManager;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+public class CanBusManagerTest {
+
+    private CANStatus canStatus = new CANStatus();
+    private CanBusManager canBus;
+    private Map<StatusFrameEnhanced, Integer> periods = new EnumMap<>(StatusFrameEnhanced.class);
+    private ErrorCode result = ErrorCode.OK;
+    private double delta = 1e-9;
+
+    @Before
+    public void setup() {
+        canBus = new CanBusManager(() -> canStatus);
+        canBus.addDevice("Talon", (frame, period, timeout) -> {
+            periods.put(frame, period);
+            return result;
+        })
+                .frame(StatusFrameEnhanced.Status_2_Feedback0, new int[]{100, 10, 20})
+                .frame(StatusFrameEnhanced.Status_13_Base_PIDF0, Constants.CanBus.UNUSED_PERIODS);
+    }
+
+    @Test
+    public void appliesTheProfileOfTheMode() {
+        Assert.assertTrue(canBus.setMode(CanBusManager.TELEOP, 10));
+        Assert.assertEquals(10, (int) periods.get(StatusFrameEnhanced.Status_2_Feedback0));
+        Assert.assertEquals(255, (int) periods.get(StatusFrameEnhanced.Status_13_Base_PIDF0));
+
+        canBus.setMode(CanBusManager.DISABLED);
+        Assert.assertEquals(100, (int) periods.get(StatusFrameEnhanced.Status_2_Feedback0));
+        Assert.assertEquals(CanBusManager.DISABLED, canBus.getMode());
+
+        canBus.setMode(CanBusManager.AUTONOMOUS);
+        Assert.assertEquals(20, (int) periods.get(StatusFrameEnhanced.Status_2_Feedback0));
+    }
+
+    @Test
+    public void drivingFeedbackIsHeldByTheOdometry() {
+        // the odometry holds the positions for up to four of its steps without a false slip, see TractionControlTest
+        Assert.assertTrue(Constants.CanBus.FEEDBACK_PERIODS[CanBusManager.TELEOP] <= 4 * Constants.SwerveDrive.ODOMETRY_PERIOD * 1000);
+        Assert.assertTrue(Constants.CanBus.FEEDBACK_PERIODS[CanBusManager.AUTONOMOUS] <= 4 * Constants.SwerveDrive.ODOMETRY_PERIOD * 1000);
+    }
+
+    @Test
+    public void countsFailures() {
+        result = ErrorCode.CAN_MSG_STALE;
+        Assert.assertFalse(canBus.setMode(CanBusManager.TELEOP, 10));
+        Assert.assertEquals(2, canBus.getFailures());
+    }
+
+    @Test
+    public void estimatesTheLoad() {
+        // the control frame, the feedback frame and the unused frame of the single Talon, in frames per second
+        double teleop = 1000.0 / Constants.CanBus.CONTROL_PERIOD + 1000.0 / 10 + 1000.0 / 255;
+        double disabled = 1000.0 / Constants.CanBus.CONTROL_PERIOD + 1000.0 / 100 + 1000.0 / 255;
+        Assert.assertEquals(teleop * Constants.CanBus.FRAME_BITS / Constants.CanBus.BIT_RATE,
+                canBus.getEstimatedLoad(CanBusManager.TELEOP), delta);
+        Assert.assertEquals(disabled * Constants.CanBus.FRAME_BITS / Constants.CanBus.BIT_RATE,
+                canBus.getEstimatedLoad(CanBusManager.DISABLED), delta);
+
+        canStatus.percentBusUtilization = 0.42;
+        Assert.assertEquals(0.42, canBus.getMeasuredLoad(), delta);
+    }
+}
@@ -0,0 +1,93 @@
+package robot.subsystems.drivetrain;
+
+import frc.robot.Constants;
+import frc.robot.subsystems.drivetrain.SwerveDrive;
+import frc.robot.subsystems.drivetrain.commands.Characterize;
+import frc.robot.subsystems.drivetrain.simulation.DrivetrainSimulation;
+import frc.robot.utilities.CharacterizationLog;
+import frc.robot.utilities.FeedforwardSolver;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class CharacterizeTest {
+
+    private DrivetrainSimulation simulation;
+    private SwerveDrive swerveDrive;
+    private CharacterizationLog log;
+    private Path dumpFile;
+    private double[] gains = new double[FeedforwardSolver.GAINS_SIZE];
+
+    @Before
+    public void setup() throws Exception {
+        simulation = new DrivetrainSimulation();
+        swerveDrive = simulation.createSwerveDrive(false);
+        log = new CharacterizationLog(Constants.Characterization.LOG_SIZE, 4);
+        dumpFile = Files.createTempFile("characterization", ".csv");
+    }
+
+    /**
+     * runs the routine on top of the simulation, sampling at the rate of its thread
+     */
+    private Characterize characterize(int mechanism) throws Exception {
+        Characterize characterize = new Characterize(swerveDrive, mechanism, log, dumpFile);
+        characterize.initialize();
+        double timeout = simulation.getTime() + 60;
+        while (!characterize.isFinished() && simulation.getTime() < timeout) {
+            simulation.step(Constants.Characterization.PERIOD);
+            characterize.sample(simulation.getTime());
+        }
+        Assert.assertTrue("the routine didn't finish", characterize.isFinished());
+        characterize.end(false);
+        return characterize;
+    }
+
+    @Test
+    public void drive() throws Exception {
+        try {
+            Characterize characterize = characterize(Characterize.DRIVE);
+            for (int i = 0; i < 4; i++) {
+                double fit = characterize.getGains(i, gains);
+                Assert.assertTrue("the fit of module " + i + " is " + fit, fit > 0.99);
+                Assert.assertEquals(Constants.Simulation.DRIVE_KS, gains[FeedforwardSolver.KS], 0.02);
+                Assert.assertEquals(Constants.Simulation.DRIVE_KV, gains[FeedforwardSolver.KV], 0.05);
+                Assert.assertEquals(Constants.Simulation.DRIVE_KA, gains[FeedforwardSolver.KA], 0.05);
+            }
+
+            // the robot drove straight, forward and back, without leaving the distance of a run
+            double[] pose = new double[3];
+            simulation.getPose(pose);
+            Assert.assertEquals(0, pose[0], 0.05);
+            Assert.assertEquals(0, pose[2], 0.05);
+            Assert.assertTrue(Math.abs(pose[1]) < Constants.Characterization.DRIVE_DISTANCE);
+
+            // the dumped log is solved offline to the same gains
+            FeedforwardSolver offline = new FeedforwardSolver();
+            double[] offlineGains = new double[FeedforwardSolver.GAINS_SIZE];
+            offline.add(CharacterizationLog.load(dumpFile), 3, Constants.Characterization.MIN_VELOCITY);
+            offline.solve(offlineGains);
+            Assert.assertArrayEquals(gains, offlineGains, 1e-9);
+        } finally {
+            Files.deleteIfExists(dumpFile);
+        }
+    }
+
+    @Test
+    public void steer() throws Exception {
+        try {
+            Characterize characterize = characterize(Characterize.STEER);
+            for (int i = 0; i < 4; i++) {
+                double fit = characterize.getGains(i, gains);
+                Assert.assertTrue("the fit of module " + i + " is " + fit, fit > 0.99);
+                Assert.assertEquals(Constants.Simulation.ANGLE_KS, gains[FeedforwardSolver.KS], 0.03);
+                Assert.assertEquals(Constants.Simulation.ANGLE_KV, gains[FeedforwardSolver.KV], 0.05);
+                Assert.assertEquals(Constants.Simulation.ANGLE_KA, gains[FeedforwardSolver.KA], 0.01);
+            }
+        } finally {
+            Files.deleteIfExists(dumpFile);
+        }
+    }
+}
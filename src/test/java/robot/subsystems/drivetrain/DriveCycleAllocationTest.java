@@ -0,0 +1,103 @@
+package robot.subsystems.drivetrain;
+
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants;
+import frc.robot.input.AxisSource;
+import frc.robot.input.DriverInput;
+import frc.robot.input.ResponseCurve;
+import frc.robot.subsystems.drivetrain.DriveLoop;
+import frc.robot.subsystems.drivetrain.SwerveDrive;
+import frc.robot.subsystems.drivetrain.commands.HolonomicDrive;
+import frc.robot.subsystems.drivetrain.simulation.DrivetrainSimulation;
+import org.junit.Before;
+import org.junit.Test;
+import robot.utilities.AllocationRecorder;
+
+/**
+ * The teleop cycle must not allocate, since the garbage it leaves brings back the jitter of the collector.
+ * The cycles run against the simulated Talons and gyro, with stubbed joystick axes which sweep every direction,
+ * so that the wheels flip, steer and accelerate.
+ */
+public class DriveCycleAllocationTest {
+
+    // the compilation of the cycle by the JIT allocates while it settles, which isn't part of the cycle
+    private static final int WARMUP = 50000;
+    private static final int CYCLES = 20000;
+    private static final long BUDGET = 0; // in bytes per cycle
+    private static final int INPUTS = 97;
+
+    private DrivetrainSimulation simulation;
+    private SwerveDrive swerveDrive;
+    private final double[][] inputs = new double[INPUTS][3];
+    private double[] input = new double[3];
+    private int cycle = 0;
+
+    @Before
+    public void setUp() {
+        simulation = new DrivetrainSimulation();
+        swerveDrive = simulation.createSwerveDrive(true);
+        for (int i = 0; i < INPUTS; i++) {
+            double direction = 2 * Math.PI * i / INPUTS;
+            inputs[i][0] = Math.cos(direction);
+            inputs[i][1] = Math.sin(direction);
+            inputs[i][2] = Math.sin(3 * direction);
+        }
+    }
+
+    private void step() {
+        simulation.step(Constants.Simulation.STEP * 5);
+    }
+
+    @Test
+    public void teleopCycleDoesNotAllocate() {
+        DriverInput driverInput = new DriverInput(new AxisSource() {
+            @Override
+            public int read(float[] axes) {
+                axes[0] = (float) input[1];
+                axes[1] = (float) -input[0];
+                axes[2] = (float) input[2];
+                return 3;
+            }
+
+            @Override
+            public double getTimestamp() {
+                return simulation.getTime();
+            }
+        }, 0, 1, 2, Constants.SwerveDrive.JOYSTICK_THRESHOLD,
+                ResponseCurve.power(Constants.DriverInput.TRANSLATION_EXPONENT, Constants.DriverInput.CURVE_SIZE),
+                ResponseCurve.power(Constants.DriverInput.ROTATION_EXPONENT, Constants.DriverInput.CURVE_SIZE));
+        HolonomicDrive holonomicDrive = new HolonomicDrive(swerveDrive, driverInput);
+        holonomicDrive.initialize();
+        AllocationRecorder.assertAllocationBudget("the teleop cycle", () -> {
+            input = inputs[cycle++ % INPUTS];
+            holonomicDrive.execute();
+            if (cycle % 500 == 0)
+                swerveDrive.lock();
+        }, this::step, WARMUP, CYCLES, BUDGET);
+    }
+
+    @Test
+    public void driveLoopCycleDoesNotAllocate() {
+        DriveLoop driveLoop = swerveDrive.enableDriveLoop(Constants.DriveLoop.PERIOD);
+        AllocationRecorder.assertAllocationBudget("the drive loop cycle", () -> {
+            input = inputs[cycle++ % INPUTS];
+            swerveDrive.robotOrientedDrive(input[0], input[1], input[2]);
+            driveLoop.update(simulation.getTime());
+        }, this::step, WARMUP, CYCLES, BUDGET);
+    }
+
+    @Test
+    public void odometryUpdateDoesNotAllocate() {
+        // the wheels slip while the robot drives, so the slip detection of the odometry weights them
+        simulation.setTraction(0, 0.1);
+        DriveLoop driveLoop = swerveDrive.enableDriveLoop(Constants.DriveLoop.PERIOD);
+        AllocationRecorder.assertAllocationBudget("the odometry update", () -> {
+            swerveDrive.getOdometry().update(simulation.getTime());
+        }, () -> {
+            input = inputs[cycle++ % INPUTS];
+            swerveDrive.robotOrientedDrive(input[0], input[1], input[2]);
+            driveLoop.update(Timer.getFPGATimestamp());
+            step();
+        }, WARMUP, CYCLES, BUDGET);
+    }
+}
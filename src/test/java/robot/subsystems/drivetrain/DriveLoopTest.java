@@ -0,0 +1,115 @@
+package robot.subsystems.drivetrain;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants;
+import frc.robot.subsystems.drivetrain.DriveLoop;
+import frc.robot.subsystems.drivetrain.SwerveDrive;
+import frc.robot.subsystems.drivetrain.SwerveModule;
+import frc.robot.subsystems.drivetrain.simulation.DrivetrainSimulation;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DriveLoopTest {
+
+    private static final double PERIOD = 0.005;
+    private DrivetrainSimulation simulation;
+    private SwerveDrive swerveDrive;
+    private DriveLoop driveLoop;
+
+    @Before
+    public void setUp() {
+        simulation = new DrivetrainSimulation();
+        swerveDrive = simulation.createSwerveDrive(false);
+        driveLoop = swerveDrive.enableDriveLoop(PERIOD);
+    }
+
+    @Test
+    public void requestsAreAppliedByTheLoop() {
+        swerveDrive.holonomicDrive(1, 0, 0);
+        // the scheduler thread only posts the request
+        Assert.assertEquals(0, swerveDrive.getCommandedSpeed(0), 1e-9);
+
+        double now = Timer.getFPGATimestamp();
+        for (int i = 1; i <= 4; i++) {
+            driveLoop.update(now);
+            // each cycle of the loop advances the setpoint by the acceleration limit over the period of the loop
+            Assert.assertEquals(i * Constants.Drivetrain.MAX_ACCELERATION * PERIOD, swerveDrive.getCommandedSpeed(0), 1e-9);
+        }
+
+        swerveDrive.stop();
+        driveLoop.update(now);
+        Assert.assertEquals(0, swerveDrive.getCommandedSpeed(0), 1e-9);
+    }
+
+    @Test
+    public void staleRequestStopsTheModules() {
+        swerveDrive.holonomicDrive(1, 0, 0);
+        double now = Timer.getFPGATimestamp();
+        driveLoop.update(now);
+        Assert.assertTrue(swerveDrive.getCommandedSpeed(0) > 0);
+
+        // the scheduler stopped renewing the request
+        driveLoop.update(now + 2 * Constants.DriveLoop.REQUEST_TIMEOUT);
+        driveLoop.update(now + 3 * Constants.DriveLoop.REQUEST_TIMEOUT);
+        Assert.assertEquals(0, swerveDrive.getCommandedSpeed(0), 1e-9);
+        Assert.assertEquals(1, driveLoop.getStaleRequests());
+    }
+
+    @Test
+    public void lockIsLatched() {
+        swerveDrive.lock();
+        double now = Timer.getFPGATimestamp();
+        driveLoop.update(now);
+        driveLoop.update(now + 2 * Constants.DriveLoop.REQUEST_TIMEOUT);
+
+        // the lock is kept without being renewed, and isn't a stale request which stops the angle motors
+        Assert.assertEquals(0, driveLoop.getStaleRequests());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(ControlMode.Position, simulation.getAngleMotor(i).getControlMode());
+        }
+    }
+
+    @Test
+    public void modulesAreReadByTheLoop() {
+        simulation.step(0.1);
+        driveLoop.update(simulation.getTime());
+        for (SwerveModule swerveModule : swerveDrive.swerveModules) {
+            Assert.assertEquals(simulation.getTime(), swerveModule.getSnapshot().timestamp, 1e-9);
+            // the scheduler thread no longer writes the snapshot
+            swerveModule.periodic();
+            Assert.assertEquals(simulation.getTime(), swerveModule.getSnapshot().timestamp, 1e-9);
+        }
+    }
+
+    @Test
+    public void settleTimeIsMeasuredByTheLoop() {
+        // the wheels steer to the lock, which is latched, and settle on the clock of the loop
+        swerveDrive.lock();
+        for (int i = 0; i < 200; i++) {
+            simulation.step(PERIOD);
+            driveLoop.update(simulation.getTime());
+        }
+        for (SwerveModule swerveModule : swerveDrive.swerveModules) {
+            Assert.assertTrue(swerveModule.getLastSettleTime() > 0 && swerveModule.getLastSettleTime() < 1);
+        }
+    }
+
+    @Test
+    public void countsMissedDeadlines() {
+        long period = (long) (PERIOD * 1e9);
+        long ms = 1_000_000;
+        driveLoop.record(0, ms);
+        driveLoop.record(period, period + ms);
+        driveLoop.record(2 * period, 2 * period + ms);
+        Assert.assertEquals(0, driveLoop.getMissedDeadlines());
+
+        // the cycle ends after the next one was due, and the next cycle catches up on the schedule
+        driveLoop.record(3 * period, 3 * period + 8 * ms);
+        driveLoop.record(3 * period + 8 * ms, 3 * period + 9 * ms);
+        driveLoop.record(5 * period, 5 * period + ms);
+        Assert.assertEquals(1, driveLoop.getMissedDeadlines());
+        Assert.assertEquals(3e-3, driveLoop.getLoopTime().getMaxJitter(), 1e-9);
+    }
+}
@@ -0,0 +1,97 @@
+package robot.subsystems.drivetrain;
+
+import frc.robot.Constants;
+import frc.robot.subsystems.drivetrain.SwerveModule;
+import frc.robot.subsystems.drivetrain.simulation.SimulatedTalon;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static frc.robot.Constants.Simulation.*;
+
+/**
+ * Step responses of the drive velocity control of a module on a simulated drive motor.
+ */
+public class DriveVelocityControlTest {
+
+    private static final double STEP_SPEED = 2; // in m/s
+    private static final double DURATION = 2; // in seconds
+
+    // the rise time from 10% to 90% and the steady state error of the last step response
+    private double riseTime;
+    private double steadyStateError;
+    // the module and the drive motor of the last step response
+    private SwerveModule module;
+    private SimulatedTalon drive;
+
+    /**
+     * runs a step of the speed setpoint at the rate of the main loop, while the simulated Talon runs at 1 kHz
+     * @param closedLoop whether the drive is closed loop
+     * @param loadFactor how much more voltage the real mechanism needs per velocity and per acceleration than the feedforward model
+     */
+    private void stepResponse(boolean closedLoop, double loadFactor) {
+        drive = new SimulatedTalon(DRIVE_KS, loadFactor * DRIVE_KV / Constants.Drivetrain.TICKS_PER_METER,
+                loadFactor * DRIVE_KA / Constants.Drivetrain.TICKS_PER_METER, DRIVE_RESISTANCE);
+        drive.configPIDF(Constants.SwerveModule.DRIVE_KP, Constants.SwerveModule.DRIVE_KI,
+                Constants.SwerveModule.DRIVE_KD, Constants.SwerveModule.DRIVE_KF);
+        module = new SwerveModule(0, drive, new SimulatedTalon(ANGLE_KS, ANGLE_KV, ANGLE_KA, ANGLE_RESISTANCE));
+        module.setDriveClosedLoop(closedLoop);
+
+        double riseStart = Double.NaN;
+        double riseEnd = Double.NaN;
+        int steps = (int) Math.round(DURATION / STEP);
+        int stepsPerCycle = (int) Math.round(Constants.Drivetrain.TIME_STEP / STEP);
+        for (int i = 0; i < steps; i++) {
+            if (i % stepsPerCycle == 0)
+                module.setSpeed(STEP_SPEED, Constants.Drivetrain.TIME_STEP);
+            drive.step(STEP);
+
+            double speed = drive.getVelocity() / Constants.Drivetrain.TICKS_PER_METER;
+            double time = (i + 1) * STEP;
+            if (Double.isNaN(riseStart) && speed >= 0.1 * STEP_SPEED)
+                riseStart = time;
+            if (Double.isNaN(riseEnd) && speed >= 0.9 * STEP_SPEED)
+                riseEnd = time;
+        }
+        riseTime = riseEnd - riseStart;
+        steadyStateError = STEP_SPEED - drive.getVelocity() / Constants.Drivetrain.TICKS_PER_METER;
+    }
+
+    @Test
+    public void bothModesTrackTheModel() {
+        stepResponse(true, 1);
+        Assert.assertTrue(riseTime < 0.25);
+        Assert.assertEquals(0, steadyStateError, 0.02);
+
+        // the open loop rises with the time constant kA / kV of the mechanism, after one cycle of acceleration feedforward
+        stepResponse(false, 1);
+        Assert.assertTrue(riseTime < 0.8);
+        Assert.assertEquals(0, steadyStateError, 0.02);
+    }
+
+    @Test
+    public void singleStopStopsTheWheel() {
+        for (boolean closedLoop : new boolean[]{true, false}) {
+            stepResponse(closedLoop, 1);
+            // a command ends with a single stop while the module is at speed, which has to stop the wheel on its own
+            module.stopDriveMotor();
+            int steps = (int) Math.round(DURATION / STEP);
+            for (int i = 0; i < steps; i++) {
+                drive.step(STEP);
+            }
+            Assert.assertEquals("closed loop " + closedLoop, 0, drive.getVelocity() / Constants.Drivetrain.TICKS_PER_METER, 0.05);
+        }
+    }
+
+    @Test
+    public void closedLoopRejectsModelError() {
+        // kV and kA of the real robot are 20% higher than the characterization, while kS matches it
+        stepResponse(false, 1.2);
+        double openLoopError = steadyStateError;
+        stepResponse(true, 1.2);
+        double closedLoopError = steadyStateError;
+
+        Assert.assertTrue(riseTime < 0.3);
+        Assert.assertTrue(openLoopError > 0.2);
+        Assert.assertTrue("closed loop error " + closedLoopError, closedLoopError < openLoopError / 2);
+    }
+}
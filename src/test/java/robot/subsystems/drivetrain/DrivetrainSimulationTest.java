@@ -0,0 +1,183 @@
+package robot.subsystems.drivetrain;
+
+import frc.robot.subsystems.drivetrain.SwerveDrive;
+import frc.robot.subsystems.drivetrain.SwerveModule;
+import frc.robot.subsystems.drivetrain.commands.FollowTrajectory;
+import frc.robot.subsystems.drivetrain.simulation.DrivetrainSimulation;
+import frc.robot.subsystems.drivetrain.trajectory.Trajectory;
+import frc.robot.subsystems.drivetrain.trajectory.TrajectoryGenerator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class DrivetrainSimulationTest {
+
+    private static final double CYCLE = 0.02;
+
+    private DrivetrainSimulation simulation;
+    private SwerveDrive swerveDrive;
+    private double[] pose = new double[3];
+    private double[] odometryPose = new double[3];
+
+    @Before
+    public void setup() {
+        simulation = new DrivetrainSimulation();
+        swerveDrive = simulation.createSwerveDrive(false);
+    }
+
+    /**
+     * runs the drive cycle of the robot on top of the simulation
+     */
+    private void drive(double forward, double strafe, double rotation, double duration) {
+        int cycles = (int) Math.round(duration / CYCLE);
+        for (int i = 0; i < cycles; i++) {
+            simulation.step(CYCLE);
+            for (SwerveModule swerveModule : swerveDrive.swerveModules) {
+                swerveModule.update(simulation.getTime());
+            }
+            swerveDrive.getOdometry().update(simulation.getTime());
+            swerveDrive.holonomicDrive(forward, strafe, rotation);
+        }
+    }
+
+    @Test
+    public void driveForward() {
+        drive(1, 0, 0, 2);
+        simulation.getPose(pose);
+
+        Assert.assertTrue("the robot didn't drive forward: " + pose[1], pose[1] > 1);
+        Assert.assertEquals(0, pose[0], 0.01);
+        Assert.assertEquals(0, pose[2], 0.01);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(0, simulation.getWheelAngle(i), 0.05);
+        }
+
+        swerveDrive.getPose(odometryPose);
+        Assert.assertArrayEquals(pose, odometryPose, 0.05);
+    }
+
+    @Test
+    public void strafe() {
+        drive(0, 1, 0, 2);
+        simulation.getPose(pose);
+
+        Assert.assertTrue("the robot didn't strafe: " + pose[0], pose[0] > 1);
+        // the wheels keep driving while they steer to the side
+        Assert.assertEquals(0, pose[1], 0.3);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(Math.PI / 2, simulation.getWheelAngle(i), 0.05);
+        }
+
+        swerveDrive.getPose(odometryPose);
+        Assert.assertArrayEquals(pose, odometryPose, 0.05);
+    }
+
+    /**
+     * drives field oriented after the robot turned, and checks the direction the robot moved on the field
+     * @param forward the forward speed on the field
+     * @param strafe the strafe speed on the field
+     * @param direction the expected direction of the displacement, clockwise from the Y axis of the field
+     */
+    private void driveFieldOriented(double forward, double strafe, double direction) {
+        swerveDrive = simulation.createSwerveDrive(true);
+        drive(0, 0, 0.3, 1);
+        drive(0, 0, 0, 0.5);
+        simulation.getPose(pose);
+        double startX = pose[0];
+        double startY = pose[1];
+        double heading = pose[2];
+        Assert.assertTrue("the robot didn't turn: " + heading, heading > 0.5);
+
+        drive(forward, strafe, 0, 1.5);
+        simulation.getPose(pose);
+        double dx = pose[0] - startX;
+        double dy = pose[1] - startY;
+        Assert.assertTrue("the robot didn't move: " + Math.hypot(dx, dy), Math.hypot(dx, dy) > 0.5);
+        Assert.assertEquals(direction, Math.atan2(dx, dy), 0.1);
+        Assert.assertEquals(heading, pose[2], 0.05);
+    }
+
+    @Test
+    public void fieldOrientedForward() {
+        driveFieldOriented(1, 0, 0);
+    }
+
+    @Test
+    public void fieldOrientedStrafe() {
+        driveFieldOriented(0, 1, Math.PI / 2);
+    }
+
+    @Test
+    public void followTrajectoryStartsFromTheResetPose() throws IOException {
+        Path path = Files.createTempFile("trajectory", TrajectoryGenerator.TRAJECTORY_EXTENSION);
+        Trajectory.write(path, CYCLE, new double[][]{{1, 2, 0.5, 0, 0, 0}, {1, 2, 0.5, 0, 0, 0}});
+        FollowTrajectory followTrajectory = new FollowTrajectory(swerveDrive, Trajectory.load("reset", path));
+        Files.delete(path);
+
+        // the pose of the odometry is stale until its thread applies the reset, so the trajectory doesn't start
+        followTrajectory.initialize();
+        followTrajectory.execute();
+        Assert.assertTrue(swerveDrive.getOdometry().isResetPending());
+        Assert.assertFalse(followTrajectory.isFinished());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(0, swerveDrive.getCommandedSpeed(i), 1e-9);
+        }
+
+        swerveDrive.getOdometry().update(simulation.getTime());
+        Assert.assertFalse(swerveDrive.getOdometry().isResetPending());
+        swerveDrive.getPose(odometryPose);
+        Assert.assertArrayEquals(new double[]{1, 2, 0.5}, odometryPose, 1e-9);
+
+        // the robot rests at the start of the trajectory, so there is no error to correct
+        followTrajectory.execute();
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(0, swerveDrive.getCommandedSpeed(i), 1e-9);
+        }
+    }
+
+    /**
+     * steers every wheel by the given angle and waits until they all settle
+     * @return the settle time of each wheel in seconds
+     */
+    private double[] steer(double angle, boolean motionMagic) {
+        swerveDrive.setAngleMotionMagic(motionMagic);
+        for (int i = 0; i < 100; i++) {
+            for (SwerveModule swerveModule : swerveDrive.swerveModules) {
+                swerveModule.update(simulation.getTime());
+                swerveModule.setAngle(angle);
+            }
+            simulation.step(CYCLE);
+        }
+        double[] settleTimes = new double[4];
+        for (int i = 0; i < 4; i++) {
+            settleTimes[i] = swerveDrive.swerveModules[i].getLastSettleTime();
+            Assert.assertEquals(angle, simulation.getWheelAngle(i), 0.05);
+        }
+        return settleTimes;
+    }
+
+    @Test
+    public void steeringSettleTime() {
+        double[] position = steer(1.2, false);
+        double[] motionMagic = steer(0, true);
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(position[i] > 0 && position[i] < 1);
+            Assert.assertTrue(motionMagic[i] > 0 && motionMagic[i] < 1);
+        }
+    }
+
+    @Test
+    public void fasterThanRealTime() {
+        long start = System.nanoTime();
+        drive(0.5, 0.5, 0, 600);
+        double wallTime = (System.nanoTime() - start) / 1e9;
+
+        Assert.assertEquals(600, simulation.getTime(), 1e-6);
+        Assert.assertTrue("simulated 600 seconds in " + wallTime + " seconds", wallTime < 60);
+    }
+}
@@ -0,0 +1,35 @@
+package robot.subsystems.drivetrain;
+
+import frc.robot.subsystems.drivetrain.GyroService;
+import frc.robot.subsystems.drivetrain.simulation.SimulatedGyro;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GyroServiceTest {
+
+    @Test
+    public void looksUpPastHeadings() {
+        SimulatedGyro gyro = new SimulatedGyro();
+        GyroService service = new GyroService(gyro, 200);
+        double[] sample = new double[2];
+
+        // turns at 90 degrees per second, sampled at 200 Hz
+        for (int i = 0; i <= 100; i++) {
+            gyro.setState(i * 0.45, 90);
+            service.sample(i * 0.005);
+        }
+        Assert.assertEquals(45, service.getAngle(), 1e-9);
+        Assert.assertEquals(90, service.getRate(), 1e-9);
+        Assert.assertEquals(0.5, service.getLatestTimestamp(), 1e-9);
+
+        Assert.assertTrue(service.getSample(0.2525, sample));
+        Assert.assertEquals(22.725, sample[GyroService.YAW], 1e-9);
+        Assert.assertEquals(90, sample[GyroService.RATE], 1e-9);
+
+        // a reset zeroes the newest heading, and past headings move with it
+        service.reset();
+        Assert.assertEquals(0, service.getAngle(), 1e-9);
+        service.getSample(0.25, sample);
+        Assert.assertEquals(-22.5, sample[GyroService.YAW], 1e-9);
+    }
+}
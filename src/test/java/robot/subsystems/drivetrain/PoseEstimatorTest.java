@@ -0,0 +1,92 @@
+package robot.subsystems.drivetrain;
+
+import frc.robot.subsystems.drivetrain.PoseEstimator;
+import frc.robot.vision.RecordedVisionInput;
+import frc.robot.vision.VisionInput;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+public class PoseEstimatorTest {
+
+    private static final double PERIOD = 0.005;
+    private final double[] pose = new double[3];
+    private double time = 0;
+
+    private PoseEstimator createEstimator(int capacity) {
+        PoseEstimator estimator = new PoseEstimator(capacity, 0.2, 0.01, 0.05, 0.05);
+        estimator.reset(0, 0, 0, 0, 0);
+        return estimator;
+    }
+
+    @Test
+    public void recordedVisionCorrectsBiasedOdometry() throws IOException {
+        // the robot drives forward at 1 m/s, and the wheels measure 10% less than the distance traveled.
+        // the recorded measurements of the true pose arrive 60 ms after they were taken
+        PoseEstimator estimator = createEstimator(300);
+        PoseEstimator odometry = createEstimator(300);
+        VisionInput vision = new RecordedVisionInput(Paths.get("src/test/resources/vision.csv"), () -> time);
+        double[] measurement = new double[VisionInput.MEASUREMENT_SIZE];
+
+        for (int i = 1; i <= 620; i++) {
+            time = i * PERIOD;
+            estimator.addOdometry(time, 0.9 * PERIOD, 0, 0, 0);
+            odometry.addOdometry(time, 0.9 * PERIOD, 0, 0, 0);
+            while (vision.poll(measurement)) {
+                Assert.assertTrue(estimator.addMeasurement(measurement[VisionInput.TIMESTAMP],
+                        measurement[VisionInput.X], measurement[VisionInput.Y], measurement[VisionInput.HEADING]));
+            }
+        }
+
+        odometry.getPose(pose);
+        Assert.assertEquals(2.79, pose[1], 1e-9);
+        // the last measurement was taken at 3 seconds, and the odometry since then is replayed on top of it
+        estimator.getPose(pose);
+        Assert.assertEquals(3.1, pose[1], 0.03);
+        Assert.assertEquals(0, pose[0], 1e-9);
+        Assert.assertEquals(30, estimator.getAppliedMeasurements());
+    }
+
+    @Test
+    public void delayedMeasurementMatchesImmediateMeasurement() {
+        // fusing a measurement late, at the time it was taken, is the same as fusing it when it was taken
+        PoseEstimator immediate = createEstimator(100);
+        PoseEstimator delayed = createEstimator(100);
+        double[] delayedPose = new double[3];
+
+        for (int i = 1; i <= 80; i++) {
+            double heading = 0.01 * i;
+            immediate.addOdometry(i * PERIOD, 0.004, 0.001, heading - 0.005, heading);
+            delayed.addOdometry(i * PERIOD, 0.004, 0.001, heading - 0.005, heading);
+            if (i == 20)
+                immediate.addMeasurement(20 * PERIOD, 0.1, 0.2, 0.3);
+            if (i == 60)
+                delayed.addMeasurement(20 * PERIOD, 0.1, 0.2, 0.3);
+        }
+
+        immediate.getPose(pose);
+        delayed.getPose(delayedPose);
+        Assert.assertArrayEquals(pose, delayedPose, 1e-12);
+    }
+
+    @Test
+    public void rejectsMeasurementsOlderThanTheHistory() {
+        PoseEstimator estimator = createEstimator(50);
+        for (int i = 1; i <= 100; i++) {
+            estimator.addOdometry(i * PERIOD, 0.005, 0, 0, 0);
+        }
+        estimator.getPose(pose);
+        double y = pose[1];
+
+        Assert.assertFalse(estimator.addMeasurement(10 * PERIOD, 0, 5, 0));
+        Assert.assertEquals(1, estimator.getRejectedMeasurements());
+        estimator.getPose(pose);
+        Assert.assertEquals(y, pose[1], 1e-12);
+
+        Assert.assertTrue(estimator.addMeasurement(90 * PERIOD, 0, 5, 0));
+        estimator.getPose(pose);
+        Assert.assertTrue(pose[1] > y);
+    }
+}
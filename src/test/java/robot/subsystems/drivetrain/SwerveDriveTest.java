@@ -1,6 +1,7 @@
 package robot.subsystems.drivetrain;
 
 import frc.robot.subsystems.drivetrain.SwerveDrive;
+import frc.robot.subsystems.drivetrain.SwerveKinematics;
 import org.junit.*;
 
 import java.util.Arrays;
@@ -47,10 +48,11 @@ public class SwerveDriveTest {
         gyro =  3 * Math.PI / 2;
 
         expectedHeading = new double[]{forward * SPEED_MULTIPLIER, strafe * SPEED_MULTIPLIER, rotation * ROTATION_MULTIPLIER};
-        expectedHeadingField = new double[]{0, -0.7, 0};
+        // the robot faces to the left of the field, so the forward of the field is to its right
+        expectedHeadingField = new double[]{0, 0.7, 0};
         expectedVel = new double[]{ strafe * SPEED_MULTIPLIER, forward * SPEED_MULTIPLIER, strafe * SPEED_MULTIPLIER, forward * SPEED_MULTIPLIER,
                 strafe * SPEED_MULTIPLIER, forward * SPEED_MULTIPLIER, strafe * SPEED_MULTIPLIER, forward * SPEED_MULTIPLIER};
-        expectedVelField = new double[]{-0.7, 0, -0.7, 0, -0.7, 0, -0.7, 0};
+        expectedVelField = new double[]{0.7, 0, 0.7, 0, 0.7, 0, 0.7, 0};
 
         getRobotHeading();
         getRobotHeadingField();
@@ -67,11 +69,11 @@ public class SwerveDriveTest {
         gyro =  3 * Math.PI / 2;
 
         expectedHeading = new double[]{forward * SPEED_MULTIPLIER, strafe * SPEED_MULTIPLIER, rotation * ROTATION_MULTIPLIER};
-        expectedHeadingField = new double[]{0.35, -0.35, rotation * ROTATION_MULTIPLIER};
+        expectedHeadingField = new double[]{-0.35, 0.35, rotation * ROTATION_MULTIPLIER};
 
         expectedVel = new double[]{strafe * SPEED_MULTIPLIER, forward * SPEED_MULTIPLIER, strafe * SPEED_MULTIPLIER, forward * SPEED_MULTIPLIER,
                 strafe * SPEED_MULTIPLIER, forward * SPEED_MULTIPLIER, strafe * SPEED_MULTIPLIER, forward * SPEED_MULTIPLIER};
-        expectedVelField = new double[]{-0.35, 0.35, -0.35, 0.35, -0.35, 0.35, -0.35, 0.35};
+        expectedVelField = new double[]{0.35, -0.35, 0.35, -0.35, 0.35, -0.35, 0.35, -0.35};
 
         getRobotHeading();
         getRobotHeadingField();
@@ -129,4 +131,16 @@ public class SwerveDriveTest {
         Assert.assertArrayEquals(expected, swerveDrive.calculateLockAngles(), delta);
     }
 
+    @Test
+    public void lockAnglesOfARectangularChassis() {
+        SwerveKinematics kinematics = new SwerveKinematics(0.6, 0.9);
+        double[] lockAngles = SwerveDrive.calculateLockAngles(kinematics);
+        double[] position = new double[2];
+        // every wheel points along the line from the center to its module, whatever the shape of the chassis
+        for (int i = 0; i < lockAngles.length; i++) {
+            kinematics.getModulePosition(i, position);
+            Assert.assertEquals(0, Math.sin(lockAngles[i]) * position[1] - Math.cos(lockAngles[i]) * position[0], 1e-9);
+        }
+    }
+
 }
\ No newline at end of file
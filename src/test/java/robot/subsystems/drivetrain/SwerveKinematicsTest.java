@@ -0,0 +1,114 @@
+package robot.subsystems.drivetrain;
+
+import frc.robot.subsystems.drivetrain.SwerveKinematics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import static frc.robot.Constants.SwerveDrive.*;
+
+public class SwerveKinematicsTest {
+
+    private SwerveKinematics kinematics = new SwerveKinematics(ROBOT_WIDTH, ROBOT_LENGTH);
+    private double delta = 1e-9;
+    // the round trip goes through the bounded-error atan2 and sin/cos of Utils when FAST_MATH is on
+    private double roundTripDelta = FAST_MATH ? 1e-4 : 1e-9;
+
+    @Test
+    public void forwardKinematicsInvertsInverseKinematics() {
+        double[][] headings = { {0.7, 0, 0}, {0, -0.35, 0}, {0, 0, Math.PI}, {0.5, 0.2, -1.3} };
+        double[] wheelVelocities = new double[8];
+        double[] speeds = new double[4];
+        double[] angles = new double[4];
+        double[] robotHeading = new double[3];
+
+        for (double[] heading : headings) {
+            kinematics.calculateWheelVelocities(heading, wheelVelocities);
+            kinematics.toModuleStates(wheelVelocities, speeds, angles);
+            kinematics.toRobotHeading(speeds, angles, robotHeading);
+
+            Assert.assertArrayEquals(heading, robotHeading, roundTripDelta);
+        }
+    }
+
+    @Test
+    public void forwardKinematicsAveragesInconsistentWheels() {
+        // one wheel is slower than the rest, the least squares solution is the mean forward speed
+        double[] speeds = {1, 1, 1, 0.6};
+        double[] angles = {0, 0, 0, 0};
+        double[] robotHeading = new double[3];
+
+        kinematics.toRobotHeading(speeds, angles, robotHeading);
+
+        Assert.assertEquals(0.9, robotHeading[0], delta);
+        Assert.assertEquals(0, robotHeading[1], delta);
+    }
+
+    @Test
+    public void modulePositionsMatchTheRectangularChassis() {
+        // a chassis which isn't square, so swapped axes would show
+        double width = 0.6;
+        double length = 0.9;
+        double[][] expectedPositions = { {0.3, 0.45}, {-0.3, 0.45}, {-0.3, -0.45}, {0.3, -0.45} };
+        double[][] positions = SwerveKinematics.rectangle(width, length);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertArrayEquals(expectedPositions[i], positions[i], delta);
+        }
+
+        SwerveKinematics rectangle = new SwerveKinematics(width, length);
+        double[][] headings = { {1, 0, 0}, {0, 1, 0}, {0, 0, 1}, {0.5, 0.2, -1.3} };
+        double[] wheelVelocities = new double[8];
+        double[] expected = new double[8];
+
+        Assert.assertEquals(4, rectangle.getModuleCount());
+        for (double[] heading : headings) {
+            for (int i = 0; i < 4; i++) {
+                // a point (x, y) of a robot which rotates clockwise at w moves at (w * y, -w * x)
+                expected[2 * i] = heading[1] + heading[2] * expectedPositions[i][1];
+                expected[2 * i + 1] = heading[0] - heading[2] * expectedPositions[i][0];
+            }
+            rectangle.calculateWheelVelocities(heading, wheelVelocities);
+            Assert.assertArrayEquals(expected, wheelVelocities, delta);
+        }
+
+        // rotating clockwise in place, the front right wheel moves right and back, by the length more than the width
+        rectangle.calculateWheelVelocities(new double[]{0, 0, 1}, wheelVelocities);
+        Assert.assertEquals(0.45, wheelVelocities[0], delta);
+        Assert.assertEquals(-0.3, wheelVelocities[1], delta);
+    }
+
+    @Test
+    public void forwardKinematicsOfAnyChassis() {
+        // three modules on a triangle whose center isn't the center of rotation
+        SwerveKinematics triangle = new SwerveKinematics(new double[][]{ {0, 0.5}, {-0.4, -0.2}, {0.3, -0.3} });
+        double[][] headings = { {0.7, 0, 0}, {0, -0.35, 0}, {0, 0, 2}, {0.5, 0.2, -1.3} };
+        double[] wheelVelocities = new double[6];
+        double[] speeds = new double[3];
+        double[] angles = new double[3];
+        double[] robotHeading = new double[3];
+
+        for (double[] heading : headings) {
+            triangle.calculateWheelVelocities(heading, wheelVelocities);
+            triangle.toModuleStates(wheelVelocities, speeds, angles);
+            triangle.toRobotHeading(speeds, angles, robotHeading);
+
+            Assert.assertArrayEquals(heading, robotHeading, roundTripDelta);
+        }
+
+        // a pure rotation turns each wheel perpendicular to its position, at the rotation speed times its radius
+        triangle.calculateWheelVelocities(new double[]{0, 0, 2}, wheelVelocities);
+        Assert.assertEquals(2 * 0.5, wheelVelocities[0], delta);
+        Assert.assertEquals(0, wheelVelocities[1], delta);
+        Assert.assertEquals(2 * Math.hypot(0.4, 0.2), Math.hypot(wheelVelocities[2], wheelVelocities[3]), delta);
+        Assert.assertEquals(0, -0.4 * wheelVelocities[2] - 0.2 * wheelVelocities[3], delta);
+    }
+
+    @Test
+    public void modulesAtOnePointDontDetermineTheRotation() {
+        try {
+            new SwerveKinematics(new double[][]{ {0.2, 0.2}, {0.2, 0.2} });
+            Assert.fail("the kinematics of modules at one point were built");
+        } catch (IllegalArgumentException expected) {
+            // the rotation of the robot can't be measured
+        }
+    }
+}
@@ -1,9 +1,12 @@
 package robot.subsystems.drivetrain;
 
+import com.ctre.phoenix.motorcontrol.ControlMode;
 import com.ctre.phoenix.motorcontrol.can.TalonFX;
 import com.ctre.phoenix.motorcontrol.can.TalonSRX;
+import frc.robot.Constants;
 import frc.robot.Ports;
 import frc.robot.subsystems.drivetrain.SwerveModule;
+import frc.robot.subsystems.drivetrain.simulation.SimulatedTalon;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -20,9 +23,56 @@ public class SwerveModuleTest {
 
     @Test
     public void getTargetAngle() {
+        // pi/2 is 135 degrees away, so the wheel flips to -pi/2 instead
         double targetAngle = swerveModule.getTargetAngle(-1.5 * Math.PI, -Math.PI / 4);
-        double expectedAngle = Math.PI / 2;
+        double expectedAngle = -Math.PI / 2;
 
         Assert.assertEquals(expectedAngle, targetAngle, delta);
+
+        // a target within 90 degrees isn't flipped, and the nearest turn of the wheel is kept
+        Assert.assertEquals(Math.PI / 4, SwerveModule.getTargetAngle(Math.PI / 4, 0), delta);
+        Assert.assertEquals(4 * Math.PI + 0.3, SwerveModule.getTargetAngle(0.3, 4 * Math.PI), delta);
+        // reversing the direction doesn't steer at all
+        Assert.assertEquals(1, SwerveModule.getTargetAngle(1 + Math.PI, 1), delta);
+    }
+
+    @Test
+    public void neverSteersMoreThan90Degrees() {
+        for (int i = 0; i < 10000; i++) {
+            double angle = (i * 0.7919) % (8 * Math.PI) - 4 * Math.PI;
+            double currentAngle = (i * 1.3117) % (8 * Math.PI) - 4 * Math.PI;
+            double targetAngle = SwerveModule.getTargetAngle(angle, currentAngle);
+
+            Assert.assertTrue(Math.abs(targetAngle - currentAngle) <= Math.PI / 2 + 1e-9);
+            // the target is either the requested direction or its opposite
+            Assert.assertEquals(0, Math.sin(targetAngle - angle), 1e-9);
+        }
+    }
+
+    @Test
+    public void setStateFlipsAndScalesSpeed() {
+        SimulatedTalon drive = new SimulatedTalon(0, 1, 1, 1);
+        SimulatedTalon angle = new SimulatedTalon(0, 1, 1, 1);
+        // the wheel points at 0
+        angle.setPosition(Constants.SwerveDrive.MECHANICAL_OFFSET[0]);
+        SwerveModule module = new SwerveModule(0, drive, angle);
+        module.setSpeed(2);
+        double fullSpeed = drive.getSetpoint();
+
+        // asked to drive backwards, the wheel stays in place and drives in reverse
+        module.setState(2, Math.PI);
+        Assert.assertEquals(-fullSpeed, drive.getSetpoint(), delta);
+        Assert.assertEquals(ControlMode.Position, angle.getControlMode());
+        Assert.assertEquals(Constants.SwerveDrive.MECHANICAL_OFFSET[0], angle.getSetpoint(), 1);
+
+        // while the wheel is still 60 degrees from the target, it is driven at half the speed
+        module.setState(2, Math.PI / 3);
+        Assert.assertEquals(fullSpeed / 2, drive.getSetpoint(), delta);
+
+        // 120 degrees away, the wheel steers 60 degrees the other way and drives at half the speed in reverse
+        module.setState(2, 2 * Math.PI / 3);
+        Assert.assertEquals(-fullSpeed / 2, drive.getSetpoint(), delta);
+        Assert.assertEquals(Constants.SwerveDrive.MECHANICAL_OFFSET[0] - Constants.Drivetrain.TICKS_PER_RAD * Math.PI / 3,
+                angle.getSetpoint(), 1);
     }
 }
\ No newline at end of file
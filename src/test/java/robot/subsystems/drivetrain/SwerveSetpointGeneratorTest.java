@@ -0,0 +1,117 @@
+package robot.subsystems.drivetrain;
+
+import frc.robot.subsystems.drivetrain.SwerveKinematics;
+import frc.robot.subsystems.drivetrain.SwerveSetpointGenerator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static frc.robot.Constants.SwerveDrive.*;
+
+public class SwerveSetpointGeneratorTest {
+
+    private static final double MAX_VELOCITY = 3;
+    private static final double MAX_ACCELERATION = 4;
+    private static final double MAX_STEERING_RATE = 8;
+    private static final double DT = 0.02;
+    private static final double EPSILON = 1e-9;
+
+    private SwerveKinematics kinematics = new SwerveKinematics(ROBOT_WIDTH, ROBOT_LENGTH);
+    private SwerveSetpointGenerator generator;
+    private double[] speeds = new double[4];
+    private double[] angles = new double[4];
+    private double[] setpoint = new double[3];
+    private double[] wheelVelocities = new double[8];
+    private double[] lastWheelVelocities = new double[8];
+
+    @Before
+    public void setup() {
+        generator = new SwerveSetpointGenerator(kinematics, MAX_VELOCITY, MAX_ACCELERATION, MAX_STEERING_RATE);
+        generator.reset(new double[4]);
+    }
+
+    @Test
+    public void randomSequencesStayWithinLimits() {
+        Random random = new Random(5987);
+        double[] heading = new double[3];
+        double[] lastAngles = new double[4];
+
+        for (int sequence = 0; sequence < 50; sequence++) {
+            generator.reset(lastAngles);
+            Arrays.fill(lastWheelVelocities, 0);
+            for (int cycle = 0; cycle < 200; cycle++) {
+                // holds each random request for a random number of cycles, like a driver
+                if (random.nextInt(10) == 0) {
+                    heading[0] = (random.nextDouble() * 2 - 1) * 5;
+                    heading[1] = (random.nextDouble() * 2 - 1) * 5;
+                    heading[2] = (random.nextDouble() * 2 - 1) * 10;
+                }
+                generator.generate(heading, DT, speeds, angles);
+
+                generator.getSetpoint(setpoint);
+                kinematics.calculateWheelVelocities(setpoint, wheelVelocities);
+                for (int k = 0; k < 4; k++) {
+                    double x = wheelVelocities[2 * k], y = wheelVelocities[2 * k + 1];
+                    double dx = x - lastWheelVelocities[2 * k], dy = y - lastWheelVelocities[2 * k + 1];
+                    Assert.assertTrue("wheel too fast", Math.hypot(x, y) <= MAX_VELOCITY + EPSILON);
+                    Assert.assertTrue("wheel accelerates too fast", Math.hypot(dx, dy) <= MAX_ACCELERATION * DT + EPSILON);
+                    Assert.assertTrue("wheel steers too fast", Math.abs(angles[k] - lastAngles[k]) <= MAX_STEERING_RATE * DT + EPSILON);
+                    Assert.assertTrue(Math.abs(speeds[k]) <= Math.hypot(x, y) + EPSILON);
+                }
+                System.arraycopy(wheelVelocities, 0, lastWheelVelocities, 0, 8);
+                System.arraycopy(angles, 0, lastAngles, 0, 4);
+            }
+        }
+    }
+
+    @Test
+    public void desaturationKeepsDirection() {
+        double[] heading = {6, 3, 2};
+        for (int cycle = 0; cycle < 500; cycle++) {
+            generator.generate(heading, DT, speeds, angles);
+        }
+        generator.getSetpoint(setpoint);
+        kinematics.calculateWheelVelocities(setpoint, wheelVelocities);
+
+        double scale = setpoint[0] / heading[0];
+        Assert.assertEquals(scale * heading[1], setpoint[1], 1e-6);
+        Assert.assertEquals(scale * heading[2], setpoint[2], 1e-6);
+        double max = 0;
+        for (int k = 0; k < 4; k++) {
+            max = Math.max(max, Math.hypot(wheelVelocities[2 * k], wheelVelocities[2 * k + 1]));
+        }
+        Assert.assertEquals(MAX_VELOCITY, max, 1e-6);
+    }
+
+    @Test
+    public void reachableRequestConverges() {
+        double[] heading = {1, -0.5, 0.3};
+        for (int cycle = 0; cycle < 100; cycle++) {
+            generator.generate(heading, DT, speeds, angles);
+        }
+        generator.getSetpoint(setpoint);
+        Assert.assertArrayEquals(heading, setpoint, 1e-9);
+
+        // once the wheels have steered, the module states are exactly those of the kinematics
+        double[] expectedSpeeds = new double[4];
+        double[] expectedAngles = new double[4];
+        kinematics.calculateWheelVelocities(heading, wheelVelocities);
+        kinematics.toModuleStates(wheelVelocities, expectedSpeeds, expectedAngles);
+        for (int k = 0; k < 4; k++) {
+            Assert.assertEquals(expectedSpeeds[k], speeds[k] * Math.cos(angles[k] - expectedAngles[k]), 1e-6);
+            Assert.assertEquals(0, Math.sin(angles[k] - expectedAngles[k]), 1e-6);
+        }
+    }
+
+    @Test
+    public void stoppedWheelsKeepTheirAngle() {
+        generator.reset(new double[]{0.5, -0.5, 1, 2});
+        generator.generate(new double[3], DT, speeds, angles);
+
+        Assert.assertArrayEquals(new double[]{0.5, -0.5, 1, 2}, angles, 0);
+        Assert.assertArrayEquals(new double[4], speeds, 0);
+    }
+}
@@ -0,0 +1,178 @@
+package robot.subsystems.drivetrain;
+
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants;
+import frc.robot.subsystems.drivetrain.DriveLoop;
+import frc.robot.subsystems.drivetrain.SwerveDrive;
+import frc.robot.subsystems.drivetrain.SwerveKinematics;
+import frc.robot.subsystems.drivetrain.SwerveModule;
+import frc.robot.subsystems.drivetrain.TractionControl;
+import frc.robot.subsystems.drivetrain.simulation.DrivetrainSimulation;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TractionControlTest {
+
+    private static final double PERIOD = Constants.DriveLoop.PERIOD;
+    private static final double SLIPPING_TRACTION = 0.1;
+
+    private final SwerveKinematics kinematics = new SwerveKinematics(Constants.SwerveDrive.ROBOT_WIDTH, Constants.SwerveDrive.ROBOT_LENGTH);
+    private final TractionControl traction = new TractionControl(kinematics);
+    private final double[] robotHeading = {1, 0.5, 0.8};
+    private final double[] wheelVelocities = new double[8];
+    private final double[] speeds = new double[4];
+    private final double[] angles = new double[4];
+    private final double[] measured = new double[3];
+
+    private DrivetrainSimulation simulation;
+    private SwerveDrive swerveDrive;
+    private final double[] pose = new double[3];
+    private final double[] odometryPose = new double[3];
+
+    /**
+     * sets the wheels to the motion of the robot, with the given slip added to one of them
+     */
+    private void setWheels(int wheel, double slip) {
+        kinematics.calculateWheelVelocities(robotHeading, wheelVelocities);
+        kinematics.toModuleStates(wheelVelocities, speeds, angles);
+        speeds[wheel] += slip;
+    }
+
+    @Test
+    public void consistentWheelsDontSlip() {
+        setWheels(0, 0);
+        traction.update(speeds, angles, robotHeading[2]);
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertFalse("wheel " + i + " slipped", traction.isSlipping(i));
+            Assert.assertEquals(0, traction.getSlip(i), 0.01);
+            Assert.assertEquals(1, traction.getWeight(i), 0.01);
+            Assert.assertEquals(speeds[i], traction.limitSpeed(i, speeds[i], angles[i]), 1e-9);
+        }
+    }
+
+    @Test
+    public void detectsTheSlippingWheel() {
+        setWheels(2, 0.6);
+        traction.update(speeds, angles, robotHeading[2]);
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue("wheel " + i, traction.isSlipping(i) == (i == 2));
+        }
+        Assert.assertEquals(0.6, traction.getSlip(2), 0.01);
+        Assert.assertTrue(traction.getWeight(2) < 0.2);
+
+        // the slipping wheel pulls the plain least squares, but barely moves the weighted one
+        kinematics.toRobotHeading(speeds, angles, measured);
+        Assert.assertTrue(Math.abs(measured[0] - robotHeading[0]) > 0.1);
+        kinematics.toRobotHeading(speeds, angles, traction.getWeights(), measured);
+        Assert.assertArrayEquals(robotHeading, measured, 0.05);
+    }
+
+    @Test
+    public void limitsTheSlippingWheelUntilItGrips() {
+        setWheels(2, 0.6);
+        traction.update(speeds, angles, robotHeading[2]);
+        double groundSpeed = speeds[2] - 0.6;
+        double allowedSlip = Constants.Traction.GRIP_RATIO * (Constants.Traction.SLIP_MIN + Constants.Traction.SLIP_RATIO * groundSpeed);
+        Assert.assertEquals(groundSpeed + allowedSlip, traction.limitSpeed(2, speeds[2], angles[2]), 0.01);
+        Assert.assertTrue(traction.isLimited(2));
+        Assert.assertEquals(0, traction.getAccelerationShare(2), 1e-9);
+        Assert.assertEquals(traction.getWeight(1), traction.getAccelerationShare(1), 1e-9);
+
+        // the wheel grips again, and the command is back within the limit
+        setWheels(2, 0);
+        traction.update(speeds, angles, robotHeading[2]);
+        Assert.assertEquals(speeds[2], traction.limitSpeed(2, speeds[2], angles[2]), 1e-9);
+        Assert.assertFalse(traction.isLimited(2));
+        Assert.assertEquals(1, traction.getAccelerationShare(2), 0.01);
+    }
+
+    /**
+     * runs the drive loop at its period on top of the simulation
+     * @return the integral of the absolute difference between the speeds of the first two wheels, in meters
+     */
+    private double drive(double forward, double strafe, double duration) {
+        DriveLoop driveLoop = swerveDrive.enableDriveLoop(PERIOD);
+        double slip = 0;
+        int cycles = (int) Math.round(duration / PERIOD);
+        for (int i = 0; i < cycles; i++) {
+            simulation.step(PERIOD);
+            for (SwerveModule swerveModule : swerveDrive.swerveModules) {
+                swerveModule.update(simulation.getTime());
+            }
+            swerveDrive.getOdometry().update(simulation.getTime());
+            swerveDrive.robotOrientedDrive(forward, strafe, 0);
+            driveLoop.update(Timer.getFPGATimestamp());
+            slip += Math.abs(simulation.getWheelSpeed(0) - simulation.getWheelSpeed(1)) * PERIOD;
+        }
+        return slip;
+    }
+
+    private double driveWithInjectedSlip(boolean tractionControl) {
+        simulation = new DrivetrainSimulation();
+        swerveDrive = simulation.createSwerveDrive(false);
+        swerveDrive.setTractionControl(tractionControl);
+        simulation.setTraction(0, SLIPPING_TRACTION);
+        return drive(Constants.Drivetrain.MAX_VEL, 0, 1) + drive(0, 0, 1);
+    }
+
+    @Test
+    public void fullTractionDoesntSlip() {
+        simulation = new DrivetrainSimulation();
+        swerveDrive = simulation.createSwerveDrive(false);
+        drive(Constants.Drivetrain.MAX_VEL, 0, 1);
+        drive(0, Constants.Drivetrain.MAX_VEL, 1);
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals("wheel " + i, 0, swerveDrive.getTraction().getSlipCycles(i));
+            Assert.assertEquals("wheel " + i, 0, swerveDrive.getOdometry().getTraction().getSlipCycles(i));
+        }
+    }
+
+    @Test
+    public void heldFeedbackDoesntSlip() {
+        simulation = new DrivetrainSimulation();
+        swerveDrive = simulation.createSwerveDrive(false);
+        // the positions are held for four odometry steps, and change on a different step for each wheel
+        simulation.setFeedbackPeriod(4 * PERIOD);
+        drive(Constants.Drivetrain.MAX_VEL, 0, 1);
+        drive(0, 0, 1);
+
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals("wheel " + i, 0, swerveDrive.getOdometry().getTraction().getSlipCycles(i));
+        }
+        simulation.getPose(pose);
+        swerveDrive.getPose(odometryPose);
+        Assert.assertArrayEquals(pose, odometryPose, 0.05);
+    }
+
+    @Test
+    public void injectedSlipIsDetected() {
+        driveWithInjectedSlip(false);
+
+        Assert.assertTrue(swerveDrive.getTraction().getSlipCycles(0) > 0);
+        Assert.assertTrue(swerveDrive.getOdometry().getTraction().getSlipCycles(0) > 0);
+        for (int i = 1; i < 4; i++) {
+            Assert.assertEquals("wheel " + i, 0, swerveDrive.getTraction().getSlipCycles(i));
+            Assert.assertEquals("wheel " + i, 0, swerveDrive.getOdometry().getTraction().getSlipCycles(i));
+        }
+
+        // the slipping wheel barely counts in the odometry
+        simulation.getPose(pose);
+        swerveDrive.getPose(odometryPose);
+        Assert.assertArrayEquals(pose, odometryPose, 0.005);
+    }
+
+    @Test
+    public void tractionControlLimitsInjectedSlip() {
+        double uncontrolled = driveWithInjectedSlip(false);
+        double controlled = driveWithInjectedSlip(true);
+        Assert.assertTrue("slip " + controlled + " m with traction control, " + uncontrolled + " m without",
+                controlled < 0.75 * uncontrolled);
+
+        simulation.getPose(pose);
+        swerveDrive.getPose(odometryPose);
+        Assert.assertArrayEquals(pose, odometryPose, 0.01);
+    }
+}
@@ -0,0 +1,76 @@
+package robot.subsystems.drivetrain.trajectory;
+
+import frc.robot.subsystems.drivetrain.trajectory.Trajectory;
+import frc.robot.subsystems.drivetrain.trajectory.TrajectoryGenerator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TrajectoryTest {
+
+    private static final double PERIOD = 0.02;
+
+    @Test
+    public void straightLine() {
+        TrajectoryGenerator generator = new TrajectoryGenerator(new double[][]{{0, 0, 0}, {0, 2, 0}}, 2, 1);
+        double[][] samples = generator.generate(PERIOD);
+        double[] last = samples[samples.length - 1];
+
+        // a triangular profile, since the path is too short to reach the max velocity
+        Assert.assertEquals(2 * Math.sqrt(2), (samples.length - 1) * PERIOD, PERIOD);
+        Assert.assertArrayEquals(new double[]{0, 2, 0, 0, 0, 0}, last, 1e-3);
+        for (int i = 1; i < samples.length; i++) {
+            Assert.assertEquals(0, samples[i][0], 1e-9);
+            Assert.assertTrue(samples[i][4] <= 2 && samples[i][4] >= 0);
+            Assert.assertEquals(samples[i - 1][4], samples[i][4], 1 * PERIOD + 1e-6);
+        }
+    }
+
+    @Test
+    public void velocityMatchesPosition() {
+        TrajectoryGenerator generator = new TrajectoryGenerator(
+                new double[][]{{0, 0, 0}, {0.5, 1.5, 0.785}, {1, 3, 1.571}}, 2, 1.5);
+        double[][] samples = generator.generate(PERIOD);
+        Assert.assertArrayEquals(new double[]{1, 3, 1.571}, new double[]{
+                samples[samples.length - 1][0], samples[samples.length - 1][1], samples[samples.length - 1][2]}, 1e-3);
+        for (int i = 1; i < samples.length; i++) {
+            double vx = (samples[i][0] - samples[i - 1][0]) / PERIOD;
+            double vy = (samples[i][1] - samples[i - 1][1]) / PERIOD;
+            Assert.assertEquals(vx, (samples[i][3] + samples[i - 1][3]) / 2, 0.05);
+            Assert.assertEquals(vy, (samples[i][4] + samples[i - 1][4]) / 2, 0.05);
+            Assert.assertEquals(samples[i - 1][5], (samples[i][2] - samples[i - 1][2]) / PERIOD, 1e-9);
+        }
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        double[][] samples = new TrajectoryGenerator(new double[][]{{0, 0, 0}, {1, 1, 0.5}}, 2, 1).generate(PERIOD);
+        Path file = Files.createTempFile("trajectory", ".traj");
+        try {
+            Trajectory.write(file, PERIOD, samples);
+            Trajectory trajectory = Trajectory.load("test", file);
+            double[] state = new double[Trajectory.STATE_SIZE];
+
+            Assert.assertEquals((samples.length - 1) * PERIOD, trajectory.getDuration(), 1e-9);
+            trajectory.sample(10 * PERIOD, state);
+            Assert.assertArrayEquals(samples[10], state, 1e-9);
+
+            // between two samples the state is interpolated
+            trajectory.sample(10.5 * PERIOD, state);
+            for (int i = 0; i < Trajectory.STATE_SIZE; i++) {
+                Assert.assertEquals((samples[10][i] + samples[11][i]) / 2, state[i], 1e-9);
+            }
+
+            // outside of the trajectory the state is clamped
+            trajectory.sample(-1, state);
+            Assert.assertArrayEquals(samples[0], state, 1e-9);
+            trajectory.sample(100, state);
+            Assert.assertArrayEquals(samples[samples.length - 1], state, 1e-9);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package robot.utilities;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures the bytes a cycle of code allocates on the current thread, with the allocation counter of the JVM.
+ * When a cycle exceeds its budget, the cycles are run again under a flight recording,
+ * and the allocating call sites are reported in the failure message.
+ */
+public class AllocationRecorder {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final int REPORTED_SITES = 10;
+    // the JIT still recompiles the code around the counter once in a while, and a few single cycles allocate
+    // up to a few kilobytes while it does, even when they run nothing (they don't when only C1 compiles).
+    // this is on top of the cycles which allocate when an empty cycle is measured the same way,
+    // while an allocation every few hundred cycles exceeds it by far over the thousands of measured cycles
+    private static final int MEASUREMENT_ALLOWANCE = 4; // in cycles over the budget
+
+    /**
+     * @return the number of bytes the current thread allocated since it started
+     */
+    public static long getAllocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * fails when more cycles exceed their budget than an empty cycle measured the same way, after the JIT compiled them
+     * @param name the name of the cycle, used in the failure message
+     * @param cycle the measured cycle
+     * @param between the work between two cycles, such as stepping a simulation, which isn't measured
+     * @param warmup the number of cycles which are run before measuring
+     * @param cycles the number of measured cycles
+     * @param budget the number of bytes a cycle may allocate
+     */
+    public static void assertAllocationBudget(String name, Runnable cycle, Runnable between, int warmup, int cycles, long budget) {
+        Assert.assertTrue("the JVM doesn't measure the allocations of threads", THREADS.isThreadAllocatedMemorySupported());
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+
+        for (int i = 0; i < warmup; i++) {
+            cycle.run();
+            between.run();
+        }
+
+        Measurement measured = measure(cycle, between, cycles, budget);
+        Runnable empty = () -> { };
+        Measurement calibration = measure(empty, empty, cycles, budget);
+        if (measured.cyclesOverBudget > calibration.cyclesOverBudget + MEASUREMENT_ALLOWANCE) {
+            Assert.fail(String.format("%s allocated %.1f bytes per cycle, %d of %d cycles over the budget of %d bytes%n%s",
+                    name, (double) measured.allocated / cycles, measured.cyclesOverBudget, cycles, budget,
+                    findAllocationSites(cycle, between, cycles)));
+        }
+    }
+
+    private static class Measurement {
+        private long allocated; // in bytes
+        private int cyclesOverBudget;
+    }
+
+    /**
+     * measures every cycle on its own, without the cost of reading the counter
+     */
+    private static Measurement measure(Runnable cycle, Runnable between, int cycles, long budget) {
+        Measurement measurement = new Measurement();
+        long overhead = -getAllocatedBytes() + getAllocatedBytes();
+        for (int i = 0; i < cycles; i++) {
+            long start = getAllocatedBytes();
+            cycle.run();
+            long allocated = getAllocatedBytes() - start - overhead;
+            measurement.allocated += allocated;
+            if (allocated > budget)
+                measurement.cyclesOverBudget++;
+            between.run();
+        }
+        return measurement;
+    }
+
+    /**
+     * runs the cycles under a flight recording of the allocations, and summarizes the allocating call sites
+     */
+    private static String findAllocationSites(Runnable cycle, Runnable between, int cycles) {
+        try (Recording recording = new Recording()) {
+            recording.enable("jdk.ObjectAllocationInNewTLAB").withStackTrace();
+            recording.enable("jdk.ObjectAllocationOutsideTLAB").withStackTrace();
+            recording.start();
+            // small allocations are only sampled when a TLAB is refilled, so the cycles run long enough to fill a few
+            for (int i = 0; i < 10 * cycles; i++) {
+                cycle.run();
+                between.run();
+            }
+            recording.stop();
+            Path file = Files.createTempFile("allocations", ".jfr");
+            try {
+                recording.dump(file);
+                return summarize(RecordingFile.readAllEvents(file));
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } catch (Exception | Error e) {
+            return "the allocation sites are unavailable: " + e;
+        }
+    }
+
+    private static String summarize(Iterable<RecordedEvent> events) {
+        Map<String, Integer> sites = new HashMap<>();
+        for (RecordedEvent event : events) {
+            if (event.getStackTrace() == null || event.getThread("eventThread").getJavaThreadId() != Thread.currentThread().getId())
+                continue;
+            // the innermost frame of the robot code, below the library frames
+            String site = null;
+            for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+                String type = frame.getMethod().getType().getName();
+                if (type.startsWith("frc.") || type.startsWith("robot.")) {
+                    site = type + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+                    break;
+                }
+            }
+            if (site == null)
+                site = "outside the robot code";
+            sites.merge(event.getClass("objectClass").getName() + " at " + site, 1, Integer::sum);
+        }
+        if (sites.isEmpty())
+            return "no allocation was sampled, run more cycles to find the allocation sites";
+
+        StringBuilder summary = new StringBuilder("allocation sites [samples]:");
+        sites.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(REPORTED_SITES)
+                .forEach(site -> summary.append(String.format("%n  %s [%d]", site.getKey(), site.getValue())));
+        return summary.toString();
+    }
+}
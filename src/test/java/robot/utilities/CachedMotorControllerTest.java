@@ -0,0 +1,52 @@
+package robot.utilities;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
+import com.ctre.phoenix.motorcontrol.can.TalonSRX;
+import frc.robot.utilities.CachedMotorController;
+import frc.robot.utilities.TalonMotorIO;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CachedMotorControllerTest {
+
+    private CachedMotorController motor;
+
+    @Before
+    public void setup() {
+        motor = new CachedMotorController(new TalonMotorIO(new TalonSRX(1)), 0.01, 100);
+    }
+
+    @Test
+    public void suppressesUnchangedSetpoints() {
+        motor.set(ControlMode.PercentOutput, 0.5);
+        motor.set(ControlMode.PercentOutput, 0.5);
+        motor.set(ControlMode.PercentOutput, 0.505);
+
+        Assert.assertEquals(1, motor.getWritesSent());
+        Assert.assertEquals(2, motor.getWritesSuppressed());
+    }
+
+    @Test
+    public void sendsChangedSetpoints() {
+        motor.set(ControlMode.PercentOutput, 0.5);
+        motor.set(ControlMode.PercentOutput, 0.6);
+        motor.set(ControlMode.Position, 0.6);
+        motor.set(ControlMode.Position, 0.6, DemandType.ArbitraryFeedForward, 0.1);
+        motor.invalidate();
+        motor.set(ControlMode.Position, 0.6, DemandType.ArbitraryFeedForward, 0.1);
+
+        Assert.assertEquals(5, motor.getWritesSent());
+        Assert.assertEquals(0, motor.getWritesSuppressed());
+    }
+
+    @Test
+    public void refreshesAfterPeriod() {
+        CachedMotorController refreshed = new CachedMotorController(new TalonMotorIO(new TalonSRX(2)), 0.01, 0);
+        refreshed.set(ControlMode.PercentOutput, 0.5);
+        refreshed.set(ControlMode.PercentOutput, 0.5);
+
+        Assert.assertEquals(2, refreshed.getWritesSent());
+    }
+}
@@ -0,0 +1,108 @@
+package robot.utilities;
+
+import frc.robot.utilities.CharacterizationLog;
+import frc.robot.utilities.FeedforwardSolver;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class FeedforwardSolverTest {
+
+    private static final double KS = 0.3;
+    private static final double KV = 2.2;
+    private static final double KA = 0.5;
+    private static final double DT = 0.005;
+
+    private FeedforwardSolver solver = new FeedforwardSolver();
+    private double[] gains = new double[FeedforwardSolver.GAINS_SIZE];
+
+    /**
+     * logs a run of a mechanism which follows the model exactly, driven by a constant or a ramping voltage
+     */
+    private void logRun(CharacterizationLog log, double ramp, double step, int samples) {
+        log.startRun();
+        double position = 0, velocity = 0;
+        double[] voltage = new double[1], positions = new double[1], velocities = new double[1];
+        for (int i = 0; i < samples; i++) {
+            voltage[0] = ramp * i * DT + step;
+            positions[0] = position;
+            velocities[0] = velocity;
+            log.add(i * DT, voltage, positions, velocities);
+            // the exact solution over the step, so the central difference is exact up to the curvature
+            double acceleration = Math.abs(voltage[0]) > KS || velocity != 0
+                    ? (voltage[0] - KS * Math.signum(velocity == 0 ? voltage[0] : velocity) - KV * velocity) / KA : 0;
+            position += velocity * DT + acceleration * DT * DT / 2;
+            velocity += acceleration * DT;
+        }
+    }
+
+    @Test
+    public void recoversTheGainsOfExactSamples() {
+        Random random = new Random(23);
+        for (int i = 0; i < 1000; i++) {
+            double velocity = random.nextDouble() * 6 - 3;
+            double acceleration = random.nextDouble() * 10 - 5;
+            solver.add(KS * Math.signum(velocity) + KV * velocity + KA * acceleration, velocity, acceleration);
+        }
+
+        Assert.assertEquals(1, solver.solve(gains), 1e-9);
+        Assert.assertArrayEquals(new double[]{KS, KV, KA}, gains, 1e-9);
+    }
+
+    @Test
+    public void noisySamplesFitWorse() {
+        Random random = new Random(23);
+        for (int i = 0; i < 5000; i++) {
+            double velocity = random.nextDouble() * 6 - 3;
+            double acceleration = random.nextDouble() * 10 - 5;
+            solver.add(KS * Math.signum(velocity) + KV * velocity + KA * acceleration + random.nextGaussian() * 0.2,
+                    velocity, acceleration);
+        }
+
+        double fit = solver.solve(gains);
+        Assert.assertTrue("the fit of noisy samples is " + fit, fit < 1 && fit > 0.99);
+        Assert.assertArrayEquals(new double[]{KS, KV, KA}, gains, 0.02);
+    }
+
+    @Test
+    public void undeterminedWithoutAcceleration() {
+        for (int i = 1; i < 100; i++) {
+            solver.add(KS + KV * i * 0.01, i * 0.01, 0);
+        }
+        Assert.assertTrue(Double.isNaN(solver.solve(gains)));
+        Assert.assertTrue(Double.isNaN(gains[FeedforwardSolver.KA]));
+    }
+
+    @Test
+    public void solvesALogOfRunsOfflineLikeOnline() throws Exception {
+        CharacterizationLog log = new CharacterizationLog(2000, 1);
+        logRun(log, 0.5, 0, 600);
+        logRun(log, -0.5, 0, 600);
+        logRun(log, 0, 4, 200);
+        logRun(log, 0, -4, 200);
+        Assert.assertEquals(1600, log.size());
+
+        solver.add(log, 0, 0.01);
+        Assert.assertTrue(solver.solve(gains) > 0.999);
+        Assert.assertArrayEquals(new double[]{KS, KV, KA}, gains, 0.01);
+
+        Path file = Files.createTempFile("characterization", ".csv");
+        try {
+            log.dump(file);
+            CharacterizationLog loaded = CharacterizationLog.load(file);
+            Assert.assertEquals(log.size(), loaded.size());
+            Assert.assertEquals(log.getRun(1599), loaded.getRun(1599));
+
+            FeedforwardSolver offline = new FeedforwardSolver();
+            double[] offlineGains = new double[FeedforwardSolver.GAINS_SIZE];
+            offline.add(loaded, 0, 0.01);
+            offline.solve(offlineGains);
+            Assert.assertArrayEquals(gains, offlineGains, 1e-12);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
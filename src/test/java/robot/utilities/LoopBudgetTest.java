@@ -0,0 +1,76 @@
+package robot.utilities;
+
+import frc.robot.utilities.LoopBudget;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoopBudgetTest {
+
+    private static final long MS = 1_000_000L;
+
+    private long time = 0; // the fake clock, which the tasks advance by their duration
+    private LoopBudget budget;
+    private int drive, dashboard, music;
+
+    @Before
+    public void setup() {
+        budget = new LoopBudget(0.016, 10, 4, () -> time);
+        // registered out of their priority order
+        music = budget.register("Music", LoopBudget.LOW, 1, 0.0005, () -> time += MS / 2);
+        dashboard = budget.register("Dashboard", LoopBudget.NORMAL, 2, 0.002, () -> time += 2 * MS);
+        drive = budget.register("Drive", LoopBudget.CRITICAL, 1, 0.001, () -> time += MS);
+    }
+
+    @Test
+    public void runsEveryTaskWhenIdle() {
+        for (int i = 0; i < 10; i++) {
+            budget.run(0.005);
+        }
+        Assert.assertEquals(10, budget.getRuns(drive));
+        Assert.assertEquals(5, budget.getRuns(dashboard));
+        Assert.assertEquals(10, budget.getRuns(music));
+        Assert.assertEquals(0, budget.getShed(music));
+        Assert.assertFalse(budget.isLoaded());
+    }
+
+    @Test
+    public void shedsLowPriorityTasksUnderLoad() {
+        // a cycle which ran over the threshold puts the loop under load for the next 10 cycles
+        budget.run(0.020);
+        Assert.assertTrue(budget.isLoaded());
+        for (int i = 0; i < 8; i++) {
+            budget.run(0.005);
+        }
+        // the critical task always runs, the normal task runs every 8 cycles instead of 2 and the low task is shed
+        Assert.assertEquals(9, budget.getRuns(drive));
+        Assert.assertEquals(8, budget.getShed(music));
+        Assert.assertEquals(4, budget.getShed(dashboard));
+        Assert.assertEquals(1, budget.getRuns(dashboard));
+
+        // the load clears after the window
+        for (int i = 0; i < 2; i++) {
+            budget.run(0.005);
+        }
+        Assert.assertFalse(budget.isLoaded());
+        budget.run(0.005);
+        Assert.assertEquals(10, budget.getShed(music));
+        Assert.assertEquals(1, budget.getRuns(music));
+        Assert.assertEquals(1, budget.getOverloadedCycles());
+    }
+
+    @Test
+    public void defersTasksWhichDontFit() {
+        // 14 ms were spent, so after the critical task only the music fits before the threshold
+        budget.run(0.014);
+        Assert.assertEquals(1, budget.getRuns(drive));
+        Assert.assertEquals(1, budget.getDeferred(dashboard));
+        Assert.assertEquals(0, budget.getRuns(dashboard));
+        Assert.assertEquals(1, budget.getRuns(music));
+        Assert.assertFalse(budget.isLoaded());
+
+        // the deferred task runs in the next cycle, although it isn't due in it
+        budget.run(0.005);
+        Assert.assertEquals(1, budget.getRuns(dashboard));
+    }
+}
@@ -0,0 +1,73 @@
+package robot.utilities;
+
+import frc.robot.utilities.LoopTimeRecorder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoopTimeRecorderTest {
+
+    private LoopTimeRecorder recorder;
+    private double delta = 1e-9;
+
+    @Before
+    public void setup() {
+        recorder = new LoopTimeRecorder("Test", 0.02, 0.001, 40, 10);
+    }
+
+    @Test
+    public void percentiles() {
+        // 98 cycles of 4.5 ms, one of 14.5 ms and one of 25 ms
+        for (int i = 0; i < 98; i++)
+            recorder.record(i * 20_000_000L, i * 20_000_000L + 4_500_000L);
+        recorder.record(98 * 20_000_000L, 98 * 20_000_000L + 14_500_000L);
+        recorder.record(99 * 20_000_000L, 99 * 20_000_000L + 25_000_000L);
+
+        Assert.assertEquals(100, recorder.getCycles());
+        Assert.assertEquals(0.005, recorder.getPercentile(0.5), delta);
+        Assert.assertEquals(0.015, recorder.getPercentile(0.99), delta);
+        Assert.assertEquals(0.025, recorder.getMax(), delta);
+        Assert.assertEquals(1, recorder.getOverruns());
+        Assert.assertEquals(0, recorder.getMaxJitter(), delta);
+    }
+
+    @Test
+    public void statisticsArePublishedByTheOwningThread() throws InterruptedException {
+        double[] statistics = new double[LoopTimeRecorder.STATISTICS_SIZE];
+        // the statistics of a loop on another thread are only read from the copy its thread publishes
+        Thread loop = new Thread(() -> {
+            for (int i = 0; i < 100; i++)
+                recorder.record(i * 20_000_000L, i * 20_000_000L + (i == 99 ? 25_000_000L : 4_500_000L));
+        });
+        loop.start();
+        loop.join();
+
+        recorder.getStatistics(statistics);
+        Assert.assertEquals(100, statistics[LoopTimeRecorder.CYCLES], delta);
+        Assert.assertEquals(0.005, statistics[LoopTimeRecorder.P50], delta);
+        Assert.assertEquals(0.025, statistics[LoopTimeRecorder.MAX], delta);
+        Assert.assertEquals(1, statistics[LoopTimeRecorder.OVERRUNS], delta);
+
+        // cycles since the last copy aren't published until the next one
+        recorder.record(100 * 20_000_000L, 100 * 20_000_000L + 30_000_000L);
+        recorder.getStatistics(statistics);
+        Assert.assertEquals(0.025, statistics[LoopTimeRecorder.MAX], delta);
+        recorder.updateStatistics();
+        recorder.getStatistics(statistics);
+        Assert.assertEquals(0.03, statistics[LoopTimeRecorder.MAX], delta);
+    }
+
+    @Test
+    public void jitterAndOverflow() {
+        recorder.record(0, 1_000_000L);
+        recorder.record(23_000_000L, 23_000_000L + 100_000_000L);
+
+        Assert.assertEquals(0.003, recorder.getMaxJitter(), delta);
+        // beyond the histogram range the percentile falls back to the maximal duration
+        Assert.assertEquals(0.1, recorder.getPercentile(0.99), delta);
+
+        recorder.reset();
+        Assert.assertEquals(0, recorder.getCycles());
+        Assert.assertEquals(0, recorder.getPercentile(0.5), delta);
+    }
+}
@@ -0,0 +1,63 @@
+package robot.utilities;
+
+import frc.robot.utilities.TelemetryDecoder;
+import frc.robot.utilities.TelemetryRecorder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TelemetryRecorderTest {
+
+    private double delta = 1e-12;
+
+    @Test
+    public void ringKeepsNewestRecords() throws IOException {
+        Path path = Files.createTempFile("telemetry", ".bin");
+        double[] values = new double[2];
+        try (TelemetryRecorder recorder = new TelemetryRecorder(path, new String[]{"time", "speed"}, 4, 10)) {
+            for (int i = 0; i < 6; i++) {
+                values[0] = i * 0.02;
+                values[1] = i * 1.5;
+                recorder.record(values);
+            }
+        }
+
+        TelemetryDecoder decoder = new TelemetryDecoder(path);
+        Files.delete(path);
+
+        Assert.assertEquals("time", decoder.getFieldNames()[0]);
+        Assert.assertEquals("speed", decoder.getFieldNames()[1]);
+        Assert.assertArrayEquals(new double[]{0.04, 0.06, 0.08, 0.1}, decoder.getColumns()[0], delta);
+        Assert.assertArrayEquals(new double[]{3, 4.5, 6, 7.5}, decoder.getColumns()[1], delta);
+        Assert.assertEquals(2, decoder.getSequences()[0]);
+    }
+
+    private void recordSpeed(Path path, double speed) throws IOException {
+        try (TelemetryRecorder recorder = new TelemetryRecorder(path, new String[]{"speed"}, 4, 10, 2)) {
+            recorder.record(new double[]{speed});
+        }
+    }
+
+    @Test
+    public void previousRecordingsAreRotated() throws IOException {
+        Path directory = Files.createTempDirectory("telemetry");
+        Path path = directory.resolve("drivetrain.bin");
+        // a reboot after a brownout creates the recorder again, which keeps the recording of the match
+        for (int i = 1; i <= 4; i++) {
+            recordSpeed(path, i);
+        }
+
+        Assert.assertArrayEquals(new double[]{4}, new TelemetryDecoder(path).getColumns()[0], delta);
+        Assert.assertArrayEquals(new double[]{3}, new TelemetryDecoder(TelemetryRecorder.getRotatedPath(path, 1)).getColumns()[0], delta);
+        Assert.assertArrayEquals(new double[]{2}, new TelemetryDecoder(TelemetryRecorder.getRotatedPath(path, 2)).getColumns()[0], delta);
+        Assert.assertFalse(Files.exists(TelemetryRecorder.getRotatedPath(path, 3)));
+
+        Files.delete(path);
+        Files.delete(TelemetryRecorder.getRotatedPath(path, 1));
+        Files.delete(TelemetryRecorder.getRotatedPath(path, 2));
+        Files.delete(directory);
+    }
+}
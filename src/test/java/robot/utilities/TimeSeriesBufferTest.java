@@ -0,0 +1,79 @@
+package robot.utilities;
+
+import frc.robot.utilities.TimeSeriesBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TimeSeriesBufferTest {
+
+    private double[] sample = new double[2];
+
+    private void add(TimeSeriesBuffer buffer, double timestamp, double a, double b) {
+        buffer.add(timestamp, new double[]{a, b});
+    }
+
+    @Test
+    public void interpolatesBetweenSamples() {
+        TimeSeriesBuffer buffer = new TimeSeriesBuffer(4, 2);
+        Assert.assertFalse(buffer.get(0, sample));
+
+        add(buffer, 1, 10, -1);
+        add(buffer, 2, 20, -2);
+        add(buffer, 4, 40, -4);
+
+        Assert.assertTrue(buffer.get(1.5, sample));
+        Assert.assertArrayEquals(new double[]{15, -1.5}, sample, 1e-9);
+        buffer.get(3, sample);
+        Assert.assertArrayEquals(new double[]{30, -3}, sample, 1e-9);
+        buffer.get(2, sample);
+        Assert.assertArrayEquals(new double[]{20, -2}, sample, 1e-9);
+
+        // outside of the buffer the oldest or newest sample is returned
+        buffer.get(0, sample);
+        Assert.assertArrayEquals(new double[]{10, -1}, sample, 1e-9);
+        buffer.get(5, sample);
+        Assert.assertArrayEquals(new double[]{40, -4}, sample, 1e-9);
+    }
+
+    @Test
+    public void overwritesTheOldestSamples() {
+        TimeSeriesBuffer buffer = new TimeSeriesBuffer(4, 2);
+        for (int i = 0; i < 10; i++) {
+            add(buffer, i, i * 10, 0);
+        }
+        // an out of order sample is ignored
+        add(buffer, 5, 0, 0);
+
+        Assert.assertEquals(10, buffer.getCount());
+        Assert.assertEquals(6, buffer.getOldestTimestamp(), 0);
+        Assert.assertEquals(9, buffer.getNewestTimestamp(), 0);
+        buffer.get(7.25, sample);
+        Assert.assertEquals(72.5, sample[0], 1e-9);
+        buffer.get(1, sample);
+        Assert.assertEquals(60, sample[0], 1e-9);
+    }
+
+    @Test
+    public void readersSeeConsistentSamples() throws InterruptedException {
+        TimeSeriesBuffer buffer = new TimeSeriesBuffer(16, 2);
+        add(buffer, 0, 0, 0);
+        Thread writer = new Thread(() -> {
+            double[] values = new double[2];
+            for (int i = 1; i <= 200000; i++) {
+                values[0] = i;
+                values[1] = -i;
+                buffer.add(i, values);
+            }
+        });
+        writer.start();
+        // every sample has opposite channels, so a torn read would break the sum
+        while (writer.isAlive()) {
+            double newest = buffer.getNewestTimestamp();
+            buffer.get(newest - 3.5, sample);
+            Assert.assertEquals(0, sample[0] + sample[1], 1e-9);
+        }
+        writer.join();
+        buffer.get(200000, sample);
+        Assert.assertEquals(200000, sample[0], 0);
+    }
+}